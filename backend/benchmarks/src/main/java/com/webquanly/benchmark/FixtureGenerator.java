@@ -0,0 +1,297 @@
+package com.webquanly.benchmark;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.poi.hslf.usermodel.HSLFPictureData;
+import org.apache.poi.hslf.usermodel.HSLFPictureShape;
+import org.apache.poi.hslf.usermodel.HSLFSlide;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hslf.usermodel.HSLFTextBox;
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.sl.usermodel.PictureData;
+import org.apache.poi.util.Units;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFPictureData;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+
+/**
+ * Generates the fixture corpus used by the JMH benchmarks: one small, medium and large document
+ * per format, with lecture-like text and a picture every few pages. Content is derived from a fixed
+ * seed, so regenerating the corpus gives the same documents.
+ *
+ * POI cannot create a Word 97 file from scratch, so {@code .doc} fixtures are written by filling
+ * {@code blank.doc}, a minimal document (one empty paragraph, an A4 section) kept next to the
+ * fixtures. Another seed can be passed as the second argument.
+ *
+ * Usage: {@code mvn -q compile exec:exec -Dbenchmark.main=com.webquanly.benchmark.FixtureGenerator
+ * -Dexec.args="src/main/resources/fixtures [seed.doc]"}
+ */
+public final class FixtureGenerator {
+    public enum Size {
+        SMALL(2, 3),
+        MEDIUM(20, 15),
+        LARGE(120, 60);
+
+        private final int pages;
+        private final int slides;
+
+        Size(int pages, int slides) {
+            this.pages = pages;
+            this.slides = slides;
+        }
+
+        public String fileName(String extension) {
+            return name().toLowerCase(Locale.ROOT) + "." + extension;
+        }
+    }
+
+    public static final String DOC_SEED = "blank.doc";
+
+    private static final int PARAGRAPHS_PER_PAGE = 6;
+    private static final int PICTURE_EVERY_PAGES = 5;
+    private static final String[] WORDS = {
+            "tài", "liệu", "học", "phần", "giáo", "trình", "bài", "giảng", "chương", "mục", "định", "nghĩa",
+            "ví", "dụ", "kết", "quả", "phân", "tích", "dữ", "liệu", "hệ", "thống", "thuật", "toán", "mô", "hình",
+            "đánh", "giá", "sinh", "viên", "thực", "hành", "kiểm", "tra", "tổng", "hợp", "nghiên", "cứu"
+    };
+    private static final String[] ASCII_WORDS = {
+            "document", "lecture", "chapter", "section", "definition", "example", "result", "analysis",
+            "data", "system", "algorithm", "model", "evaluation", "student", "practice", "review", "summary",
+            "research", "method", "theory", "exercise", "solution", "figure", "table"
+    };
+
+    private FixtureGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path target = Paths.get(args.length > 0 ? args[0] : "src/main/resources/fixtures");
+        Path docSeed = args.length > 1 ? Paths.get(args[1]) : target.resolve(DOC_SEED);
+        Files.createDirectories(target);
+        byte[] seed = Files.readAllBytes(docSeed);
+        for (Size size : Size.values()) {
+            write(target.resolve(size.fileName("pdf")), pdf(size));
+            write(target.resolve(size.fileName("docx")), docx(size));
+            write(target.resolve(size.fileName("doc")), doc(size, seed));
+            write(target.resolve(size.fileName("pptx")), pptx(size));
+            write(target.resolve(size.fileName("ppt")), ppt(size));
+        }
+    }
+
+    private static void write(Path file, byte[] content) throws IOException {
+        Files.write(file, content);
+        System.out.printf("%-14s %10d bytes%n", file.getFileName(), content.length);
+    }
+
+    static byte[] pdf(Size size) throws IOException {
+        Random random = new Random(size.ordinal());
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 0; page < size.pages; page++) {
+                PDPage pdPage = new PDPage(PDRectangle.A4);
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    float y = 780;
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA_BOLD, 18);
+                    content.newLineAtOffset(60, y);
+                    content.showText("Chapter " + (page + 1) + ": " + sentence(random, ASCII_WORDS, 4));
+                    content.setFont(PDType1Font.HELVETICA, 11);
+                    content.setLeading(15);
+                    for (int paragraph = 0; paragraph < PARAGRAPHS_PER_PAGE; paragraph++) {
+                        content.newLine();
+                        content.newLine();
+                        for (int line = 0; line < 5; line++) {
+                            content.showText(sentence(random, ASCII_WORDS, 12));
+                            content.newLine();
+                        }
+                    }
+                    content.endText();
+                    if (page % PICTURE_EVERY_PAGES == 0) {
+                        PDImageXObject image = JPEGFactory.createFromByteArray(document, picture(page, "jpeg"));
+                        content.drawImage(image, 60, 60, 300, 225);
+                    }
+                }
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    static byte[] docx(Size size) throws IOException {
+        Random random = new Random(size.ordinal());
+        try (XWPFDocument document = new XWPFDocument()) {
+            for (int page = 0; page < size.pages; page++) {
+                XWPFParagraph heading = document.createParagraph();
+                heading.setPageBreak(page > 0);
+                XWPFRun headingRun = heading.createRun();
+                headingRun.setBold(true);
+                headingRun.setFontSize(18);
+                headingRun.setText("Chương " + (page + 1) + ": " + sentence(random, WORDS, 4));
+                for (int paragraph = 0; paragraph < PARAGRAPHS_PER_PAGE; paragraph++) {
+                    XWPFParagraph body = document.createParagraph();
+                    body.setAlignment(ParagraphAlignment.BOTH);
+                    body.createRun().setText(sentence(random, WORDS, 60));
+                }
+                if (page % PICTURE_EVERY_PAGES == 0) {
+                    XWPFTable table = document.createTable(4, 3);
+                    for (int row = 0; row < 4; row++) {
+                        for (int cell = 0; cell < 3; cell++) {
+                            table.getRow(row).getCell(cell).setText(sentence(random, WORDS, 2));
+                        }
+                    }
+                    try (InputStream image = new ByteArrayInputStream(picture(page, "jpeg"))) {
+                        document.createParagraph().createRun().addPicture(image, XWPFDocument.PICTURE_TYPE_JPEG,
+                                "hinh-" + page + ".jpg", Units.toEMU(320), Units.toEMU(240));
+                    } catch (InvalidFormatException ex) {
+                        throw new IOException(ex);
+                    }
+                }
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    static byte[] doc(Size size, byte[] seed) throws IOException {
+        Random random = new Random(size.ordinal());
+        StringBuilder text = new StringBuilder();
+        for (int page = 0; page < size.pages; page++) {
+            text.append("Chương ").append(page + 1).append(": ").append(sentence(random, WORDS, 4)).append('\r');
+            for (int paragraph = 0; paragraph < PARAGRAPHS_PER_PAGE; paragraph++) {
+                text.append(sentence(random, WORDS, 60)).append('\r');
+            }
+        }
+        try (HWPFDocument document = new HWPFDocument(new ByteArrayInputStream(seed))) {
+            // before the final paragraph mark; only insertBefore grows the main text in the FIB
+            document.getRange().insertBefore(text.toString());
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    static byte[] pptx(Size size) throws IOException {
+        Random random = new Random(size.ordinal());
+        try (XMLSlideShow slideShow = new XMLSlideShow()) {
+            slideShow.setPageSize(new Dimension(960, 540));
+            for (int i = 0; i < size.slides; i++) {
+                XSLFSlide slide = slideShow.createSlide();
+                XSLFTextBox title = slide.createTextBox();
+                title.setAnchor(new Rectangle(40, 30, 880, 60));
+                title.setText("Chương " + (i + 1) + ": " + sentence(random, WORDS, 4));
+                title.getTextParagraphs().get(0).getTextRuns().get(0).setFontSize(32.0);
+
+                XSLFTextBox body = slide.createTextBox();
+                body.setAnchor(new Rectangle(40, 110, 460, 400));
+                for (int line = 0; line < 6; line++) {
+                    body.addNewTextParagraph().addNewTextRun().setText("• " + sentence(random, WORDS, 8));
+                }
+                XSLFPictureData picture = slideShow.addPicture(picture(i, "jpeg"), PictureData.PictureType.JPEG);
+                slide.createPicture(picture).setAnchor(new Rectangle(520, 110, 400, 300));
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            slideShow.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    static byte[] ppt(Size size) throws IOException {
+        Random random = new Random(size.ordinal());
+        try (HSLFSlideShow slideShow = new HSLFSlideShow()) {
+            slideShow.setPageSize(new Dimension(720, 540));
+            for (int i = 0; i < size.slides; i++) {
+                HSLFSlide slide = slideShow.createSlide();
+                HSLFTextBox title = slide.createTextBox();
+                title.setAnchor(new Rectangle(30, 20, 660, 60));
+                title.setText("Chương " + (i + 1) + ": " + sentence(random, WORDS, 4));
+                title.getTextParagraphs().get(0).getTextRuns().get(0).setFontSize(28.0);
+
+                HSLFTextBox body = slide.createTextBox();
+                body.setAnchor(new Rectangle(30, 100, 340, 400));
+                StringBuilder text = new StringBuilder();
+                for (int line = 0; line < 6; line++) {
+                    text.append(line > 0 ? "\r" : "").append("• ").append(sentence(random, WORDS, 8));
+                }
+                body.setText(text.toString());
+
+                HSLFPictureData picture = slideShow.addPicture(picture(i, "jpeg"), PictureData.PictureType.JPEG);
+                HSLFPictureShape pictureShape = slide.createPicture(picture);
+                pictureShape.setAnchor(new Rectangle(390, 100, 300, 225));
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            slideShow.write(output);
+            return output.toByteArray();
+        }
+    }
+
+    private static String sentence(Random random, String[] words, int length) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            String word = words[random.nextInt(words.length)];
+            sentence.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+        }
+        return sentence.append('.').toString();
+    }
+
+    /** A smooth, photo-like picture; JPEG keeps the corpus small. */
+    private static byte[] picture(int seed, String format) throws IOException {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setPaint(new GradientPaint(0, 0, Color.getHSBColor(seed / 60f, 0.6f, 0.9f),
+                    640, 480, Color.getHSBColor(seed / 60f + 0.3f, 0.8f, 0.4f)));
+            graphics.fillRect(0, 0, 640, 480);
+            for (int i = 0; i < 30; i++) {
+                graphics.setColor(Color.getHSBColor((seed * 7 + i) / 30f, 0.5f, 0.8f));
+                graphics.fillOval((i * 97 + seed * 13) % 600, (i * 53 + seed * 29) % 440, 20 + i * 3, 20 + i * 2);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return output.toByteArray();
+    }
+
+    /** Reads a fixture from the benchmark classpath. */
+    public static byte[] load(Size size, String extension) throws IOException {
+        String resource = "/fixtures/" + size.fileName(extension);
+        try (InputStream input = FixtureGenerator.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IOException("Missing fixture " + resource + ", run FixtureGenerator first");
+            }
+            return input.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.webquanly.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.webquanly.benchmark.FixtureGenerator.Size;
+import com.webquanly.service.DocumentConversionService;
+
+/**
+ * Full-document conversion to PDF (the derivative served by {@code /full-preview} and the page
+ * endpoints) per format and fixture size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class PdfConversionBenchmark {
+    @Param({"docx", "doc", "pptx", "ppt"})
+    public String format;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public Size size;
+
+    private DocumentConversionService conversion;
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        conversion = new DocumentConversionService();
+        data = FixtureGenerator.load(size, format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        conversion.shutdown();
+    }
+
+    @Benchmark
+    public byte[] convertToPdf() throws IOException {
+        switch (format) {
+            case "docx":
+                return conversion.convertDocxToPdf(data);
+            case "doc":
+                return conversion.convertDocToPdf(data);
+            case "pptx":
+                return conversion.convertPptxToPdf(data);
+            case "ppt":
+                return conversion.convertPptToPdf(data);
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.webquanly.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import com.webquanly.service.DocumentConversionService;
+
+/**
+ * Compares the peak heap used to render the cover of a stored PDF with the old byte[] path
+ * (read the whole file, then parse it in memory) and the file-backed path used by
+ * {@link DocumentConversionService#renderPdfPreview(Path)}.
+ *
+ * Usage: {@code mvn -q compile exec:exec [-Dexec.args="... <work-dir> <large-mb>"]}. Fixtures
+ * are generated once in the work dir (default {@code target/fixtures}).
+ */
+public final class PdfPreviewHeapBenchmark {
+    private static final int IMAGE_WIDTH = 1200;
+    private static final int IMAGE_HEIGHT = 1600;
+    private static final long BYTES_PER_PAGE = (long) IMAGE_WIDTH * IMAGE_HEIGHT * 3;
+
+    private PdfPreviewHeapBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path workDir = Paths.get(args.length > 0 ? args[0] : "target/fixtures");
+        int largeMb = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Files.createDirectories(workDir);
+
+        DocumentConversionService conversion = new DocumentConversionService();
+        long[] sizesMb = {1, 20, largeMb};
+        System.out.printf("%-10s %10s %16s %16s %12s %12s%n",
+                "fixture", "size(MB)", "bytes peak(MB)", "file peak(MB)", "bytes(ms)", "file(ms)");
+        for (long sizeMb : sizesMb) {
+            Path fixture = ensureFixture(workDir, sizeMb);
+            // warm up both paths so class loading does not count towards the first measurement
+            measure(() -> renderFromBytes(fixture));
+            measure(() -> conversion.renderPdfPreview(fixture));
+
+            Measurement legacy = measure(() -> renderFromBytes(fixture));
+            Measurement fileBacked = measure(() -> conversion.renderPdfPreview(fixture));
+            System.out.printf("%-10s %10.1f %16s %16.1f %12d %12d%n",
+                    fixture.getFileName(),
+                    Files.size(fixture) / 1024.0 / 1024.0,
+                    legacy.failed ? "OOM" : String.format("%.1f", legacy.peakMb()),
+                    fileBacked.peakMb(),
+                    legacy.millis,
+                    fileBacked.millis);
+        }
+    }
+
+    /** Equivalent of the previous implementation: whole file on the heap, parsed from memory. */
+    private static byte[] renderFromBytes(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(bytes))) {
+            BufferedImage image = new PDFRenderer(document).renderImageWithDPI(0, 170, ImageType.RGB);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+    }
+
+    private static Path ensureFixture(Path workDir, long sizeMb) throws IOException {
+        Path fixture = workDir.resolve("fixture-" + sizeMb + "mb.pdf");
+        if (Files.isRegularFile(fixture)) {
+            return fixture;
+        }
+        long pages = Math.max(1, sizeMb * 1024 * 1024 / BYTES_PER_PAGE);
+        Random random = new Random(sizeMb);
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                // random pixels do not compress, so the file size follows the page count
+                PDImageXObject image = LosslessFactory.createFromImage(document, noise(random));
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(image, 0, 0, PDRectangle.A4.getWidth(), PDRectangle.A4.getHeight());
+                }
+            }
+            document.save(fixture.toFile());
+        }
+        return fixture;
+    }
+
+    private static BufferedImage noise(Random random) {
+        BufferedImage image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < IMAGE_HEIGHT; y++) {
+            for (int x = 0; x < IMAGE_WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        return image;
+    }
+
+    private static Measurement measure(Task task) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        HeapSampler sampler = new HeapSampler(memory);
+        sampler.start();
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            task.run();
+        } catch (OutOfMemoryError ex) {
+            failed = true;
+        } finally {
+            sampler.running = false;
+            sampler.join();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new Measurement(Math.max(0, sampler.peak - baseline), millis, failed);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        Object run() throws Exception;
+    }
+
+    private static final class HeapSampler extends Thread {
+        private final MemoryMXBean memory;
+        private volatile boolean running = true;
+        private volatile long peak;
+
+        private HeapSampler(MemoryMXBean memory) {
+            super("heap-sampler");
+            this.memory = memory;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private record Measurement(long peakBytes, long millis, boolean failed) {
+        double peakMb() {
+            return peakBytes / 1024.0 / 1024.0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.webquanly.benchmark;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.imageio.ImageIO;
+
+import org.apache.poi.sl.usermodel.PictureData;
+import org.apache.poi.sl.usermodel.ShapeType;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFAutoShape;
+import org.apache.poi.xslf.usermodel.XSLFPictureData;
+import org.apache.poi.xslf.usermodel.XSLFPictureShape;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+
+import com.webquanly.service.SlideRasterizer;
+import com.webquanly.service.SlideRasterizer.ImageMode;
+
+/**
+ * Wall time and output size of PPTX to PDF conversion: the previous behaviour (one slide at a
+ * time, lossless images) against the parallel engine in JPEG mode.
+ *
+ * Usage: {@code mvn -q compile exec:exec -Dbenchmark.main=com.webquanly.benchmark.SlideConversionBenchmark}
+ * with optional {@code -Dexec.args="<slides> <parallelism> <jpeg-quality>"}.
+ */
+public final class SlideConversionBenchmark {
+    private static final int ROUNDS = 3;
+
+    private SlideConversionBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int slides = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int parallelism = args.length > 1
+                ? Integer.parseInt(args[1])
+                : Math.min(4, Runtime.getRuntime().availableProcessors());
+        float quality = args.length > 2 ? Float.parseFloat(args[2]) : 0.85f;
+
+        Path deck = ensureDeck(Paths.get("target/fixtures"), slides);
+        byte[] bytes = Files.readAllBytes(deck);
+        System.out.printf("deck: %s (%d slides, %.1f MB), %d cores%n",
+                deck.getFileName(), slides, bytes.length / 1024.0 / 1024.0, Runtime.getRuntime().availableProcessors());
+
+        try (SlideRasterizer legacy = new SlideRasterizer(1, 1, ImageMode.LOSSLESS, 1f);
+             SlideRasterizer parallelLossless = new SlideRasterizer(parallelism, parallelism * 2, ImageMode.LOSSLESS, 1f);
+             SlideRasterizer parallelJpeg = new SlideRasterizer(parallelism, parallelism * 2, ImageMode.JPEG, quality)) {
+            System.out.printf("%-28s %12s %14s%n", "engine", "best(ms)", "output(MB)");
+            run("sequential, lossless", legacy, bytes);
+            run("parallel x" + parallelism + ", lossless", parallelLossless, bytes);
+            run("parallel x" + parallelism + ", jpeg q" + quality, parallelJpeg, bytes);
+        }
+    }
+
+    private static void run(String label, SlideRasterizer rasterizer, byte[] deck) throws IOException {
+        long best = Long.MAX_VALUE;
+        int size = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            byte[] pdf = rasterizer.toPdf(deck, XMLSlideShow::new);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+            size = pdf.length;
+        }
+        System.out.printf("%-28s %12d %14.1f%n", label, best, size / 1024.0 / 1024.0);
+    }
+
+    private static Path ensureDeck(Path workDir, int slideCount) throws IOException {
+        Files.createDirectories(workDir);
+        Path deck = workDir.resolve("deck-" + slideCount + ".pptx");
+        if (Files.isRegularFile(deck)) {
+            return deck;
+        }
+        try (XMLSlideShow slideShow = new XMLSlideShow()) {
+            slideShow.setPageSize(new Dimension(1280, 720));
+            for (int i = 0; i < slideCount; i++) {
+                XSLFSlide slide = slideShow.createSlide();
+
+                XSLFTextBox title = slide.createTextBox();
+                title.setAnchor(new Rectangle(60, 40, 1160, 80));
+                title.setText("Chương " + (i + 1) + ": Nội dung bài giảng");
+                title.getTextParagraphs().get(0).getTextRuns().get(0).setFontSize(40.0);
+
+                XSLFTextBox body = slide.createTextBox();
+                body.setAnchor(new Rectangle(60, 150, 560, 500));
+                for (int line = 0; line < 8; line++) {
+                    body.addNewTextParagraph().addNewTextRun()
+                            .setText("• Ý chính số " + (line + 1) + " của slide " + (i + 1));
+                }
+
+                XSLFAutoShape shape = slide.createAutoShape();
+                shape.setShapeType(ShapeType.ROUND_RECT);
+                shape.setAnchor(new Rectangle(60, 660, 1160, 30));
+                shape.setFillColor(new Color(40, 90, 160));
+
+                XSLFPictureData picture = slideShow.addPicture(photo(i), PictureData.PictureType.PNG);
+                XSLFPictureShape pictureShape = slide.createPicture(picture);
+                pictureShape.setAnchor(new Rectangle(660, 150, 560, 420));
+            }
+            try (var output = Files.newOutputStream(deck)) {
+                slideShow.write(output);
+            }
+        }
+        return deck;
+    }
+
+    /** A smooth, photo-like picture so that lossless and lossy encoding differ realistically. */
+    private static byte[] photo(int seed) throws IOException {
+        BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setPaint(new GradientPaint(0, 0, Color.getHSBColor(seed / 60f, 0.6f, 0.9f),
+                    800, 600, Color.getHSBColor(seed / 60f + 0.3f, 0.8f, 0.4f)));
+            graphics.fillRect(0, 0, 800, 600);
+            for (int i = 0; i < 40; i++) {
+                graphics.setColor(Color.getHSBColor((seed * 7 + i) / 40f, 0.5f, 0.8f));
+                graphics.fillOval((i * 97 + seed * 13) % 760, (i * 53 + seed * 29) % 560, 30 + i * 3, 30 + i * 2);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
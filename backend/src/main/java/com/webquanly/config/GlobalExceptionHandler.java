@@ -1,5 +1,6 @@
 package com.webquanly.config;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -20,6 +21,22 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(java.util.Map.of("error", ex.getMessage()));
     }
 
+    @ExceptionHandler(com.webquanly.exception.UploadOffsetConflictException.class)
+    public ResponseEntity<?> handleUploadOffsetConflict(com.webquanly.exception.UploadOffsetConflictException ex) {
+        // the client resumes from the offset the session is waiting for
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(java.util.Map.of(
+                "error", ex.getMessage(),
+                "offset", ex.getExpectedOffset()
+        ));
+    }
+
+    @ExceptionHandler(com.webquanly.exception.RenderingOverloadedException.class)
+    public ResponseEntity<?> handleRenderingOverloaded(com.webquanly.exception.RenderingOverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(java.util.Map.of("error", ex.getMessage()));
+    }
+
     @ExceptionHandler(com.webquanly.exception.MailDeliveryException.class)
     public ResponseEntity<?> handleMailDelivery(com.webquanly.exception.MailDeliveryException ex) {
         // Mail delivery issues are usually external (SMTP auth, connectivity, timeouts).
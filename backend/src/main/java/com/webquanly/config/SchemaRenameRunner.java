@@ -41,6 +41,13 @@ public class SchemaRenameRunner {
             ensureBaoCaoTable();
 
             ensureDocumentReviewColumns();
+            ensureDocumentPreviewColumns();
+            ensurePreviewFailureTable();
+            ensureBlobStoreSchema();
+            ensureDocumentFileMetadataColumns();
+            ensureUploadSessionTable();
+            ensureDocumentListingIndexes();
+            ensureDocumentTextTable();
             ensureAccountLockColumns();
             ensureSubjectColumnNullable();
         } catch (Exception ex) {
@@ -74,6 +81,154 @@ public class SchemaRenameRunner {
         }
     }
 
+    /**
+     * Track the background PDF rendition of Word/PowerPoint uploads (PENDING, READY, FAILED).
+     * Existing rows stay NULL and are converted lazily on first full preview.
+     */
+    private void ensureDocumentPreviewColumns() {
+        if (!tableExists("tailieu")) {
+            return;
+        }
+
+        ensureColumn("tailieu", "trangthaibanxemtruoc",
+                "ALTER TABLE tailieu ADD COLUMN trangthaibanxemtruoc varchar(20)");
+    }
+
+    /**
+     * Create tailieu_loixemtruoc (preview conversion failures) if missing.
+     * This mirrors the JPA mapping in PreviewFailure (document_id + stage unique).
+     */
+    private void ensurePreviewFailureTable() {
+        if (!tableExists("tailieu") || tableExists("tailieu_loixemtruoc")) {
+            return;
+        }
+        String sql = """
+            CREATE TABLE tailieu_loixemtruoc (
+                id bigserial PRIMARY KEY,
+                document_id bigint NOT NULL,
+                stage varchar(20) NOT NULL,
+                fingerprint varchar(64) NOT NULL,
+                failure_count integer NOT NULL,
+                last_error text,
+                first_failed_at timestamp NOT NULL,
+                last_failed_at timestamp NOT NULL,
+                next_retry_at timestamp NOT NULL,
+                CONSTRAINT fk_loixemtruoc_tailieu FOREIGN KEY (document_id) REFERENCES tailieu(idtailieu) ON DELETE CASCADE,
+                CONSTRAINT uq_loixemtruoc UNIQUE (document_id, stage)
+            );
+            """;
+        jdbcTemplate.execute(sql);
+        LOGGER.info("Created table tailieu_loixemtruoc (preview failures) because it was missing");
+    }
+
+    /**
+     * Create tailieu_blob (content-addressed files shared by duplicate uploads) and the column
+     * keeping the uploader's file name, now that tailieu.file holds the blob key.
+     * Legacy rows keep their own file and no blob row.
+     */
+    private void ensureBlobStoreSchema() {
+        if (!tableExists("tailieu")) {
+            return;
+        }
+        ensureColumn("tailieu", "tenfilegoc",
+                "ALTER TABLE tailieu ADD COLUMN tenfilegoc varchar(255)");
+        if (tableExists("tailieu_blob")) {
+            return;
+        }
+        String sql = """
+            CREATE TABLE tailieu_blob (
+                id bigserial PRIMARY KEY,
+                sha256 varchar(64) NOT NULL,
+                storage_key varchar(255) NOT NULL,
+                size_bytes bigint NOT NULL,
+                ref_count integer NOT NULL,
+                created_at timestamp NOT NULL,
+                CONSTRAINT uq_blob_sha256 UNIQUE (sha256),
+                CONSTRAINT uq_blob_storage_key UNIQUE (storage_key)
+            );
+            """;
+        jdbcTemplate.execute(sql);
+        LOGGER.info("Created table tailieu_blob (deduplicated document files) because it was missing");
+    }
+
+    /**
+     * Size, detected content type and SHA-256 recorded while an upload is stored.
+     * Rows uploaded before stay NULL and are read from the file as before.
+     */
+    private void ensureDocumentFileMetadataColumns() {
+        if (!tableExists("tailieu")) {
+            return;
+        }
+        ensureColumn("tailieu", "kichthuoc",
+                "ALTER TABLE tailieu ADD COLUMN kichthuoc bigint");
+        ensureColumn("tailieu", "kieunoidung",
+                "ALTER TABLE tailieu ADD COLUMN kieunoidung varchar(100)");
+        ensureColumn("tailieu", "checksum",
+                "ALTER TABLE tailieu ADD COLUMN checksum varchar(64)");
+        ensureColumn("tailieu", "sotrang",
+                "ALTER TABLE tailieu ADD COLUMN sotrang integer");
+    }
+
+    /** Resumable upload sessions, mirroring the JPA mapping in UploadSession. */
+    private void ensureUploadSessionTable() {
+        if (tableExists("tailieu_upload")) {
+            return;
+        }
+        String sql = """
+            CREATE TABLE tailieu_upload (
+                id varchar(36) PRIMARY KEY,
+                owner_email varchar(255) NOT NULL,
+                file_name varchar(255) NOT NULL,
+                title varchar(255),
+                subject_id bigint NOT NULL,
+                total_size bigint NOT NULL,
+                received_bytes bigint NOT NULL,
+                created_at timestamp NOT NULL,
+                updated_at timestamp NOT NULL
+            );
+            """;
+        jdbcTemplate.execute(sql);
+        LOGGER.info("Created table tailieu_upload (resumable upload sessions) because it was missing");
+    }
+
+    /**
+     * Indexes matching the keyset order of the paginated listing (tgdanglen, idtailieu descending),
+     * overall and per subject.
+     */
+    private void ensureDocumentListingIndexes() {
+        if (!tableExists("tailieu")) {
+            return;
+        }
+        ensureIndex("idx_tailieu_listing",
+                "CREATE INDEX idx_tailieu_listing ON tailieu (tgdanglen DESC, idtailieu DESC)");
+        ensureIndex("idx_tailieu_monhoc_listing",
+                "CREATE INDEX idx_tailieu_monhoc_listing ON tailieu (idmonhoc, tgdanglen DESC, idtailieu DESC)");
+    }
+
+    /** Extracted text and metadata per document, mirroring the JPA mapping in DocumentText. */
+    private void ensureDocumentTextTable() {
+        if (tableExists("tailieu_text")) {
+            return;
+        }
+        String sql = """
+            CREATE TABLE tailieu_text (
+                document_id bigint PRIMARY KEY,
+                checksum varchar(64),
+                status varchar(20) NOT NULL,
+                content text,
+                truncated boolean NOT NULL DEFAULT false,
+                author varchar(255),
+                title varchar(500),
+                page_count integer,
+                error text,
+                extracted_at timestamp NOT NULL
+            );
+            CREATE INDEX idx_tailieu_text_checksum ON tailieu_text (checksum);
+            """;
+        jdbcTemplate.execute(sql);
+        LOGGER.info("Created table tailieu_text (extracted document text) because it was missing");
+    }
+
     private void ensureAccountLockColumns() {
         if (!tableExists("users")) {
             return;
@@ -108,6 +263,14 @@ public class SchemaRenameRunner {
         LOGGER.info("Added column {}.{}", tableName, columnName);
     }
 
+    private void ensureIndex(String indexName, String createIndexSql) {
+        if (indexExists(indexName)) {
+            return;
+        }
+        jdbcTemplate.execute(createIndexSql);
+        LOGGER.info("Created index {}", indexName);
+    }
+
     /**
      * Create BaoCao table if missing to avoid runtime errors when counting reports.
      * This mirrors the JPA mapping in BinhLuanReport (comment_id + reporter_id unique).
@@ -0,0 +1,90 @@
+package com.webquanly.config;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.webquanly.storage.BlobStorage;
+import com.webquanly.storage.LocalBlobStorage;
+import com.webquanly.storage.S3BlobStorage;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+/**
+ * Storage backends for documents and avatars: local directories ({@code storage.backend=local},
+ * the default) or an S3-compatible bucket shared by all instances ({@code storage.backend=s3}).
+ */
+@Configuration
+public class StorageConfig {
+
+    private static final long MB = 1024L * 1024;
+
+    @Value("${storage.backend:local}")
+    private String backend;
+
+    @Value("${storage.s3.bucket:webquanly}")
+    private String bucket;
+
+    @Value("${storage.s3.cache-dir:storage/cache}")
+    private String cacheDir;
+
+    @Value("${storage.s3.cache-max-size-mb:2048}")
+    private long cacheMaxSizeMb;
+
+    @Value("${storage.s3.multipart-threshold-mb:16}")
+    private long multipartThresholdMb;
+
+    @Value("${storage.s3.part-size-mb:8}")
+    private int partSizeMb;
+
+    @Bean
+    public BlobStorage documentStorage(@Value("${file.upload-dir:uploads}") String uploadDir,
+                                       ObjectProvider<S3Client> s3Client) {
+        return create(uploadDir, "documents", s3Client);
+    }
+
+    @Bean
+    public BlobStorage avatarStorage(@Value("${file.avatar-dir:storage/avatars}") String avatarDir,
+                                     ObjectProvider<S3Client> s3Client) {
+        return create(avatarDir, "avatars", s3Client);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public S3Client s3Client(@Value("${storage.s3.endpoint:}") String endpoint,
+                             @Value("${storage.s3.region:us-east-1}") String region,
+                             @Value("${storage.s3.access-key:}") String accessKey,
+                             @Value("${storage.s3.secret-key:}") String secretKey,
+                             @Value("${storage.s3.path-style:true}") boolean pathStyle) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                // MinIO and most self-hosted stores only serve http://host/bucket/key
+                .forcePathStyle(pathStyle)
+                .credentialsProvider(accessKey.isBlank()
+                        ? DefaultCredentialsProvider.create()
+                        : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    private BlobStorage create(String localDir, String area, ObjectProvider<S3Client> s3Client) {
+        if (!"s3".equalsIgnoreCase(backend)) {
+            return new LocalBlobStorage(Paths.get(localDir));
+        }
+        return new S3BlobStorage(s3Client.getObject(), bucket, area,
+                Paths.get(cacheDir).resolve(area),
+                cacheMaxSizeMb * MB, multipartThresholdMb * MB, (int) (partSizeMb * MB));
+    }
+}
@@ -12,20 +12,35 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.webquanly.dto.admin.AdminCommentSummary;
+import com.webquanly.dto.admin.AdminConversionWorkerStats;
 import com.webquanly.dto.admin.AdminDeletionRequest;
 import com.webquanly.dto.admin.AdminDocumentReviewRequest;
 import com.webquanly.dto.admin.AdminDocumentSubjectUpdateRequest;
 import com.webquanly.dto.admin.AdminDocumentSummary;
 import com.webquanly.dto.admin.AdminOverviewResponse;
+import com.webquanly.dto.admin.AdminPreviewCacheStats;
+import com.webquanly.dto.admin.AdminPreviewFailure;
+import com.webquanly.dto.admin.AdminRenderingStats;
+import com.webquanly.dto.admin.AdminSearchIndexStatus;
+import com.webquanly.dto.admin.AdminStorageMigrationStatus;
+import com.webquanly.dto.admin.AdminStorageReconciliationReport;
 import com.webquanly.dto.admin.AdminUserSummary;
 import com.webquanly.dto.admin.AdminUserUpdateRequest;
 import com.webquanly.service.AdminService;
+import com.webquanly.service.ConversionWorkerPool;
+import com.webquanly.service.DocumentSearchService;
+import com.webquanly.service.PreviewCacheService;
+import com.webquanly.service.PreviewFailureService;
+import com.webquanly.service.RenderingScheduler;
+import com.webquanly.service.StorageMigrationService;
+import com.webquanly.service.StorageReconciliationService;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -38,6 +53,27 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private PreviewCacheService previewCacheService;
+
+    @Autowired
+    private RenderingScheduler renderingScheduler;
+
+    @Autowired
+    private PreviewFailureService previewFailureService;
+
+    @Autowired
+    private ConversionWorkerPool conversionWorkerPool;
+
+    @Autowired
+    private StorageMigrationService storageMigrationService;
+
+    @Autowired
+    private StorageReconciliationService storageReconciliationService;
+
+    @Autowired
+    private DocumentSearchService documentSearchService;
+
     @GetMapping("/overview")
     public AdminOverviewResponse overview(Authentication authentication) {
         assertAdmin(authentication);
@@ -123,6 +159,93 @@ public class AdminController {
         return ResponseEntity.ok(Map.of("message", "Đã xóa bình luận"));
     }
 
+    @GetMapping("/preview-cache")
+    public AdminPreviewCacheStats previewCache(Authentication authentication) {
+        assertAdmin(authentication);
+        return previewCacheService.getStats();
+    }
+
+    @GetMapping("/rendering")
+    public List<AdminRenderingStats> rendering(Authentication authentication) {
+        assertAdmin(authentication);
+        return renderingScheduler.getStats();
+    }
+
+    @GetMapping("/conversion-workers")
+    public AdminConversionWorkerStats conversionWorkers(Authentication authentication) {
+        assertAdmin(authentication);
+        return conversionWorkerPool.getStats();
+    }
+
+    @GetMapping("/preview-failures")
+    public List<AdminPreviewFailure> previewFailures(Authentication authentication) {
+        assertAdmin(authentication);
+        return previewFailureService.listFailures();
+    }
+
+    @DeleteMapping("/preview-failures/{documentId}")
+    public ResponseEntity<Map<String, String>> retryPreview(@PathVariable Long documentId, Authentication authentication) {
+        assertAdmin(authentication);
+        previewFailureService.clearAll(documentId);
+        return ResponseEntity.ok(Map.of("message", "Tài liệu sẽ được dựng lại ở lần xem tiếp theo"));
+    }
+
+    @GetMapping("/storage/migration")
+    public AdminStorageMigrationStatus storageMigration(Authentication authentication) {
+        assertAdmin(authentication);
+        return storageMigrationService.getStatus();
+    }
+
+    @PostMapping("/storage/migration")
+    public ResponseEntity<AdminStorageMigrationStatus> startStorageMigration(Authentication authentication) {
+        assertAdmin(authentication);
+        boolean started = storageMigrationService.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(storageMigrationService.getStatus());
+    }
+
+    @DeleteMapping("/storage/migration")
+    public AdminStorageMigrationStatus stopStorageMigration(Authentication authentication) {
+        assertAdmin(authentication);
+        storageMigrationService.stop();
+        return storageMigrationService.getStatus();
+    }
+
+    @GetMapping("/storage/reconciliation")
+    public AdminStorageReconciliationReport storageReconciliation(Authentication authentication) {
+        assertAdmin(authentication);
+        return storageReconciliationService.getReport();
+    }
+
+    @PostMapping("/storage/reconciliation")
+    public ResponseEntity<AdminStorageReconciliationReport> startStorageReconciliation(Authentication authentication) {
+        assertAdmin(authentication);
+        boolean started = storageReconciliationService.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(storageReconciliationService.getReport());
+    }
+
+    @DeleteMapping("/storage/reconciliation")
+    public AdminStorageReconciliationReport stopStorageReconciliation(Authentication authentication) {
+        assertAdmin(authentication);
+        storageReconciliationService.stop();
+        return storageReconciliationService.getReport();
+    }
+
+    @GetMapping("/search/index")
+    public AdminSearchIndexStatus searchIndexStatus(Authentication authentication) {
+        assertAdmin(authentication);
+        return documentSearchService.getStatus();
+    }
+
+    @PostMapping("/search/index")
+    public ResponseEntity<AdminSearchIndexStatus> rebuildSearchIndex(Authentication authentication) {
+        assertAdmin(authentication);
+        boolean started = documentSearchService.startRebuild();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(documentSearchService.getStatus());
+    }
+
     private void assertAdmin(Authentication authentication) {
         if (authentication == null || authentication.getName() == null || !adminService.isAdmin(authentication.getName())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Chức năng chỉ dành cho quản trị viên");
@@ -1,15 +1,21 @@
 package com.webquanly.controller;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -18,34 +24,62 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.webquanly.dto.CommentResponse;
 import com.webquanly.dto.CreateCommentRequest;
 import com.webquanly.dto.DocumentDetailResponse;
+import com.webquanly.dto.DocumentFacetsResponse;
+import com.webquanly.dto.DocumentPageResponse;
 import com.webquanly.dto.DocumentResponse;
+import com.webquanly.dto.DocumentSearchResponse;
 import com.webquanly.dto.DocumentSubjectAssignRequest;
+import com.webquanly.dto.DocumentVersion;
+import com.webquanly.dto.PreviewImage;
 import com.webquanly.dto.RatingRequest;
 import com.webquanly.dto.RatingSummaryResponse;
 import com.webquanly.dto.ReportCommentRequest;
 import com.webquanly.dto.ReportDocumentRequest;
+import com.webquanly.dto.UploadSessionRequest;
+import com.webquanly.dto.UploadSessionResponse;
 import com.webquanly.service.AdminService;
+import com.webquanly.service.DocumentListingService;
+import com.webquanly.service.DocumentSearchService;
 import com.webquanly.service.DocumentService;
+import com.webquanly.service.PreviewImageScaler;
+import com.webquanly.service.UploadSessionService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/documents")
 public class DocumentController {
 
+    private static final long IMMUTABLE_MAX_AGE_DAYS = 365;
+
     @Autowired
     private DocumentService documentService;
 
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    private DocumentListingService documentListingService;
+
+    @Autowired
+    private DocumentSearchService documentSearchService;
+
     @PostMapping("/upload")
     public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file,
                                     @RequestParam(name = "title", required = false) String title,
@@ -62,6 +96,71 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Upload with the raw file as the request body ({@code application/octet-stream}); the body
+     * is streamed into the store without being spooled to a temporary multipart file first.
+     */
+    @PostMapping(value = "/upload/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadStream(@RequestParam("filename") String filename,
+                                          @RequestParam(name = "title", required = false) String title,
+                                          @RequestParam("subjectId") Long subjectId,
+                                          HttpServletRequest request,
+                                          Authentication authentication) {
+        try {
+            String username = authentication != null ? authentication.getName() : null;
+            DocumentResponse dto = documentService.store(request.getInputStream(), filename,
+                    request.getContentLengthLong(), title, subjectId, username);
+            return ResponseEntity.status(201).body(dto);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body(java.util.Map.of("error", "Failed to store file"));
+        }
+    }
+
+    /**
+     * Resumable upload: open a session with the file size, PUT the chunks in order with their
+     * offset (and optionally {@code X-Chunk-Checksum}, the chunk's SHA-256), GET the session to
+     * find where to resume, then complete it to create the document.
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadSessionResponse> createUploadSession(@RequestBody UploadSessionRequest request,
+                                                                     Authentication authentication) throws IOException {
+        return ResponseEntity.status(201).body(uploadSessionService.create(request, authentication.getName()));
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public UploadSessionResponse getUploadSession(@PathVariable String uploadId, Authentication authentication) {
+        String username = authentication != null ? authentication.getName() : null;
+        return uploadSessionService.status(uploadId, username);
+    }
+
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public UploadSessionResponse uploadChunk(@PathVariable String uploadId,
+                                             @RequestParam("offset") long offset,
+                                             @RequestHeader(value = "X-Chunk-Checksum", required = false) String checksum,
+                                             HttpServletRequest request,
+                                             Authentication authentication) throws IOException {
+        return uploadSessionService.writeChunk(uploadId, authentication.getName(), offset,
+                request.getInputStream(), request.getContentLengthLong(), checksum);
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUploadSession(@PathVariable String uploadId, Authentication authentication) {
+        try {
+            DocumentResponse dto = uploadSessionService.complete(uploadId, authentication.getName());
+            return ResponseEntity.status(201).body(dto);
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body(java.util.Map.of("error", "Failed to store file"));
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Void> cancelUploadSession(@PathVariable String uploadId, Authentication authentication) {
+        uploadSessionService.cancel(uploadId, authentication.getName());
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/preview")
     public ResponseEntity<?> preview(@RequestParam("file") MultipartFile file) {
         try {
@@ -77,14 +176,35 @@ public class DocumentController {
     }
 
     @GetMapping("/{id}/preview")
-    public ResponseEntity<?> previewStored(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<?> previewStored(@PathVariable Long id,
+                                           @RequestParam(value = "w", required = false) Integer width,
+                                           @RequestParam(value = "format", required = false) String format,
+                                           @RequestParam(value = "v", required = false) String requestedVersion,
+                                           Authentication authentication,
+                                           WebRequest request) {
+        PreviewImageScaler.Format imageFormat;
+        try {
+            // a bad parameter, not a missing document; the handler below answers 404
+            imageFormat = PreviewImageScaler.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        }
         try {
             String viewer = authentication != null ? authentication.getName() : null;
             boolean isAdmin = viewer != null && adminService.isAdmin(viewer);
-            byte[] png = documentService.generateStoredPreviewSafeWithAccess(id, viewer, isAdmin);
+            DocumentVersion version = documentService.getDocumentVersionWithAccess(id, viewer, isAdmin);
+            CacheControl cacheControl = cacheControlFor(version, requestedVersion);
+            String representation = "cover-w" + PreviewImageScaler.snapWidth(width)
+                    + "." + imageFormat.getExtension();
+            if (notModified(request, version, representation)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
+            PreviewImage image = documentService.generateStoredPreviewVariantWithAccess(id, width, format, viewer, isAdmin);
             return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_PNG)
-                    .body(png);
+                    // a stand-in image must not be kept once the document renders again
+                    .cacheControl(image.isPlaceholder() ? CacheControl.noStore() : cacheControl)
+                    .contentType(MediaType.parseMediaType(image.getContentType()))
+                    .body(image.getData());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(404).body(java.util.Map.of("error", e.getMessage()));
         } catch (IOException e) {
@@ -93,15 +213,25 @@ public class DocumentController {
     }
 
     @GetMapping("/{id}/full-preview")
-    public ResponseEntity<?> fullPreview(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<?> fullPreview(@PathVariable Long id,
+                                         @RequestParam(value = "v", required = false) String requestedVersion,
+                                         Authentication authentication,
+                                         WebRequest request) {
         try {
             String viewer = authentication != null ? authentication.getName() : null;
             boolean isAdmin = viewer != null && adminService.isAdmin(viewer);
-            byte[] pdfBytes = documentService.generateStoredFullPreviewPdfWithAccess(id, viewer, isAdmin);
+            DocumentVersion version = documentService.getDocumentVersionWithAccess(id, viewer, isAdmin);
+            CacheControl cacheControl = cacheControlFor(version, requestedVersion);
+            if (notModified(request, version, "pdf")) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
+            Resource pdf = documentService.loadStoredFullPreviewWithAccess(id, viewer, isAdmin);
             return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
                     .contentType(MediaType.APPLICATION_PDF)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"preview.pdf\"")
-                    .body(pdfBytes);
+                    .body(rangeAware(request, version, "pdf", pdf));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(404).body(java.util.Map.of("error", e.getMessage()));
         } catch (IOException e) {
@@ -109,6 +239,53 @@ public class DocumentController {
         }
     }
 
+    @GetMapping("/{id}/pages")
+    public ResponseEntity<?> pages(@PathVariable Long id, Authentication authentication, WebRequest request) {
+        try {
+            String viewer = authentication != null ? authentication.getName() : null;
+            boolean isAdmin = viewer != null && adminService.isAdmin(viewer);
+            DocumentVersion version = documentService.getDocumentVersionWithAccess(id, viewer, isAdmin);
+            CacheControl cacheControl = cacheControlFor(version, null);
+            if (notModified(request, version, "pages")) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
+            return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .body(documentService.getPageInfoWithAccess(id, viewer, isAdmin));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(java.util.Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body(java.util.Map.of("error", "Failed to read document pages"));
+        }
+    }
+
+    @GetMapping("/{id}/pages/{page}")
+    public ResponseEntity<?> page(@PathVariable Long id,
+                                  @PathVariable int page,
+                                  @RequestParam(value = "w", required = false) Integer width,
+                                  @RequestParam(value = "v", required = false) String requestedVersion,
+                                  Authentication authentication,
+                                  WebRequest request) {
+        try {
+            String viewer = authentication != null ? authentication.getName() : null;
+            boolean isAdmin = viewer != null && adminService.isAdmin(viewer);
+            DocumentVersion version = documentService.getDocumentVersionWithAccess(id, viewer, isAdmin);
+            CacheControl cacheControl = cacheControlFor(version, requestedVersion);
+            if (notModified(request, version, "page" + page + "-w" + (width == null ? "" : width))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
+            byte[] png = documentService.renderStoredPageWithAccess(id, page, width, viewer, isAdmin);
+            return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .contentType(MediaType.IMAGE_PNG)
+                    .body(png);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(java.util.Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body(java.util.Map.of("error", "Failed to render page"));
+        }
+    }
+
     @GetMapping("/{id}/reports")
     public ResponseEntity<?> listReports(@PathVariable Long id, Authentication authentication) {
         if (authentication == null || !adminService.isAdmin(authentication.getName())) {
@@ -139,6 +316,42 @@ public class DocumentController {
         return documentService.listAll();
     }
 
+    @GetMapping("/search")
+    public DocumentSearchResponse search(@RequestParam("q") String query,
+                                         @RequestParam(value = "subjectId", required = false) Long subjectId,
+                                         @RequestParam(value = "typeId", required = false) Long typeId,
+                                         @RequestParam(value = "status", required = false) String status,
+                                         @RequestParam(value = "offset", required = false) Integer offset,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         Authentication authentication) throws IOException {
+        String viewer = authentication != null ? authentication.getName() : null;
+        boolean isAdmin = viewer != null && adminService.isAdmin(viewer);
+        return documentSearchService.search(query, subjectId, typeId, status, offset, limit, isAdmin);
+    }
+
+    @GetMapping("/facets")
+    public DocumentFacetsResponse facets(@RequestParam(value = "q", required = false) String query,
+                                         @RequestParam(value = "subjectId", required = false) Long subjectId,
+                                         @RequestParam(value = "typeId", required = false) Long typeId,
+                                         @RequestParam(value = "status", required = false) String status,
+                                         Authentication authentication) throws IOException {
+        String viewer = authentication != null ? authentication.getName() : null;
+        boolean isAdmin = viewer != null && adminService.isAdmin(viewer);
+        return documentSearchService.facets(query, subjectId, typeId, status, isAdmin);
+    }
+
+    @GetMapping("/page")
+    public DocumentPageResponse listPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestParam(value = "subjectId", required = false) Long subjectId,
+                                         @RequestParam(value = "typeId", required = false) Long typeId,
+                                         @RequestParam(value = "status", required = false) String status,
+                                         Authentication authentication) {
+        String viewer = authentication != null ? authentication.getName() : null;
+        boolean isAdmin = viewer != null && adminService.isAdmin(viewer);
+        return documentListingService.listPage(cursor, limit, subjectId, typeId, status, isAdmin);
+    }
+
     @PatchMapping("/{id}/subject")
     public ResponseEntity<?> assignSubject(@PathVariable Long id,
                                            @RequestBody(required = false) DocumentSubjectAssignRequest request,
@@ -299,25 +512,38 @@ public class DocumentController {
     }
 
     @GetMapping("/{id}/download")
-    public ResponseEntity<?> download(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<?> download(@PathVariable Long id,
+                                      @RequestParam(value = "v", required = false) String requestedVersion,
+                                      Authentication authentication,
+                                      WebRequest request) {
         String viewer = authentication != null ? authentication.getName() : null;
         boolean isAdmin = viewer != null && adminService.isAdmin(viewer);
         var dto = documentService.findByIdWithAccess(id, viewer, isAdmin);
         if (dto == null) return ResponseEntity.notFound().build();
         try {
-            Path p = documentService.getPathByIdWithAccess(id, viewer, isAdmin);
-            Resource resource = new UrlResource(p.toUri());
+            DocumentVersion version = documentService.getDocumentVersionWithAccess(id, viewer, isAdmin);
+            CacheControl cacheControl = cacheControlFor(version, requestedVersion);
+            // a revalidated copy is not a new download, so it is not counted
+            if (notModified(request, version, "file")) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+            }
+            Resource resource = documentService.loadStoredFileWithAccess(id, viewer, isAdmin);
             if (!resource.exists() || !resource.isReadable()) {
                 return ResponseEntity.status(404).body(java.util.Map.of("error", "File không tồn tại"));
             }
-            documentService.incrementDownloadCount(id);
+            // resuming or seeking (ranges past byte 0) continues a download that was already counted
+            if (isGet(request) && includesFirstByte(request, version, "file", resource.contentLength())) {
+                documentService.incrementDownloadCount(id);
+            }
             String ct = dto.getContentType() != null ? dto.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
             String downloadName = resolveDownloadFilename(dto);
             return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
                     .contentType(MediaType.parseMediaType(ct))
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + downloadName + "\"")
-                    .body(resource);
-        } catch (MalformedURLException e) {
+                    .body(rangeAware(request, version, "file", resource));
+        } catch (IOException e) {
             return ResponseEntity.status(500).body(java.util.Map.of("error", "File access error"));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
@@ -325,6 +551,80 @@ public class DocumentController {
 
     }
 
+    /**
+     * Answers If-None-Match / If-Modified-Since against the stored file's validators. Called after
+     * the access check and before the file is read or rendered; sets ETag and Last-Modified.
+     */
+    private boolean notModified(WebRequest request, DocumentVersion version, String representation) {
+        return request.checkNotModified(version.getTag() + "-" + representation, version.getLastModified());
+    }
+
+    /**
+     * URLs carrying the current {@code ?v=} token never change and may be cached for good; other
+     * URLs are revalidated with the ETag. Documents not visible to everyone stay in private caches.
+     */
+    private CacheControl cacheControlFor(DocumentVersion version, String requestedVersion) {
+        CacheControl cacheControl = version.getTag().equals(requestedVersion)
+                ? CacheControl.maxAge(IMMUTABLE_MAX_AGE_DAYS, TimeUnit.DAYS).immutable()
+                : CacheControl.noCache();
+        return version.isPubliclyVisible() ? cacheControl.cachePublic() : cacheControl.cachePrivate();
+    }
+
+    /**
+     * Body of a file response. Spring MVC answers Range requests on a {@link Resource} body itself
+     * (206 with Content-Range for one range, multipart/byteranges for several, 416 when none is
+     * satisfiable); this adds If-Range: when the validator no longer matches, the range is ignored
+     * and the whole file is sent, through a body type the range handling leaves alone.
+     */
+    private Resource rangeAware(WebRequest request, DocumentVersion version, String representation,
+                                Resource resource) throws IOException {
+        if (request.getHeader(HttpHeaders.RANGE) == null || ifRangeMatches(request, version, representation)) {
+            return resource;
+        }
+        // exactly InputStreamResource: Spring skips range handling for this type only
+        return new InputStreamResource(resource.getInputStream());
+    }
+
+    /** RFC 9110 If-Range: a strong ETag or the exact Last-Modified date of the current file. */
+    private boolean ifRangeMatches(WebRequest request, DocumentVersion version, String representation) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals("\"" + version.getTag() + "-" + representation + "\"");
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return date == version.getLastModified() / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /** True for a full response and for range requests that start at the beginning of the file. */
+    private boolean includesFirstByte(WebRequest request, DocumentVersion version, String representation, long length) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !ifRangeMatches(request, version, representation)) {
+            return true;
+        }
+        try {
+            return HttpRange.parseRanges(range).stream().anyMatch(r -> r.getRangeStart(length) == 0);
+        } catch (IllegalArgumentException e) {
+            // answered with 416, nothing is downloaded
+            return false;
+        }
+    }
+
+    private boolean isGet(WebRequest request) {
+        return request instanceof ServletWebRequest servletRequest
+                && HttpMethod.GET.matches(servletRequest.getRequest().getMethod());
+    }
+
     private String resolveDownloadFilename(DocumentResponse dto) {
         String original = dto.getFilename();
         String base = dto.getTitle();
@@ -1,6 +1,8 @@
 package com.webquanly.controller;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
@@ -79,10 +81,14 @@ public class ProfileController {
         try {
             Resource resource = profileService.loadAvatar(fileName);
             MediaType mediaType = resolveMediaType(fileName);
+            // every upload gets a new file name, so a stored avatar never changes
             return ResponseEntity.ok()
-                    .cacheControl(CacheControl.noCache())
+                    .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                    .lastModified(resource.lastModified())
                     .contentType(mediaType)
                     .body(resource);
+        } catch (IOException ex) {
+            return ResponseEntity.status(404).body(Map.of("error", "Không thể đọc ảnh đại diện"));
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.status(404).body(Map.of("error", ex.getMessage()));
         }
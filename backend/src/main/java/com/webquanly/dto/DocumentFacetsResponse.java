@@ -0,0 +1,35 @@
+package com.webquanly.dto;
+
+import java.util.List;
+
+public class DocumentFacetsResponse {
+    private String query;
+    // documents matching the query and every filter
+    private long total;
+    private List<FacetBucket> subjects;
+    private List<FacetBucket> types;
+    private List<FacetBucket> statuses;
+    private List<FacetBucket> uploaded;
+    private long tookMs;
+
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public List<FacetBucket> getSubjects() { return subjects; }
+    public void setSubjects(List<FacetBucket> subjects) { this.subjects = subjects; }
+
+    public List<FacetBucket> getTypes() { return types; }
+    public void setTypes(List<FacetBucket> types) { this.types = types; }
+
+    public List<FacetBucket> getStatuses() { return statuses; }
+    public void setStatuses(List<FacetBucket> statuses) { this.statuses = statuses; }
+
+    public List<FacetBucket> getUploaded() { return uploaded; }
+    public void setUploaded(List<FacetBucket> uploaded) { this.uploaded = uploaded; }
+
+    public long getTookMs() { return tookMs; }
+    public void setTookMs(long tookMs) { this.tookMs = tookMs; }
+}
@@ -0,0 +1,18 @@
+package com.webquanly.dto;
+
+import java.util.List;
+
+public class DocumentPageResponse {
+    private List<DocumentResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public List<DocumentResponse> getItems() { return items; }
+    public void setItems(List<DocumentResponse> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,22 @@
+package com.webquanly.dto;
+
+import java.util.List;
+
+public class DocumentPagesResponse {
+    private Long documentId;
+    private int pageCount;
+    private List<Integer> widths;
+    private int defaultWidth;
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public int getPageCount() { return pageCount; }
+    public void setPageCount(int pageCount) { this.pageCount = pageCount; }
+
+    public List<Integer> getWidths() { return widths; }
+    public void setWidths(List<Integer> widths) { this.widths = widths; }
+
+    public int getDefaultWidth() { return defaultWidth; }
+    public void setDefaultWidth(int defaultWidth) { this.defaultWidth = defaultWidth; }
+}
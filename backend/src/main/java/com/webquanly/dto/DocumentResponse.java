@@ -19,6 +19,8 @@ public class DocumentResponse {
     private boolean pendingSubject;
     private String reviewStatus;
     private String reviewReason;
+    private String version;
+    private Integer pageCount;
     
     public LocalDateTime getUploadDate() { return createdAt; }
     public void setUploadDate(LocalDateTime uploadDate) { this.createdAt = uploadDate; }
@@ -57,4 +59,10 @@ public class DocumentResponse {
 
     public String getReviewReason() { return reviewReason; }
     public void setReviewReason(String reviewReason) { this.reviewReason = reviewReason; }
+
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+
+    public Integer getPageCount() { return pageCount; }
+    public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
 }
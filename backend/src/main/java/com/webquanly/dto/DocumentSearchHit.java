@@ -0,0 +1,19 @@
+package com.webquanly.dto;
+
+import java.util.Map;
+
+public class DocumentSearchHit {
+    private DocumentResponse document;
+    private float score;
+    // field name -> HTML fragment with matches in <mark>, the rest escaped
+    private Map<String, String> highlights;
+
+    public DocumentResponse getDocument() { return document; }
+    public void setDocument(DocumentResponse document) { this.document = document; }
+
+    public float getScore() { return score; }
+    public void setScore(float score) { this.score = score; }
+
+    public Map<String, String> getHighlights() { return highlights; }
+    public void setHighlights(Map<String, String> highlights) { this.highlights = highlights; }
+}
@@ -0,0 +1,34 @@
+package com.webquanly.dto;
+
+import java.util.List;
+
+public class DocumentSearchResponse {
+    private String query;
+    private long total;
+    private boolean totalExact;
+    private int offset;
+    private int limit;
+    private long tookMs;
+    private List<DocumentSearchHit> items;
+
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public boolean isTotalExact() { return totalExact; }
+    public void setTotalExact(boolean totalExact) { this.totalExact = totalExact; }
+
+    public int getOffset() { return offset; }
+    public void setOffset(int offset) { this.offset = offset; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+
+    public long getTookMs() { return tookMs; }
+    public void setTookMs(long tookMs) { this.tookMs = tookMs; }
+
+    public List<DocumentSearchHit> getItems() { return items; }
+    public void setItems(List<DocumentSearchHit> items) { this.items = items; }
+}
@@ -0,0 +1,23 @@
+package com.webquanly.dto;
+
+/**
+ * Validators of a stored document: {@code tag} changes whenever the stored file or the document
+ * upload changes, and is used both for ETags and for the {@code ?v=} token of cacheable URLs.
+ */
+public class DocumentVersion {
+    private final String tag;
+    private final long lastModified;
+    private final boolean publiclyVisible;
+
+    public DocumentVersion(String tag, long lastModified, boolean publiclyVisible) {
+        this.tag = tag;
+        this.lastModified = lastModified;
+        this.publiclyVisible = publiclyVisible;
+    }
+
+    public String getTag() { return tag; }
+
+    public long getLastModified() { return lastModified; }
+
+    public boolean isPubliclyVisible() { return publiclyVisible; }
+}
@@ -0,0 +1,25 @@
+package com.webquanly.dto;
+
+public class FacetBucket {
+    // subject/type id, review status or upload age; null for documents without a subject or type
+    private String key;
+    private String label;
+    private long count;
+
+    public FacetBucket() {}
+
+    public FacetBucket(String key, String label, long count) {
+        this.key = key;
+        this.label = label;
+        this.count = count;
+    }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
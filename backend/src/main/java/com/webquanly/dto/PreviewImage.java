@@ -0,0 +1,24 @@
+package com.webquanly.dto;
+
+public class PreviewImage {
+    private final byte[] data;
+    private final String contentType;
+    private final boolean placeholder;
+
+    public PreviewImage(byte[] data, String contentType) {
+        this(data, contentType, false);
+    }
+
+    public PreviewImage(byte[] data, String contentType, boolean placeholder) {
+        this.data = data;
+        this.contentType = contentType;
+        this.placeholder = placeholder;
+    }
+
+    public byte[] getData() { return data; }
+
+    public String getContentType() { return contentType; }
+
+    /** True when the document could not be rendered and this is a stand-in image. */
+    public boolean isPlaceholder() { return placeholder; }
+}
@@ -0,0 +1,20 @@
+package com.webquanly.dto;
+
+public class UploadSessionRequest {
+    private String filename;
+    private String title;
+    private Long subjectId;
+    private Long size;
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public Long getSubjectId() { return subjectId; }
+    public void setSubjectId(Long subjectId) { this.subjectId = subjectId; }
+
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+}
@@ -0,0 +1,32 @@
+package com.webquanly.dto;
+
+import java.time.LocalDateTime;
+
+public class UploadSessionResponse {
+    private String id;
+    private String filename;
+    private long size;
+    private long receivedBytes;
+    private long maxChunkSize;
+    private LocalDateTime expiresAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public long getReceivedBytes() { return receivedBytes; }
+    public void setReceivedBytes(long receivedBytes) { this.receivedBytes = receivedBytes; }
+
+    public long getMaxChunkSize() { return maxChunkSize; }
+    public void setMaxChunkSize(long maxChunkSize) { this.maxChunkSize = maxChunkSize; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    public boolean isComplete() { return receivedBytes >= size; }
+}
@@ -0,0 +1,121 @@
+package com.webquanly.dto.admin;
+
+public class AdminConversionWorkerStats {
+    private boolean enabled;
+    private int workers;
+    private int maxHeapMb;
+    private int maxJobs;
+    private long jobTimeoutSeconds;
+    private int idle;
+    private int busy;
+    private long started;
+    private long completed;
+    private long failed;
+    private long recycled;
+    private long crashed;
+    private long killed;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getMaxHeapMb() {
+        return maxHeapMb;
+    }
+
+    public void setMaxHeapMb(int maxHeapMb) {
+        this.maxHeapMb = maxHeapMb;
+    }
+
+    public int getMaxJobs() {
+        return maxJobs;
+    }
+
+    public void setMaxJobs(int maxJobs) {
+        this.maxJobs = maxJobs;
+    }
+
+    public long getJobTimeoutSeconds() {
+        return jobTimeoutSeconds;
+    }
+
+    public void setJobTimeoutSeconds(long jobTimeoutSeconds) {
+        this.jobTimeoutSeconds = jobTimeoutSeconds;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public void setIdle(int idle) {
+        this.idle = idle;
+    }
+
+    public int getBusy() {
+        return busy;
+    }
+
+    public void setBusy(int busy) {
+        this.busy = busy;
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public void setStarted(long started) {
+        this.started = started;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getRecycled() {
+        return recycled;
+    }
+
+    public void setRecycled(long recycled) {
+        this.recycled = recycled;
+    }
+
+    public long getCrashed() {
+        return crashed;
+    }
+
+    public void setCrashed(long crashed) {
+        this.crashed = crashed;
+    }
+
+    public long getKilled() {
+        return killed;
+    }
+
+    public void setKilled(long killed) {
+        this.killed = killed;
+    }
+}
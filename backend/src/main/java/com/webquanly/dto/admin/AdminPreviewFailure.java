@@ -0,0 +1,87 @@
+package com.webquanly.dto.admin;
+
+import java.time.LocalDateTime;
+
+public class AdminPreviewFailure {
+    private Long documentId;
+    private String title;
+    private String stage;
+    private int failureCount;
+    private String lastError;
+    private LocalDateTime firstFailedAt;
+    private LocalDateTime lastFailedAt;
+    private LocalDateTime nextRetryAt;
+    private boolean retryDue;
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(int failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getFirstFailedAt() {
+        return firstFailedAt;
+    }
+
+    public void setFirstFailedAt(LocalDateTime firstFailedAt) {
+        this.firstFailedAt = firstFailedAt;
+    }
+
+    public LocalDateTime getLastFailedAt() {
+        return lastFailedAt;
+    }
+
+    public void setLastFailedAt(LocalDateTime lastFailedAt) {
+        this.lastFailedAt = lastFailedAt;
+    }
+
+    public LocalDateTime getNextRetryAt() {
+        return nextRetryAt;
+    }
+
+    public void setNextRetryAt(LocalDateTime nextRetryAt) {
+        this.nextRetryAt = nextRetryAt;
+    }
+
+    public boolean isRetryDue() {
+        return retryDue;
+    }
+
+    public void setRetryDue(boolean retryDue) {
+        this.retryDue = retryDue;
+    }
+}
@@ -0,0 +1,78 @@
+package com.webquanly.dto.admin;
+
+import java.time.LocalDateTime;
+
+public class AdminSearchIndexStatus {
+    private boolean enabled;
+    private boolean rebuilding;
+    private long indexedDocuments;
+    private long pendingUpdates;
+    private long rebuiltDocuments;
+    private LocalDateTime lastRebuildStartedAt;
+    private LocalDateTime lastRebuildFinishedAt;
+    private String lastError;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding;
+    }
+
+    public void setRebuilding(boolean rebuilding) {
+        this.rebuilding = rebuilding;
+    }
+
+    public long getIndexedDocuments() {
+        return indexedDocuments;
+    }
+
+    public void setIndexedDocuments(long indexedDocuments) {
+        this.indexedDocuments = indexedDocuments;
+    }
+
+    public long getPendingUpdates() {
+        return pendingUpdates;
+    }
+
+    public void setPendingUpdates(long pendingUpdates) {
+        this.pendingUpdates = pendingUpdates;
+    }
+
+    public long getRebuiltDocuments() {
+        return rebuiltDocuments;
+    }
+
+    public void setRebuiltDocuments(long rebuiltDocuments) {
+        this.rebuiltDocuments = rebuiltDocuments;
+    }
+
+    public LocalDateTime getLastRebuildStartedAt() {
+        return lastRebuildStartedAt;
+    }
+
+    public void setLastRebuildStartedAt(LocalDateTime lastRebuildStartedAt) {
+        this.lastRebuildStartedAt = lastRebuildStartedAt;
+    }
+
+    public LocalDateTime getLastRebuildFinishedAt() {
+        return lastRebuildFinishedAt;
+    }
+
+    public void setLastRebuildFinishedAt(LocalDateTime lastRebuildFinishedAt) {
+        this.lastRebuildFinishedAt = lastRebuildFinishedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,87 @@
+package com.webquanly.dto.admin;
+
+import java.time.LocalDateTime;
+
+public class AdminStorageMigrationStatus {
+    private boolean running;
+    private long remaining;
+    private long migrated;
+    private long deduplicated;
+    private long skipped;
+    private long failed;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String lastError;
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public void setRemaining(long remaining) {
+        this.remaining = remaining;
+    }
+
+    public long getMigrated() {
+        return migrated;
+    }
+
+    public void setMigrated(long migrated) {
+        this.migrated = migrated;
+    }
+
+    public long getDeduplicated() {
+        return deduplicated;
+    }
+
+    public void setDeduplicated(long deduplicated) {
+        this.deduplicated = deduplicated;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,143 @@
+package com.webquanly.dto.admin;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AdminStorageReconciliationReport {
+    private boolean running;
+    private boolean quarantineEnabled;
+    private long scannedFiles;
+    private long scannedDocuments;
+    private long orphanFiles;
+    private long orphanBytes;
+    private long unreferencedBlobs;
+    private long missingFiles;
+    private long quarantinedFiles;
+    private long quarantinedDocuments;
+    private List<String> orphanKeys = new ArrayList<>();
+    private List<Long> missingDocumentIds = new ArrayList<>();
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String lastError;
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public boolean isQuarantineEnabled() {
+        return quarantineEnabled;
+    }
+
+    public void setQuarantineEnabled(boolean quarantineEnabled) {
+        this.quarantineEnabled = quarantineEnabled;
+    }
+
+    public long getScannedFiles() {
+        return scannedFiles;
+    }
+
+    public void setScannedFiles(long scannedFiles) {
+        this.scannedFiles = scannedFiles;
+    }
+
+    public long getScannedDocuments() {
+        return scannedDocuments;
+    }
+
+    public void setScannedDocuments(long scannedDocuments) {
+        this.scannedDocuments = scannedDocuments;
+    }
+
+    public long getOrphanFiles() {
+        return orphanFiles;
+    }
+
+    public void setOrphanFiles(long orphanFiles) {
+        this.orphanFiles = orphanFiles;
+    }
+
+    public long getOrphanBytes() {
+        return orphanBytes;
+    }
+
+    public void setOrphanBytes(long orphanBytes) {
+        this.orphanBytes = orphanBytes;
+    }
+
+    public long getUnreferencedBlobs() {
+        return unreferencedBlobs;
+    }
+
+    public void setUnreferencedBlobs(long unreferencedBlobs) {
+        this.unreferencedBlobs = unreferencedBlobs;
+    }
+
+    public long getMissingFiles() {
+        return missingFiles;
+    }
+
+    public void setMissingFiles(long missingFiles) {
+        this.missingFiles = missingFiles;
+    }
+
+    public long getQuarantinedFiles() {
+        return quarantinedFiles;
+    }
+
+    public void setQuarantinedFiles(long quarantinedFiles) {
+        this.quarantinedFiles = quarantinedFiles;
+    }
+
+    public long getQuarantinedDocuments() {
+        return quarantinedDocuments;
+    }
+
+    public void setQuarantinedDocuments(long quarantinedDocuments) {
+        this.quarantinedDocuments = quarantinedDocuments;
+    }
+
+    public List<String> getOrphanKeys() {
+        return orphanKeys;
+    }
+
+    public void setOrphanKeys(List<String> orphanKeys) {
+        this.orphanKeys = orphanKeys;
+    }
+
+    public List<Long> getMissingDocumentIds() {
+        return missingDocumentIds;
+    }
+
+    public void setMissingDocumentIds(List<Long> missingDocumentIds) {
+        this.missingDocumentIds = missingDocumentIds;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,42 @@
+package com.webquanly.event;
+
+/**
+ * A document was uploaded or changed in a way readers of the catalogue see: review status,
+ * subject, title or extracted content. Carries the subject and review status it had before the
+ * change (null for a new upload) and after it, so listeners keeping per-subject figures can apply
+ * the difference without reading the row back; when neither changed the event only signals new
+ * content.
+ *
+ * Published inside the changing transaction; listeners that read the row should use
+ * {@code @TransactionalEventListener}.
+ */
+public class DocumentChangedEvent {
+    private final Long documentId;
+    private final Long previousSubjectId;
+    private final String previousReviewStatus;
+    private final Long subjectId;
+    private final String reviewStatus;
+
+    public DocumentChangedEvent(Long documentId, Long previousSubjectId, String previousReviewStatus,
+                                Long subjectId, String reviewStatus) {
+        this.documentId = documentId;
+        this.previousSubjectId = previousSubjectId;
+        this.previousReviewStatus = previousReviewStatus;
+        this.subjectId = subjectId;
+        this.reviewStatus = reviewStatus;
+    }
+
+    public static DocumentChangedEvent uploaded(Long documentId, Long subjectId, String reviewStatus) {
+        return new DocumentChangedEvent(documentId, null, null, subjectId, reviewStatus);
+    }
+
+    public Long getDocumentId() { return documentId; }
+
+    public Long getPreviousSubjectId() { return previousSubjectId; }
+
+    public String getPreviousReviewStatus() { return previousReviewStatus; }
+
+    public Long getSubjectId() { return subjectId; }
+
+    public String getReviewStatus() { return reviewStatus; }
+}
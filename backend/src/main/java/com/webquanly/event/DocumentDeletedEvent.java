@@ -0,0 +1,20 @@
+package com.webquanly.event;
+
+/** A document was deleted, with the subject and review status it had at that point. */
+public class DocumentDeletedEvent {
+    private final Long documentId;
+    private final Long subjectId;
+    private final String reviewStatus;
+
+    public DocumentDeletedEvent(Long documentId, Long subjectId, String reviewStatus) {
+        this.documentId = documentId;
+        this.subjectId = subjectId;
+        this.reviewStatus = reviewStatus;
+    }
+
+    public Long getDocumentId() { return documentId; }
+
+    public Long getSubjectId() { return subjectId; }
+
+    public String getReviewStatus() { return reviewStatus; }
+}
@@ -0,0 +1,12 @@
+package com.webquanly.event;
+
+/** A subject was created or renamed. */
+public class SubjectChangedEvent {
+    private final Long subjectId;
+
+    public SubjectChangedEvent(Long subjectId) {
+        this.subjectId = subjectId;
+    }
+
+    public Long getSubjectId() { return subjectId; }
+}
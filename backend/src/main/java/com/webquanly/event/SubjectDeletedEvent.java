@@ -0,0 +1,15 @@
+package com.webquanly.event;
+
+/**
+ * A subject was deleted. Its documents are left without a subject, each with its own
+ * {@link DocumentChangedEvent}.
+ */
+public class SubjectDeletedEvent {
+    private final Long subjectId;
+
+    public SubjectDeletedEvent(Long subjectId) {
+        this.subjectId = subjectId;
+    }
+
+    public Long getSubjectId() { return subjectId; }
+}
@@ -0,0 +1,15 @@
+package com.webquanly.exception;
+
+public class RenderingOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RenderingOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
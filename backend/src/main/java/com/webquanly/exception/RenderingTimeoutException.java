@@ -0,0 +1,21 @@
+package com.webquanly.exception;
+
+import java.io.IOException;
+
+/**
+ * A rendering job ran past its deadline and was cancelled. It is an {@link IOException} so that
+ * callers treat it like any other conversion failure (placeholder, failure registry).
+ */
+public class RenderingTimeoutException extends IOException {
+
+    private final long timeoutSeconds;
+
+    public RenderingTimeoutException(String message, long timeoutSeconds) {
+        super(message);
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+}
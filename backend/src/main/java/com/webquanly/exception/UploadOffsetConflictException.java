@@ -0,0 +1,16 @@
+package com.webquanly.exception;
+
+/** A chunk was sent for an offset other than the one the upload session is waiting for. */
+public class UploadOffsetConflictException extends RuntimeException {
+
+    private final long expectedOffset;
+
+    public UploadOffsetConflictException(String message, long expectedOffset) {
+        super(message);
+        this.expectedOffset = expectedOffset;
+    }
+
+    public long getExpectedOffset() {
+        return expectedOffset;
+    }
+}
@@ -0,0 +1,129 @@
+package com.webquanly.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Text and embedded metadata read once from a document's file, for the search index and page
+ * counts. {@link #checksum} is the SHA-256 of the file it was read from; duplicates of that file
+ * reuse the row's values instead of parsing again.
+ */
+@Entity
+@Table(name = "tailieu_text")
+public class DocumentText {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "checksum", length = 64)
+    private String checksum;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "content", columnDefinition = "text")
+    private String content;
+
+    @Column(name = "truncated", nullable = false)
+    private boolean truncated;
+
+    @Column(name = "author")
+    private String author;
+
+    @Column(name = "title", length = 500)
+    private String title;
+
+    @Column(name = "page_count")
+    private Integer pageCount;
+
+    @Column(name = "error", columnDefinition = "text")
+    private String error;
+
+    @Column(name = "extracted_at", nullable = false)
+    private LocalDateTime extractedAt;
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public Integer getPageCount() {
+        return pageCount;
+    }
+
+    public void setPageCount(Integer pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getExtractedAt() {
+        return extractedAt;
+    }
+
+    public void setExtractedAt(LocalDateTime extractedAt) {
+        this.extractedAt = extractedAt;
+    }
+}
@@ -0,0 +1,126 @@
+package com.webquanly.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Last failed attempt to render a document for one preview stage (cover image or PDF rendition),
+ * tied to the file fingerprint it failed on.
+ */
+@Entity
+@Table(name = "tailieu_loixemtruoc",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"document_id", "stage"})
+)
+public class PreviewFailure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "document_id", nullable = false, referencedColumnName = "idtailieu")
+    private TaiLieu document;
+
+    @Column(name = "stage", nullable = false, length = 20)
+    private String stage;
+
+    @Column(name = "fingerprint", nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(name = "failure_count", nullable = false)
+    private int failureCount;
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @Column(name = "first_failed_at", nullable = false)
+    private LocalDateTime firstFailedAt;
+
+    @Column(name = "last_failed_at", nullable = false)
+    private LocalDateTime lastFailedAt;
+
+    @Column(name = "next_retry_at", nullable = false)
+    private LocalDateTime nextRetryAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public TaiLieu getDocument() {
+        return document;
+    }
+
+    public void setDocument(TaiLieu document) {
+        this.document = document;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(int failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getFirstFailedAt() {
+        return firstFailedAt;
+    }
+
+    public void setFirstFailedAt(LocalDateTime firstFailedAt) {
+        this.firstFailedAt = firstFailedAt;
+    }
+
+    public LocalDateTime getLastFailedAt() {
+        return lastFailedAt;
+    }
+
+    public void setLastFailedAt(LocalDateTime lastFailedAt) {
+        this.lastFailedAt = lastFailedAt;
+    }
+
+    public LocalDateTime getNextRetryAt() {
+        return nextRetryAt;
+    }
+
+    public void setNextRetryAt(LocalDateTime nextRetryAt) {
+        this.nextRetryAt = nextRetryAt;
+    }
+}
@@ -54,6 +54,21 @@ public class TaiLieu {
     @Column(name = "file")
     private String fileName;
 
+    @Column(name = "tenfilegoc")
+    private String tenFileGoc;
+
+    @Column(name = "kichthuoc")
+    private Long kichThuoc;
+
+    @Column(name = "kieunoidung", length = 100)
+    private String kieuNoiDung;
+
+    @Column(name = "checksum", length = 64)
+    private String checksum;
+
+    @Column(name = "sotrang")
+    private Integer soTrang;
+
     @Column(name = "dangxetchonmon")
     private boolean dangXetChonMon;
 
@@ -69,6 +84,9 @@ public class TaiLieu {
     @Column(name = "nguoikiemduyet")
     private String nguoiKiemDuyet;
 
+    @Column(name = "trangthaibanxemtruoc", length = 20)
+    private String trangThaiBanXemTruoc;
+
     public TaiLieu() {}
 
     public Long getId() { return id; }
@@ -104,6 +122,21 @@ public class TaiLieu {
     public String getFileName() { return fileName; }
     public void setFileName(String fileName) { this.fileName = fileName; }
 
+    public String getTenFileGoc() { return tenFileGoc; }
+    public void setTenFileGoc(String tenFileGoc) { this.tenFileGoc = tenFileGoc; }
+
+    public Long getKichThuoc() { return kichThuoc; }
+    public void setKichThuoc(Long kichThuoc) { this.kichThuoc = kichThuoc; }
+
+    public String getKieuNoiDung() { return kieuNoiDung; }
+    public void setKieuNoiDung(String kieuNoiDung) { this.kieuNoiDung = kieuNoiDung; }
+
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+
+    public Integer getSoTrang() { return soTrang; }
+    public void setSoTrang(Integer soTrang) { this.soTrang = soTrang; }
+
     public boolean isDangXetChonMon() { return dangXetChonMon; }
     public void setDangXetChonMon(boolean dangXetChonMon) { this.dangXetChonMon = dangXetChonMon; }
 
@@ -118,4 +151,7 @@ public class TaiLieu {
 
     public String getNguoiKiemDuyet() { return nguoiKiemDuyet; }
     public void setNguoiKiemDuyet(String nguoiKiemDuyet) { this.nguoiKiemDuyet = nguoiKiemDuyet; }
+
+    public String getTrangThaiBanXemTruoc() { return trangThaiBanXemTruoc; }
+    public void setTrangThaiBanXemTruoc(String trangThaiBanXemTruoc) { this.trangThaiBanXemTruoc = trangThaiBanXemTruoc; }
 }
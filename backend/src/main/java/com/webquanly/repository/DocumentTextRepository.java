@@ -0,0 +1,20 @@
+package com.webquanly.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.webquanly.model.DocumentText;
+
+public interface DocumentTextRepository extends JpaRepository<DocumentText, Long> {
+
+    /** A finished extraction of the same file, done for another document. */
+    Optional<DocumentText> findFirstByChecksumAndStatus(String checksum, String status);
+
+    @Modifying
+    @Query("DELETE FROM DocumentText d WHERE d.documentId = :documentId")
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+}
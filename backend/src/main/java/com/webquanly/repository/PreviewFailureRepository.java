@@ -0,0 +1,30 @@
+package com.webquanly.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.webquanly.model.PreviewFailure;
+
+public interface PreviewFailureRepository extends JpaRepository<PreviewFailure, Long> {
+
+    Optional<PreviewFailure> findByDocument_IdAndStage(Long documentId, String stage);
+
+    @Query("SELECT f FROM PreviewFailure f JOIN FETCH f.document ORDER BY f.lastFailedAt DESC")
+    List<PreviewFailure> findAllWithDocument();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PreviewFailure f WHERE f.document.id = :documentId AND f.stage = :stage")
+    int deleteByDocumentAndStage(@Param("documentId") Long documentId, @Param("stage") String stage);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PreviewFailure f WHERE f.document.id = :documentId")
+    int deleteByDocument(@Param("documentId") Long documentId);
+}
@@ -0,0 +1,30 @@
+package com.webquanly.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.webquanly.model.StoredBlob;
+
+import jakarta.persistence.LockModeType;
+
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    Optional<StoredBlob> findByStorageKey(String storageKey);
+
+    @Query("SELECT b.storageKey FROM StoredBlob b WHERE b.storageKey IN :keys")
+    List<String> findExistingStorageKeys(@Param("keys") Collection<String> keys);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.sha256 = :sha256")
+    Optional<StoredBlob> lockBySha256(@Param("sha256") String sha256);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.storageKey = :storageKey")
+    Optional<StoredBlob> lockByStorageKey(@Param("storageKey") String storageKey);
+}
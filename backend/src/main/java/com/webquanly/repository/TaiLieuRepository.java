@@ -1,14 +1,22 @@
 package com.webquanly.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.webquanly.model.TaiLieu;
 
+import jakarta.persistence.LockModeType;
+
 public interface TaiLieuRepository extends JpaRepository<TaiLieu, Long> {
 
             @Query("SELECT t.monHoc.id AS monHocId, COUNT(t) AS total FROM TaiLieu t " +
@@ -29,6 +37,52 @@ public interface TaiLieuRepository extends JpaRepository<TaiLieu, Long> {
 
     List<TaiLieu> findByTrangThaiKiemDuyetIgnoreCaseOrderByThoiGianDangDesc(String trangThaiKiemDuyet);
 
+    /** Approved (or legacy unset) documents with what a listing shows, newest first. */
+    @Query("SELECT t FROM TaiLieu t LEFT JOIN FETCH t.monHoc LEFT JOIN FETCH t.loaiTaiLieu " +
+            "LEFT JOIN FETCH t.user u LEFT JOIN FETCH u.phanQuyen " +
+            "WHERE t.trangThaiKiemDuyet IS NULL OR upper(t.trangThaiKiemDuyet) = upper(:status) " +
+            "ORDER BY t.thoiGianDang DESC, t.id DESC")
+    List<TaiLieu> findApprovedOrUnsetForListing(@Param("status") String status);
+
+    /**
+     * One page of the listing, keyset on (thoiGianDang, id) descending: rows strictly after the
+     * given position. Rows without an upload time are listed separately, see below.
+     */
+    @Query("SELECT t FROM TaiLieu t LEFT JOIN FETCH t.monHoc LEFT JOIN FETCH t.loaiTaiLieu " +
+            "LEFT JOIN FETCH t.user u LEFT JOIN FETCH u.phanQuyen " +
+            "WHERE t.thoiGianDang IS NOT NULL " +
+            "AND (t.thoiGianDang < :afterTime OR (t.thoiGianDang = :afterTime AND t.id < :afterId)) " +
+            "AND (:subjectId IS NULL OR t.monHoc.id = :subjectId) " +
+            "AND (:typeId IS NULL OR t.loaiTaiLieu.id = :typeId) " +
+            "AND (:status IS NULL OR upper(COALESCE(t.trangThaiKiemDuyet, 'APPROVED')) = :status) " +
+            "ORDER BY t.thoiGianDang DESC, t.id DESC")
+    List<TaiLieu> findListingPage(@Param("afterTime") LocalDateTime afterTime, @Param("afterId") Long afterId,
+                                  @Param("subjectId") Long subjectId, @Param("typeId") Long typeId,
+                                  @Param("status") String status, Pageable pageable);
+
+    /** The given documents with what a listing shows, in no particular order. */
+    @Query("SELECT t FROM TaiLieu t LEFT JOIN FETCH t.monHoc LEFT JOIN FETCH t.loaiTaiLieu " +
+            "LEFT JOIN FETCH t.user u LEFT JOIN FETCH u.phanQuyen WHERE t.id IN :ids")
+    List<TaiLieu> findWithListingDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT t.id FROM TaiLieu t WHERE t.id > :afterId ORDER BY t.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT t.id FROM TaiLieu t WHERE t.monHoc.id = :monHocId")
+    List<Long> findIdsByMonHocId(@Param("monHocId") Long monHocId);
+
+    /** The tail of the listing: legacy rows without an upload time, by id descending. */
+    @Query("SELECT t FROM TaiLieu t LEFT JOIN FETCH t.monHoc LEFT JOIN FETCH t.loaiTaiLieu " +
+            "LEFT JOIN FETCH t.user u LEFT JOIN FETCH u.phanQuyen " +
+            "WHERE t.thoiGianDang IS NULL AND t.id < :afterId " +
+            "AND (:subjectId IS NULL OR t.monHoc.id = :subjectId) " +
+            "AND (:typeId IS NULL OR t.loaiTaiLieu.id = :typeId) " +
+            "AND (:status IS NULL OR upper(COALESCE(t.trangThaiKiemDuyet, 'APPROVED')) = :status) " +
+            "ORDER BY t.id DESC")
+    List<TaiLieu> findUndatedListingPage(@Param("afterId") Long afterId,
+                                         @Param("subjectId") Long subjectId, @Param("typeId") Long typeId,
+                                         @Param("status") String status, Pageable pageable);
+
     List<TaiLieu> findByUserIdUserOrderByThoiGianDangDesc(Long userId);
 
     TaiLieu findTop1ByUserIdUserOrderByThoiGianDangDesc(Long userId);
@@ -56,6 +110,88 @@ public interface TaiLieuRepository extends JpaRepository<TaiLieu, Long> {
         long countApprovedOrUnsetByMonHoc(@Param("monHocId") Long monHocId,
                            @Param("status") String status);
 
+    @Query("SELECT t.id FROM TaiLieu t WHERE t.trangThaiBanXemTruoc = :status")
+    List<Long> findIdsByTrangThaiBanXemTruoc(@Param("status") String status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE TaiLieu t SET t.trangThaiBanXemTruoc = :status WHERE t.id = :id")
+    int updateTrangThaiBanXemTruoc(@Param("id") Long id, @Param("status") String status);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE TaiLieu t SET t.soTrang = :soTrang WHERE t.id = :id")
+    int updateSoTrang(@Param("id") Long id, @Param("soTrang") Integer soTrang);
+
+    /** Sets the page count unless one is recorded already (a PDF rendition's count wins). */
+    @Transactional
+    @Modifying
+    @Query("UPDATE TaiLieu t SET t.soTrang = :soTrang WHERE t.id = :id AND t.soTrang IS NULL")
+    int fillSoTrang(@Param("id") Long id, @Param("soTrang") Integer soTrang);
+
+    /** Documents never run through text extraction, by id. */
+    @Query("SELECT t.id FROM TaiLieu t WHERE t.fileName IS NOT NULL AND t.id > :afterId " +
+            "AND NOT EXISTS (SELECT 1 FROM DocumentText d WHERE d.documentId = t.id) ORDER BY t.id")
+    List<Long> findIdsWithoutTextAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /** Documents stored before size, content type and checksum were recorded at upload, by id. */
+    @Query("SELECT t.id FROM TaiLieu t WHERE t.fileName IS NOT NULL " +
+            "AND (t.kichThuoc IS NULL OR t.kieuNoiDung IS NULL OR t.checksum IS NULL) " +
+            "AND t.id > :afterId ORDER BY t.id")
+    List<Long> findIdsMissingFileMetadataAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /** Fills the recorded file metadata, keeping values that are already set. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE TaiLieu t SET t.kichThuoc = COALESCE(t.kichThuoc, :size), " +
+            "t.kieuNoiDung = COALESCE(t.kieuNoiDung, :contentType), " +
+            "t.checksum = COALESCE(t.checksum, :checksum), " +
+            "t.soTrang = COALESCE(t.soTrang, :soTrang) WHERE t.id = :id")
+    int fillFileMetadata(@Param("id") Long id, @Param("size") Long size,
+                         @Param("contentType") String contentType, @Param("checksum") String checksum,
+                         @Param("soTrang") Integer soTrang);
+
+    /** Which of the given storage keys some document points at. */
+    @Query("SELECT DISTINCT t.fileName FROM TaiLieu t WHERE t.fileName IN :keys")
+    List<String> findReferencedFileNames(@Param("keys") Collection<String> keys);
+
+    @Query("SELECT t.id AS id, t.fileName AS fileName, m.id AS subjectId FROM TaiLieu t LEFT JOIN t.monHoc m " +
+            "WHERE t.fileName IS NOT NULL AND t.id > :afterId ORDER BY t.id")
+    List<StoredFileRef> findStoredFilesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Takes a published document back into review, unless its file was replaced in the meantime;
+     * rejected and already pending documents are left alone.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE TaiLieu t SET t.trangThaiKiemDuyet = :status, t.lyDoKiemDuyet = :reason " +
+            "WHERE t.id = :id AND t.fileName = :fileName " +
+            "AND (t.trangThaiKiemDuyet IS NULL OR UPPER(t.trangThaiKiemDuyet) = 'APPROVED')")
+    int markForReview(@Param("id") Long id, @Param("fileName") String fileName,
+                      @Param("status") String status, @Param("reason") String reason);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM TaiLieu t WHERE t.id = :id")
+    Optional<TaiLieu> lockById(@Param("id") Long id);
+
+    /** Documents whose file still has a flat (pre-sharding) storage key, by id. */
+    @Query("SELECT t.id FROM TaiLieu t WHERE t.fileName IS NOT NULL AND t.fileName NOT LIKE '%/%' " +
+            "AND t.id > :afterId ORDER BY t.id")
+    List<Long> findFlatStorageIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT COUNT(t) FROM TaiLieu t WHERE t.fileName IS NOT NULL AND t.fileName NOT LIKE '%/%'")
+    long countFlatStorage();
+
+    @Modifying
+    @Query("UPDATE TaiLieu t SET t.fileName = :newKey WHERE t.fileName = :oldKey")
+    int updateFileName(@Param("oldKey") String oldKey, @Param("newKey") String newKey);
+
+    interface StoredFileRef {
+        Long getId();
+        String getFileName();
+        Long getSubjectId();
+    }
 
     interface MonHocCount {
         Long getMonHocId();
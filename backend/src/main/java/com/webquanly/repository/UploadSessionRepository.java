@@ -0,0 +1,25 @@
+package com.webquanly.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.webquanly.model.UploadSession;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    /** Moves the received offset forward, unless another chunk got there first. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.receivedBytes = :received, s.updatedAt = :now " +
+            "WHERE s.id = :id AND s.receivedBytes = :expected")
+    int advance(@Param("id") String id, @Param("expected") long expected,
+                @Param("received") long received, @Param("now") LocalDateTime now);
+
+    List<UploadSession> findByUpdatedAtBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,99 @@
+package com.webquanly.search;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+/**
+ * Counts matching documents per facet value from doc values, in one pass over the matches of the
+ * unfiltered query: a document counts towards a dimension when it passes the filters of every
+ * other dimension.
+ */
+class FacetCollector extends SimpleCollector {
+    private final Long subjectFilter;
+    private final Long typeFilter;
+    private final String statusFilter;
+    private final long todayEpochDay;
+
+    private final Map<Long, Long> subjects = new HashMap<>();
+    private final Map<Long, Long> types = new HashMap<>();
+    private final Map<String, Long> statuses = new HashMap<>();
+    private final Map<UploadAge, Long> uploaded = new EnumMap<>(UploadAge.class);
+    private long total;
+
+    private NumericDocValues subjectValues;
+    private NumericDocValues typeValues;
+    private SortedDocValues statusValues;
+    private NumericDocValues uploadedValues;
+    // status names of the current segment, looked up once per ordinal
+    private String[] statusNames;
+
+    FacetCollector(Long subjectFilter, Long typeFilter, String statusFilter, long todayEpochDay) {
+        this.subjectFilter = subjectFilter;
+        this.typeFilter = typeFilter;
+        this.statusFilter = statusFilter;
+        this.todayEpochDay = todayEpochDay;
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+        subjectValues = DocValues.getNumeric(context.reader(), SearchIndex.FIELD_SUBJECT_ID);
+        typeValues = DocValues.getNumeric(context.reader(), SearchIndex.FIELD_TYPE_ID);
+        statusValues = DocValues.getSorted(context.reader(), SearchIndex.FIELD_STATUS);
+        uploadedValues = DocValues.getNumeric(context.reader(), SearchIndex.FIELD_UPLOADED_DAY);
+        statusNames = new String[statusValues.getValueCount()];
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        Long subject = subjectValues.advanceExact(doc) ? subjectValues.longValue() : null;
+        Long type = typeValues.advanceExact(doc) ? typeValues.longValue() : null;
+        String status = statusValues.advanceExact(doc) ? statusName(statusValues.ordValue()) : null;
+
+        boolean subjectMatches = subjectFilter == null || subjectFilter.equals(subject);
+        boolean typeMatches = typeFilter == null || typeFilter.equals(type);
+        boolean statusMatches = statusFilter == null || Objects.equals(statusFilter, status);
+
+        if (typeMatches && statusMatches) {
+            subjects.merge(subject, 1L, Long::sum);
+        }
+        if (subjectMatches && statusMatches) {
+            types.merge(type, 1L, Long::sum);
+        }
+        if (subjectMatches && typeMatches) {
+            statuses.merge(status, 1L, Long::sum);
+        }
+        if (subjectMatches && typeMatches && statusMatches) {
+            total++;
+            Long day = uploadedValues.advanceExact(doc) ? uploadedValues.longValue() : null;
+            uploaded.merge(UploadAge.of(day, todayEpochDay), 1L, Long::sum);
+        }
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return ScoreMode.COMPLETE_NO_SCORES;
+    }
+
+    FacetCounts result() {
+        return new FacetCounts(total, subjects, types, statuses, uploaded);
+    }
+
+    private String statusName(int ord) throws IOException {
+        String name = statusNames[ord];
+        if (name == null) {
+            name = statusValues.lookupOrd(ord).utf8ToString();
+            statusNames[ord] = name;
+        }
+        return name;
+    }
+}
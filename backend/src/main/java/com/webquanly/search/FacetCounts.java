@@ -0,0 +1,16 @@
+package com.webquanly.search;
+
+import java.util.Map;
+
+/**
+ * Document counts per subject, type, review status and upload age for a query. Each dimension is
+ * counted with the filters on the other dimensions applied but not its own, so the counts say what
+ * choosing another value would return; {@code total} has every filter applied. Documents without
+ * a subject or type are counted under a null key.
+ */
+public record FacetCounts(long total,
+                          Map<Long, Long> subjects,
+                          Map<Long, Long> types,
+                          Map<String, Long> statuses,
+                          Map<UploadAge, Long> uploaded) {
+}
@@ -0,0 +1,17 @@
+package com.webquanly.search;
+
+import java.time.LocalDate;
+
+/** What the search index keeps of a document. Filter fields may be null. */
+public record IndexedDocument(long id,
+                              String title,
+                              String description,
+                              String subjectName,
+                              String uploaderName,
+                              String author,
+                              String content,
+                              Long subjectId,
+                              Long typeId,
+                              String reviewStatus,
+                              LocalDate uploadedOn) {
+}
@@ -0,0 +1,118 @@
+package com.webquanly.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+
+/**
+ * Builds a short HTML fragment of a stored field around the first query match, with matches in
+ * {@code <mark>} and everything else escaped. The text is run through the index analyzer, so
+ * "giai tich" marks "Giải tích" in the original.
+ */
+final class SearchHighlighter {
+    private static final String ELLIPSIS = "…";
+
+    private final Analyzer analyzer;
+
+    SearchHighlighter(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * @param prefix a term matched by prefix (the last, possibly unfinished, query word), or null
+     * @return the fragment, or null when nothing in the text matches
+     */
+    String highlight(String field, String text, Set<String> terms, String prefix, int fragmentChars) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        List<int[]> matches = new ArrayList<>();
+        int windowStart = -1;
+        int windowEnd = -1;
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offset = stream.addAttribute(OffsetAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                if (windowEnd >= 0 && offset.startOffset() >= windowEnd) {
+                    break;
+                }
+                String value = term.toString();
+                if (!terms.contains(value) && (prefix == null || !value.startsWith(prefix))) {
+                    continue;
+                }
+                if (windowStart < 0) {
+                    windowStart = fragmentStart(text, offset.startOffset(), fragmentChars);
+                    windowEnd = Math.min(text.length(), windowStart + fragmentChars);
+                }
+                if (offset.endOffset() <= windowEnd) {
+                    matches.add(new int[] {offset.startOffset(), offset.endOffset()});
+                }
+            }
+            stream.end();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (matches.isEmpty()) {
+            return null;
+        }
+        windowEnd = fragmentEnd(text, windowEnd, matches.get(matches.size() - 1)[1]);
+        StringBuilder html = new StringBuilder(fragmentChars + 32);
+        if (windowStart > 0) {
+            html.append(ELLIPSIS);
+        }
+        int position = windowStart;
+        for (int[] match : matches) {
+            escape(text, position, match[0], html);
+            html.append("<mark>");
+            escape(text, match[0], match[1], html);
+            html.append("</mark>");
+            position = match[1];
+        }
+        escape(text, position, windowEnd, html);
+        if (windowEnd < text.length()) {
+            html.append(ELLIPSIS);
+        }
+        return html.toString();
+    }
+
+    // a little context before the match, starting on a word boundary
+    private static int fragmentStart(String text, int matchStart, int fragmentChars) {
+        int start = Math.max(0, matchStart - fragmentChars / 4);
+        if (start == 0) {
+            return 0;
+        }
+        int space = text.indexOf(' ', start);
+        return space >= 0 && space < matchStart ? space + 1 : matchStart;
+    }
+
+    private static int fragmentEnd(String text, int end, int lastMatchEnd) {
+        if (end >= text.length()) {
+            return text.length();
+        }
+        int space = text.lastIndexOf(' ', end);
+        return space >= lastMatchEnd ? space : end;
+    }
+
+    private static void escape(String text, int from, int to, StringBuilder out) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                case '\n', '\r', '\t' -> out.append(' ');
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.webquanly.search;
+
+import java.util.Map;
+
+/** A matching document id with its score and highlighted fragments by field. */
+public record SearchHit(long documentId, float score, Map<String, String> highlights) {
+}
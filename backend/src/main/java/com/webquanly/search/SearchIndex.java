@@ -0,0 +1,346 @@
+package com.webquanly.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Lucene index of documents on local disk. Text fields are folded (see {@link SearchAnalyzer});
+ * every query word has to match in at least one field, title and subject weighing most, and the
+ * last word also matches as a prefix so results follow typing.
+ *
+ * Full rebuilds run in place: documents are stamped with a generation, a rebuild writes every row
+ * under a new one and then drops what is left of older generations, so searches keep answering
+ * while it runs. A rebuild that did not finish is detected from the commit data on next start.
+ */
+public class SearchIndex implements Closeable {
+    static final String FIELD_ID = "id";
+    public static final String FIELD_TITLE = "title";
+    public static final String FIELD_DESCRIPTION = "description";
+    public static final String FIELD_SUBJECT = "subject";
+    public static final String FIELD_UPLOADER = "uploader";
+    public static final String FIELD_AUTHOR = "author";
+    public static final String FIELD_CONTENT = "content";
+    static final String FIELD_SUBJECT_ID = "subjectId";
+    static final String FIELD_TYPE_ID = "typeId";
+    static final String FIELD_STATUS = "status";
+    static final String FIELD_UPLOADED_DAY = "uploadedDay";
+    static final String FIELD_GENERATION = "generation";
+
+    // bump when fields or analysis change; an index written with another value is rebuilt
+    private static final String SCHEMA_VERSION = "3";
+    private static final String COMMIT_SCHEMA = "schema";
+    private static final String COMMIT_GENERATION = "generation";
+    private static final String COMMIT_BUILT_GENERATION = "builtGeneration";
+
+    private static final Map<String, Float> FIELD_BOOSTS = new LinkedHashMap<>();
+    static {
+        FIELD_BOOSTS.put(FIELD_TITLE, 4f);
+        FIELD_BOOSTS.put(FIELD_SUBJECT, 2f);
+        FIELD_BOOSTS.put(FIELD_UPLOADER, 1.5f);
+        FIELD_BOOSTS.put(FIELD_AUTHOR, 1.5f);
+        FIELD_BOOSTS.put(FIELD_DESCRIPTION, 1f);
+        FIELD_BOOSTS.put(FIELD_CONTENT, 0.5f);
+    }
+    private static final List<String> HIGHLIGHT_FIELDS = List.of(FIELD_TITLE, FIELD_DESCRIPTION, FIELD_CONTENT);
+    private static final int PREFIX_MIN_LENGTH = 2;
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final int FRAGMENT_CHARS = 160;
+
+    private final SearchAnalyzer analyzer = new SearchAnalyzer();
+    private final SearchHighlighter highlighter = new SearchHighlighter(analyzer);
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final boolean complete;
+    private volatile long generation;
+    private volatile long builtGeneration;
+
+    public SearchIndex(Path path) throws IOException {
+        directory = FSDirectory.open(path);
+        Map<String, String> commitData = DirectoryReader.indexExists(directory)
+                ? SegmentInfos.readLatestCommit(directory).getUserData()
+                : Map.of();
+        boolean sameSchema = SCHEMA_VERSION.equals(commitData.get(COMMIT_SCHEMA));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(sameSchema ? IndexWriterConfig.OpenMode.CREATE_OR_APPEND : IndexWriterConfig.OpenMode.CREATE);
+        writer = new IndexWriter(directory, config);
+        generation = sameSchema ? parseLong(commitData.get(COMMIT_GENERATION)) : 0L;
+        builtGeneration = sameSchema ? parseLong(commitData.get(COMMIT_BUILT_GENERATION)) : -1L;
+        complete = sameSchema && builtGeneration == generation;
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    /** False when the index is new, from another schema, or its last rebuild was interrupted. */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int documentCount() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /** Starts a full rebuild: documents written from now on belong to the new generation. */
+    public long beginRebuild() {
+        generation = Math.max(generation, builtGeneration) + 1;
+        return generation;
+    }
+
+    /** Drops documents not rewritten since {@link #beginRebuild()} and records the rebuild as done. */
+    public void finishRebuild(long rebuiltGeneration) throws IOException {
+        BooleanQuery stale = new BooleanQuery.Builder()
+                .add(new MatchAllDocsQuery(), Occur.MUST)
+                .add(new TermQuery(new Term(FIELD_GENERATION, Long.toString(rebuiltGeneration))), Occur.MUST_NOT)
+                .build();
+        writer.deleteDocuments(stale);
+        builtGeneration = rebuiltGeneration;
+        commit();
+    }
+
+    public void upsert(IndexedDocument document) throws IOException {
+        Document doc = new Document();
+        String id = Long.toString(document.id());
+        doc.add(new StringField(FIELD_ID, id, Field.Store.YES));
+        addText(doc, FIELD_TITLE, document.title());
+        addText(doc, FIELD_DESCRIPTION, document.description());
+        addText(doc, FIELD_SUBJECT, document.subjectName());
+        addText(doc, FIELD_UPLOADER, document.uploaderName());
+        addText(doc, FIELD_AUTHOR, document.author());
+        addText(doc, FIELD_CONTENT, document.content());
+        addKeyword(doc, FIELD_SUBJECT_ID, document.subjectId());
+        addKeyword(doc, FIELD_TYPE_ID, document.typeId());
+        String status = document.reviewStatus() == null ? null : document.reviewStatus().toUpperCase(Locale.ROOT);
+        addKeyword(doc, FIELD_STATUS, status);
+        // doc values for the facet counts
+        addNumber(doc, FIELD_SUBJECT_ID, document.subjectId());
+        addNumber(doc, FIELD_TYPE_ID, document.typeId());
+        addNumber(doc, FIELD_UPLOADED_DAY, document.uploadedOn() == null ? null : document.uploadedOn().toEpochDay());
+        if (status != null) {
+            doc.add(new SortedDocValuesField(FIELD_STATUS, new BytesRef(status)));
+        }
+        doc.add(new StringField(FIELD_GENERATION, Long.toString(generation), Field.Store.NO));
+        writer.updateDocument(new Term(FIELD_ID, id), doc);
+    }
+
+    public void delete(Collection<Long> documentIds) throws IOException {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+        Term[] terms = documentIds.stream()
+                .map(id -> new Term(FIELD_ID, Long.toString(id)))
+                .toArray(Term[]::new);
+        writer.deleteDocuments(terms);
+    }
+
+    /** Makes changes durable; they are visible to searches after {@link #refresh()}. */
+    public void commit() throws IOException {
+        Map<String, String> commitData = new HashMap<>();
+        commitData.put(COMMIT_SCHEMA, SCHEMA_VERSION);
+        commitData.put(COMMIT_GENERATION, Long.toString(generation));
+        commitData.put(COMMIT_BUILT_GENERATION, Long.toString(builtGeneration));
+        writer.setLiveCommitData(commitData.entrySet());
+        writer.commit();
+    }
+
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    public SearchResult search(SearchQuery request) throws IOException {
+        List<String> terms = analyze(request.text());
+        if (terms.isEmpty()) {
+            return new SearchResult(0, true, List.of());
+        }
+        String prefix = prefixOf(terms);
+        BooleanQuery.Builder query = textQuery(terms, prefix);
+        addFilter(query, FIELD_SUBJECT_ID, request.subjectId());
+        addFilter(query, FIELD_TYPE_ID, request.typeId());
+        addFilter(query, FIELD_STATUS, request.reviewStatus());
+
+        Set<String> termSet = new LinkedHashSet<>(terms);
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs top = searcher.search(query.build(), request.offset() + request.limit());
+            StoredFields storedFields = searcher.storedFields();
+            List<SearchHit> hits = new ArrayList<>();
+            ScoreDoc[] scoreDocs = top.scoreDocs;
+            for (int i = request.offset(); i < scoreDocs.length; i++) {
+                Document stored = storedFields.document(scoreDocs[i].doc);
+                Map<String, String> highlights = new LinkedHashMap<>();
+                for (String field : HIGHLIGHT_FIELDS) {
+                    String fragment = highlighter.highlight(field, stored.get(field), termSet, prefix, FRAGMENT_CHARS);
+                    if (fragment != null) {
+                        highlights.put(field, fragment);
+                    }
+                }
+                hits.add(new SearchHit(Long.parseLong(stored.get(FIELD_ID)), scoreDocs[i].score, highlights));
+            }
+            return new SearchResult(top.totalHits.value,
+                    top.totalHits.relation == TotalHits.Relation.EQUAL_TO, hits);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Facet counts for the documents matching {@code request}; blank text matches every document.
+     * Offset and limit are ignored. Counting reads doc values only, never stored fields.
+     */
+    public FacetCounts facets(SearchQuery request, LocalDate today) throws IOException {
+        Query query;
+        if (request.text() == null || request.text().isBlank()) {
+            query = new MatchAllDocsQuery();
+        } else {
+            List<String> terms = analyze(request.text());
+            if (terms.isEmpty()) {
+                return new FacetCounts(0, Map.of(), Map.of(), Map.of(), Map.of());
+            }
+            query = textQuery(terms, prefixOf(terms)).build();
+        }
+        FacetCollector collector = new FacetCollector(request.subjectId(), request.typeId(),
+                request.reviewStatus() == null ? null : request.reviewStatus().toUpperCase(Locale.ROOT),
+                today.toEpochDay());
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            searcher.search(query, collector);
+            return collector.result();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private static String prefixOf(List<String> terms) {
+        String last = terms.get(terms.size() - 1);
+        return last.length() >= PREFIX_MIN_LENGTH ? last : null;
+    }
+
+    /** Every word has to match somewhere; phrases add to the score. */
+    private static BooleanQuery.Builder textQuery(List<String> terms, String prefix) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            List<Query> alternatives = new ArrayList<>();
+            FIELD_BOOSTS.forEach((field, boost) ->
+                    alternatives.add(new BoostQuery(new TermQuery(new Term(field, term)), boost)));
+            if (term.equals(prefix)) {
+                alternatives.add(new BoostQuery(new PrefixQuery(new Term(FIELD_TITLE, term)), 1f));
+                alternatives.add(new BoostQuery(new PrefixQuery(new Term(FIELD_SUBJECT, term)), 0.5f));
+            }
+            query.add(new DisjunctionMaxQuery(alternatives, 0.1f), Occur.MUST);
+        }
+        if (terms.size() > 1) {
+            String[] phrase = terms.toArray(String[]::new);
+            query.add(new BoostQuery(new PhraseQuery(1, FIELD_TITLE, phrase), 3f), Occur.SHOULD);
+            query.add(new BoostQuery(new PhraseQuery(2, FIELD_CONTENT, phrase), 1f), Occur.SHOULD);
+        }
+        return query;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            searcherManager.close();
+            commit();
+        } finally {
+            writer.close();
+            directory.close();
+        }
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        try (TokenStream stream = analyzer.tokenStream(FIELD_TITLE, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return terms;
+    }
+
+    private static void addText(Document doc, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            doc.add(new TextField(field, value, Field.Store.YES));
+        }
+    }
+
+    private static void addNumber(Document doc, String field, Long value) {
+        if (value != null) {
+            doc.add(new NumericDocValuesField(field, value));
+        }
+    }
+
+    private static void addKeyword(Document doc, String field, Object value) {
+        if (value != null) {
+            doc.add(new StringField(field, value.toString(), Field.Store.NO));
+        }
+    }
+
+    private static void addFilter(BooleanQuery.Builder query, String field, Object value) {
+        if (value != null) {
+            query.add(new TermQuery(new Term(field, value.toString())), Occur.FILTER);
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value == null ? 0L : Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            return 0L;
+        }
+    }
+}
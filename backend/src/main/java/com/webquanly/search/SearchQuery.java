@@ -0,0 +1,7 @@
+package com.webquanly.search;
+
+/**
+ * Free text plus optional filters. {@code reviewStatus} null means any status.
+ */
+public record SearchQuery(String text, Long subjectId, Long typeId, String reviewStatus, int offset, int limit) {
+}
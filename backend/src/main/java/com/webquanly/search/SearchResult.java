@@ -0,0 +1,10 @@
+package com.webquanly.search;
+
+import java.util.List;
+
+/**
+ * One page of hits, best first. {@code total} is exact unless {@code totalExact} is false, in which
+ * case it is a lower bound (large result sets are not counted to the end).
+ */
+public record SearchResult(long total, boolean totalExact, List<SearchHit> hits) {
+}
@@ -0,0 +1,24 @@
+package com.webquanly.search;
+
+/** How long ago a document was uploaded, in the buckets the facet counts use. */
+public enum UploadAge {
+    LAST_7_DAYS,
+    LAST_30_DAYS,
+    LAST_12_MONTHS,
+    OLDER,
+    UNKNOWN;
+
+    static UploadAge of(Long uploadedEpochDay, long todayEpochDay) {
+        if (uploadedEpochDay == null) {
+            return UNKNOWN;
+        }
+        long age = todayEpochDay - uploadedEpochDay;
+        if (age < 7) {
+            return LAST_7_DAYS;
+        }
+        if (age < 30) {
+            return LAST_30_DAYS;
+        }
+        return age < 365 ? LAST_12_MONTHS : OLDER;
+    }
+}
@@ -0,0 +1,56 @@
+package com.webquanly.search;
+
+import java.io.IOException;
+import java.text.Normalizer;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+/**
+ * Strips Vietnamese diacritics from terms ("Giải tích" and "giai tich" index the same), including
+ * đ, which has no decomposition. Works on precomposed and decomposed input alike; ASCII terms
+ * pass through untouched.
+ */
+public final class VietnameseFoldingFilter extends TokenFilter {
+    private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+
+    public VietnameseFoldingFilter(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (!input.incrementToken()) {
+            return false;
+        }
+        char[] buffer = termAttribute.buffer();
+        int length = termAttribute.length();
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] >= 0x80) {
+                String folded = fold(new String(buffer, 0, length));
+                termAttribute.setEmpty().append(folded);
+                break;
+            }
+        }
+        return true;
+    }
+
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c == 'đ') {
+                c = 'd';
+            } else if (c == 'Đ') {
+                c = 'D';
+            }
+            folded.append(c);
+        }
+        return folded.toString();
+    }
+}
@@ -12,6 +12,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +21,7 @@ import com.webquanly.dto.admin.AdminDocumentSummary;
 import com.webquanly.dto.admin.AdminOverviewResponse;
 import com.webquanly.dto.admin.AdminUserSummary;
 import com.webquanly.dto.admin.AdminUserUpdateRequest;
+import com.webquanly.event.DocumentChangedEvent;
 import com.webquanly.model.BinhLuan;
 import com.webquanly.model.PhanQuyen;
 import com.webquanly.model.TaiLieu;
@@ -58,6 +60,9 @@ public class AdminService {
     @Autowired
     private TaiLieuReportRepository taiLieuReportRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public boolean isAdmin(String email) {
         if (email == null || email.isBlank()) {
             return false;
@@ -173,9 +178,13 @@ public class AdminService {
         taiLieu.setThoiGianKiemDuyet(now);
 
         if ("APPROVE".equals(normalizedAction) || "APPROVED".equals(normalizedAction)) {
+            String previousStatus = taiLieu.getTrangThaiKiemDuyet();
             taiLieu.setTrangThaiKiemDuyet(DocumentService.REVIEW_APPROVED);
             taiLieu.setLyDoKiemDuyet(null);
             taiLieuRepository.save(taiLieu);
+            Long subjectId = taiLieu.getMonHoc() != null ? taiLieu.getMonHoc().getId() : null;
+            eventPublisher.publishEvent(new DocumentChangedEvent(taiLieu.getId(),
+                    subjectId, previousStatus, subjectId, DocumentService.REVIEW_APPROVED));
             notificationService.notifyDocumentReviewApproved(taiLieu);
             return;
         }
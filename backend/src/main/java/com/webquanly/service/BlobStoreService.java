@@ -0,0 +1,331 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.webquanly.model.StoredBlob;
+import com.webquanly.repository.StoredBlobRepository;
+import com.webquanly.storage.BlobInfo;
+import com.webquanly.storage.BlobStorage;
+
+/**
+ * Content-addressed store for uploaded documents. Each distinct content is kept once as
+ * {@code ab/cd/<sha256>.<ext>} in the document {@link BlobStorage} (sharded by the first two bytes
+ * of the hash so no directory grows too large) and counted in {@code tailieu_blob}; documents
+ * point at it through {@code tailieu.file}. Files stored before sharding keep a flat key until
+ * {@link StorageMigrationService} moves them: {@code <sha256>.<ext>} blobs, and legacy
+ * {@code <millis>_<name>} files that have no blob row and are owned by their single document.
+ */
+@Service
+public class BlobStoreService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlobStoreService.class);
+
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+    private static final Pattern FLAT_BLOB_KEY = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,10})?");
+
+    private final StoredBlobRepository storedBlobRepository;
+    private final BlobStorage documentStorage;
+    private final TransactionTemplate transactionTemplate;
+    // after a commit the finished transaction is still bound to the thread; joining it would not commit
+    private final TransactionTemplate afterCommitTransaction;
+    // flat keys moved by the running migration, for readers that loaded a document before the move
+    private final Map<String, String> relocatedKeys = new ConcurrentHashMap<>();
+    // background job walking the whole store; the migration and the reconciliation must not overlap
+    private final AtomicReference<String> maintenance = new AtomicReference<>();
+
+    public BlobStoreService(StoredBlobRepository storedBlobRepository,
+                            @Qualifier("documentStorage") BlobStorage documentStorage,
+                            PlatformTransactionManager transactionManager) {
+        this.storedBlobRepository = storedBlobRepository;
+        this.documentStorage = documentStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.afterCommitTransaction = new TransactionTemplate(transactionManager);
+        this.afterCommitTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * A stored upload: the key to save in {@code tailieu.file}, and whether an identical file was
+     * already there (its previews and PDF rendition can then be reused).
+     */
+    public record StoredFile(String storageKey, String sha256, long size, boolean duplicate) {}
+
+    public BlobStorage getStorage() {
+        return documentStorage;
+    }
+
+    /**
+     * Local path of a stored file, without fetching it: the file itself on local storage, the
+     * place of its cached copy otherwise. Derived files (the PDF rendition) are kept next to it.
+     */
+    public Path resolve(String storageKey) {
+        return documentStorage.localPath(currentKey(storageKey));
+    }
+
+    /** Local file with the content, fetched from remote storage when there is no copy yet. */
+    public Path localFile(String storageKey) throws IOException {
+        return documentStorage.materialize(currentKey(storageKey));
+    }
+
+    public Optional<BlobInfo> stat(String storageKey) throws IOException {
+        return documentStorage.stat(currentKey(storageKey));
+    }
+
+    public Resource openResource(String storageKey) throws IOException {
+        return documentStorage.resource(currentKey(storageKey));
+    }
+
+    /**
+     * Flat keys whose file is gone fall back to where the migration moved it, so reads keep
+     * working while {@code tailieu.file} is being rewritten.
+     */
+    private String currentKey(String storageKey) {
+        if (isSharded(storageKey) || Files.exists(documentStorage.localPath(storageKey))) {
+            return storageKey;
+        }
+        String relocated = relocatedKeys.get(storageKey);
+        if (relocated != null) {
+            return relocated;
+        }
+        Matcher flatBlob = FLAT_BLOB_KEY.matcher(storageKey);
+        if (flatBlob.matches()) {
+            return shardedKey(flatBlob.group(1), flatBlob.group(2) == null ? "" : flatBlob.group(2).substring(1));
+        }
+        return storageKey;
+    }
+
+    public static boolean isSharded(String storageKey) {
+        return storageKey.indexOf('/') >= 0;
+    }
+
+    public String shardedKey(String sha256, String extension) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + extensionSuffix(extension);
+    }
+
+    void recordRelocation(String oldKey, String newKey) {
+        relocatedKeys.put(oldKey, newKey);
+    }
+
+    /** @return false when another maintenance job holds the store */
+    boolean beginMaintenance(String job) {
+        return maintenance.compareAndSet(null, job);
+    }
+
+    void endMaintenance(String job) {
+        maintenance.compareAndSet(job, null);
+    }
+
+    /**
+     * Writes the stream to a staging file while hashing it, then either stores it as a new blob
+     * or drops it and adds a reference to the existing one.
+     */
+    public StoredFile store(InputStream content, String extension) throws IOException {
+        Path temp = documentStorage.createStagingFile();
+        try {
+            MessageDigest digest = newDigest();
+            long size;
+            try (InputStream hashing = new DigestInputStream(content, digest)) {
+                size = Files.copy(hashing, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String storageKey = shardedKey(sha256, extension);
+            StoredFile stored = register(sha256, storageKey, size, temp);
+            if (!stored.storageKey().equals(storageKey)) {
+                // lost a race against the same content uploaded under another extension
+                deleteQuietly(storageKey);
+            }
+            return stored;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Drops one reference to the file. The blob is deleted with its last reference; legacy files
+     * have a single owner. Runs in the caller's transaction: the row lock only decides whether
+     * this was the last reference, and the file is deleted once that transaction commits, so a
+     * rollback keeps both the row and its file. Until then the last reference leaves the row in
+     * place with no references: the deletion locks it again and gives up when an upload of the
+     * same content has taken it over in between, so that upload never loses its file. Files
+     * derived from the blob (the PDF rendition) go with it.
+     *
+     * A flat key the migration has moved since the caller loaded its document stands for a
+     * reference the migration carried over to the sharded blob, so that blob's row is the one
+     * decremented. Without a row there, the file at the new key may belong to other documents and
+     * is left alone.
+     *
+     * @return true when this was the last reference
+     */
+    @Transactional
+    public boolean release(String storageKey) {
+        if (storageKey == null || storageKey.isBlank()) {
+            return false;
+        }
+        String key = storageKey;
+        Optional<StoredBlob> existing = storedBlobRepository.lockByStorageKey(storageKey);
+        if (existing.isEmpty()) {
+            key = currentKey(storageKey);
+            if (!key.equals(storageKey)) {
+                existing = storedBlobRepository.lockByStorageKey(key);
+                if (existing.isEmpty()) {
+                    LOGGER.warn("Tệp {} đã được chuyển sang {} nhưng không có bản ghi blob, không xóa", storageKey, key);
+                    return false;
+                }
+            }
+        }
+        if (existing.isPresent()) {
+            StoredBlob blob = existing.get();
+            if (blob.getRefCount() > 1) {
+                blob.setRefCount(blob.getRefCount() - 1);
+                return false;
+            }
+            blob.setRefCount(0);
+            String sha256 = blob.getSha256();
+            runAfterCommit(() -> deleteUnreferenced(sha256));
+            return true;
+        }
+        // legacy file: its only document is gone and nothing can store content under its key again
+        String fileKey = currentKey(key);
+        runAfterCommit(() -> deleteWithDerivatives(fileKey));
+        return true;
+    }
+
+    private void deleteUnreferenced(String sha256) {
+        try {
+            afterCommitTransaction.executeWithoutResult(status -> storedBlobRepository.lockBySha256(sha256)
+                    .filter(blob -> blob.getRefCount() <= 0)
+                    .ifPresent(blob -> {
+                        // a failed commit after this leaves the row, and the next upload restores the file
+                        deleteWithDerivatives(currentKey(blob.getStorageKey()));
+                        storedBlobRepository.delete(blob);
+                    }));
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Không thể xóa blob {} không còn được tham chiếu: {}", sha256, ex.getMessage());
+        }
+    }
+
+    private void deleteWithDerivatives(String storageKey) {
+        deleteQuietly(storageKey);
+        Path derivative = PreviewDerivativeService.derivativePathFor(documentStorage.localPath(storageKey));
+        try {
+            Files.deleteIfExists(derivative);
+        } catch (IOException ex) {
+            LOGGER.warn("Không thể xóa tệp {}: {}", derivative, ex.getMessage());
+        }
+    }
+
+    /** Runs the action once the current transaction commits, or right away outside of one. */
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private StoredFile register(String sha256, String storageKey, long size, Path temp) throws IOException {
+        try {
+            try {
+                return transactionTemplate.execute(status -> adopt(sha256, storageKey, size, temp));
+            } catch (DataIntegrityViolationException ex) {
+                // a concurrent upload of the same content inserted the row first; reference it instead
+                LOGGER.debug("Blob {} vừa được tạo bởi lượt tải khác, dùng lại: {}", sha256, ex.getMessage());
+                return transactionTemplate.execute(status -> adopt(sha256, storageKey, size, temp));
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private StoredFile adopt(String sha256, String storageKey, long size, Path temp) {
+        try {
+            Optional<StoredBlob> existing = storedBlobRepository.lockBySha256(sha256);
+            if (existing.isPresent()) {
+                StoredBlob blob = existing.get();
+                if (!documentStorage.exists(blob.getStorageKey())) {
+                    LOGGER.warn("Tệp {} bị mất, khôi phục từ lượt tải lên trùng nội dung", blob.getStorageKey());
+                    documentStorage.store(blob.getStorageKey(), temp);
+                }
+                blob.setRefCount(blob.getRefCount() + 1);
+                return new StoredFile(blob.getStorageKey(), sha256, size, true);
+            }
+            documentStorage.store(storageKey, temp);
+            StoredBlob blob = new StoredBlob();
+            blob.setSha256(sha256);
+            blob.setStorageKey(storageKey);
+            blob.setSize(size);
+            blob.setRefCount(1);
+            blob.setCreatedAt(LocalDateTime.now());
+            storedBlobRepository.saveAndFlush(blob);
+            return new StoredFile(storageKey, sha256, size, false);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private String extensionSuffix(String extension) {
+        if (extension == null) {
+            return "";
+        }
+        String normalized = extension.toLowerCase(Locale.ROOT);
+        return SAFE_EXTENSION.matcher(normalized).matches() ? "." + normalized : "";
+    }
+
+    String sha256Of(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void deleteQuietly(String storageKey) {
+        try {
+            documentStorage.delete(storageKey);
+        } catch (IOException ex) {
+            LOGGER.warn("Không thể xóa tệp {}: {}", storageKey, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.webquanly.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Entry point of a conversion worker process started by {@link ConversionWorkerPool}.
+ *
+ * Requests arrive on stdin and replies go to stdout; see {@link ConversionWorkerPool} for the
+ * framing. stdout is reserved for the channel, so everything else (including library logging) is
+ * sent to stderr, which the pool forwards to the application log.
+ */
+public final class ConversionWorkerMain {
+    static final int HANDSHAKE = 0x57514356;
+    static final String OP_RENDER_PREVIEW = "RENDER_PREVIEW";
+    static final String OP_CONVERT_TO_PDF = "CONVERT_TO_PDF";
+
+    private static final int MAX_ERROR_LENGTH = 4000;
+
+    private ConversionWorkerMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        PrintStream channel = System.out;
+        System.setOut(System.err);
+
+        DocumentConversionService conversion = new DocumentConversionService(
+                Long.getLong("preview.pdf.max-main-memory-mb", 16),
+                System.getProperty("preview.pdf.temp-dir", ""),
+                Integer.getInteger("preview.slides.parallelism", 0),
+                Integer.getInteger("preview.slides.max-in-flight", 0),
+                System.getProperty("preview.slides.image-mode", "JPEG"),
+                Float.parseFloat(System.getProperty("preview.slides.jpeg-quality", "0.85")));
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(channel));
+        out.writeInt(HANDSHAKE);
+        out.flush();
+
+        while (true) {
+            String operation;
+            try {
+                operation = in.readUTF();
+            } catch (EOFException ex) {
+                // the pool closed the channel: recycle or shutdown
+                conversion.shutdown();
+                return;
+            }
+            Path source = Paths.get(in.readUTF());
+            String extension = in.readUTF();
+            String target = in.readUTF();
+            try {
+                byte[] result = handle(conversion, operation, source, extension, target);
+                out.writeBoolean(true);
+                out.writeInt(result.length);
+                out.write(result);
+            } catch (Exception | StackOverflowError ex) {
+                out.writeBoolean(false);
+                out.writeUTF(describe(ex));
+            }
+            out.flush();
+        }
+    }
+
+    private static byte[] handle(DocumentConversionService conversion, String operation, Path source,
+                                 String extension, String target) throws IOException {
+        switch (operation) {
+            case OP_RENDER_PREVIEW:
+                if ("pdf".equals(extension)) {
+                    return conversion.renderPdfPreview(source);
+                }
+                return conversion.renderPreview(Files.readAllBytes(source), extension);
+            case OP_CONVERT_TO_PDF:
+                Files.write(Paths.get(target), conversion.convertToPdf(Files.readAllBytes(source), extension));
+                return new byte[0];
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private static String describe(Throwable error) {
+        String message = error.getClass().getSimpleName() + (error.getMessage() != null ? ": " + error.getMessage() : "");
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,394 @@
+package com.webquanly.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import com.webquanly.dto.admin.AdminConversionWorkerStats;
+import com.webquanly.exception.RenderingTimeoutException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional pool of local worker JVMs that run docx4j, FOP and POI conversions outside the web
+ * process, so that a huge document can only exhaust the heap of its own worker.
+ *
+ * Each worker runs {@link ConversionWorkerMain} and talks over its stdin/stdout: a request is four
+ * UTF strings (operation, source path, extension, target path) and a reply is a boolean followed
+ * by either a length-prefixed byte array or an error message. Files are passed by path, so large
+ * documents never travel through the channel.
+ *
+ * Workers are started on first use, recycled after {@code conversion.workers.max-jobs} jobs and
+ * replaced when they die. A watchdog kills a worker whose caller was interrupted (for example by
+ * the {@link RenderingScheduler} deadline) or that exceeds {@code conversion.workers.job-timeout-seconds}.
+ */
+@Service
+public class ConversionWorkerPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversionWorkerPool.class);
+
+    private static final String FAT_JAR_LAUNCHER = "org.springframework.boot.loader.PropertiesLauncher";
+    private static final long WATCHDOG_PERIOD_MILLIS = 200;
+    private static final long STARTUP_TIMEOUT_SECONDS = 60;
+    private static final String[] FORWARDED_PROPERTIES = {
+            "preview.pdf.max-main-memory-mb",
+            "preview.pdf.temp-dir",
+            "preview.slides.parallelism",
+            "preview.slides.max-in-flight",
+            "preview.slides.image-mode",
+            "preview.slides.jpeg-quality"
+    };
+
+    private final Environment environment;
+
+    @Value("${conversion.workers.enabled:false}")
+    private boolean enabled;
+
+    @Value("${conversion.workers.count:2}")
+    private int workerCount;
+
+    @Value("${conversion.workers.max-heap-mb:768}")
+    private int maxHeapMb;
+
+    @Value("${conversion.workers.max-jobs:50}")
+    private int maxJobs;
+
+    @Value("${conversion.workers.job-timeout-seconds:120}")
+    private long jobTimeoutSeconds;
+
+    @Value("${conversion.workers.java:}")
+    private String javaExecutable;
+
+    @Value("${conversion.workers.jvm-options:}")
+    private String jvmOptions;
+
+    private Semaphore permits;
+    private final Deque<Worker> idle = new ArrayDeque<>();
+    private final AtomicInteger busy = new AtomicInteger();
+    private final AtomicInteger nextWorkerId = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong crashed = new AtomicLong();
+    private final AtomicLong killed = new AtomicLong();
+    private ScheduledExecutorService watchdog;
+    private volatile boolean shuttingDown;
+
+    public ConversionWorkerPool(Environment environment) {
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        workerCount = Math.max(1, workerCount);
+        maxJobs = Math.max(1, maxJobs);
+        permits = new Semaphore(workerCount, true);
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversion-worker-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // warm the workers up in the background so the first conversion does not pay the JVM startup
+        Thread prewarm = new Thread(() -> {
+            for (int i = 0; i < workerCount && !shuttingDown; i++) {
+                try {
+                    release(launch());
+                } catch (IOException ex) {
+                    LOGGER.warn("Không thể khởi động tiến trình chuyển đổi: {}", ex.getMessage());
+                    return;
+                }
+            }
+        }, "conversion-worker-prewarm");
+        prewarm.setDaemon(true);
+        prewarm.start();
+        LOGGER.info("Chuyển đổi tài liệu chạy trên {} tiến trình riêng (heap {} MB, tái tạo sau {} lượt)",
+                workerCount, maxHeapMb, maxJobs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        synchronized (idle) {
+            idle.forEach(Worker::close);
+            idle.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Cover image of a stored file, rendered by a worker. */
+    public byte[] renderPreview(Path source, String extension) throws IOException {
+        return call(ConversionWorkerMain.OP_RENDER_PREVIEW, source, extension, "");
+    }
+
+    /** Converts a stored file to PDF; the worker writes the result to {@code target}. */
+    public void convertToPdf(Path source, String extension, Path target) throws IOException {
+        call(ConversionWorkerMain.OP_CONVERT_TO_PDF, source, extension, target.toAbsolutePath().toString());
+    }
+
+    public AdminConversionWorkerStats getStats() {
+        AdminConversionWorkerStats stats = new AdminConversionWorkerStats();
+        stats.setEnabled(enabled);
+        stats.setWorkers(enabled ? workerCount : 0);
+        stats.setMaxHeapMb(maxHeapMb);
+        stats.setMaxJobs(maxJobs);
+        stats.setJobTimeoutSeconds(jobTimeoutSeconds);
+        synchronized (idle) {
+            stats.setIdle(idle.size());
+        }
+        stats.setBusy(busy.get());
+        stats.setStarted(started.get());
+        stats.setCompleted(completed.get());
+        stats.setFailed(failed.get());
+        stats.setRecycled(recycled.get());
+        stats.setCrashed(crashed.get());
+        stats.setKilled(killed.get());
+        return stats;
+    }
+
+    private byte[] call(String operation, Path source, String extension, String target) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Conversion workers are disabled");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a conversion worker");
+        }
+        busy.incrementAndGet();
+        try {
+            Worker worker = acquireWorker();
+            Thread caller = Thread.currentThread();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(1, jobTimeoutSeconds));
+            ScheduledFuture<?> guard = watchdog.scheduleAtFixedRate(() -> {
+                if (caller.isInterrupted() || System.nanoTime() > deadline) {
+                    worker.kill();
+                }
+            }, WATCHDOG_PERIOD_MILLIS, WATCHDOG_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+            try {
+                byte[] result = worker.call(operation, source.toAbsolutePath().toString(), extension, target);
+                completed.incrementAndGet();
+                return result;
+            } catch (WorkerFailure ex) {
+                failed.incrementAndGet();
+                throw new IOException(ex.getMessage());
+            } catch (IOException ex) {
+                // the channel broke: the worker was killed by the watchdog or died on its own
+                worker.close();
+                if (worker.killed) {
+                    killed.incrementAndGet();
+                    if (caller.isInterrupted()) {
+                        throw new InterruptedIOException("Conversion cancelled");
+                    }
+                    throw new RenderingTimeoutException("Chuyển đổi tài liệu quá thời gian cho phép", jobTimeoutSeconds);
+                }
+                crashed.incrementAndGet();
+                LOGGER.warn("Tiến trình chuyển đổi #{} dừng bất thường (exit {})", worker.id, worker.exitCode());
+                throw new IOException("Conversion worker crashed", ex);
+            } finally {
+                guard.cancel(false);
+                if (worker.isAlive()) {
+                    release(worker);
+                }
+            }
+        } finally {
+            busy.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private Worker acquireWorker() throws IOException {
+        synchronized (idle) {
+            while (!idle.isEmpty()) {
+                Worker worker = idle.pollFirst();
+                if (worker.isAlive()) {
+                    return worker;
+                }
+                crashed.incrementAndGet();
+                LOGGER.warn("Tiến trình chuyển đổi #{} đã dừng khi đang chờ (exit {})", worker.id, worker.exitCode());
+            }
+        }
+        return launch();
+    }
+
+    private void release(Worker worker) {
+        if (worker.jobs >= maxJobs) {
+            recycled.incrementAndGet();
+            LOGGER.debug("Tái tạo tiến trình chuyển đổi #{} sau {} lượt", worker.id, worker.jobs);
+            worker.close();
+            return;
+        }
+        synchronized (idle) {
+            if (shuttingDown || idle.size() >= workerCount) {
+                worker.close();
+                return;
+            }
+            idle.addLast(worker);
+        }
+    }
+
+    private Worker launch() throws IOException {
+        Process process = new ProcessBuilder(command())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        Worker worker = new Worker(nextWorkerId.incrementAndGet(), process);
+        ScheduledFuture<?> guard = watchdog.schedule(worker::kill, STARTUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        try {
+            int handshake = worker.in.readInt();
+            if (handshake != ConversionWorkerMain.HANDSHAKE) {
+                throw new IOException("Unexpected handshake " + Integer.toHexString(handshake));
+            }
+        } catch (IOException ex) {
+            worker.kill();
+            throw new IOException("Conversion worker did not start: " + ex.getMessage(), ex);
+        } finally {
+            guard.cancel(false);
+        }
+        started.incrementAndGet();
+        LOGGER.debug("Đã khởi động tiến trình chuyển đổi #{} (pid {})", worker.id, process.pid());
+        return worker;
+    }
+
+    private List<String> command() {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable == null || javaExecutable.isBlank()
+                ? Paths.get(System.getProperty("java.home"), "bin", "java").toString()
+                : javaExecutable);
+        command.add("-Xmx" + Math.max(64, maxHeapMb) + "m");
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-Djava.awt.headless=true");
+        for (String option : jvmOptions == null ? new String[0] : jvmOptions.trim().split("\\s+")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        for (String property : FORWARDED_PROPERTIES) {
+            String value = environment.getProperty(property);
+            if (value != null) {
+                command.add("-D" + property + "=" + value);
+            }
+        }
+        String classPath = System.getProperty("java.class.path");
+        command.add("-cp");
+        command.add(classPath);
+        if (isFatJar(classPath)) {
+            // classes live under BOOT-INF inside the executable jar
+            command.add("-Dloader.main=" + ConversionWorkerMain.class.getName());
+            command.add(FAT_JAR_LAUNCHER);
+        } else {
+            command.add(ConversionWorkerMain.class.getName());
+        }
+        return command;
+    }
+
+    private static boolean isFatJar(String classPath) {
+        return classPath != null
+                && !classPath.contains(File.pathSeparator)
+                && classPath.endsWith(".jar")
+                && Files.isRegularFile(Paths.get(classPath))
+                && ClassUtils.isPresent(FAT_JAR_LAUNCHER, ConversionWorkerPool.class.getClassLoader());
+    }
+
+    /** A failure reported by the worker itself; the worker is still healthy. */
+    private static final class WorkerFailure extends IOException {
+        WorkerFailure(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Worker {
+        private final int id;
+        private final Process process;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private int jobs;
+        private volatile boolean killed;
+        private volatile boolean closed;
+
+        Worker(int id, Process process) {
+            this.id = id;
+            this.process = process;
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        }
+
+        byte[] call(String operation, String source, String extension, String target) throws IOException {
+            jobs++;
+            out.writeUTF(operation);
+            out.writeUTF(source);
+            out.writeUTF(extension == null ? "" : extension);
+            out.writeUTF(target);
+            out.flush();
+            if (!in.readBoolean()) {
+                throw new WorkerFailure(in.readUTF());
+            }
+            byte[] result = new byte[in.readInt()];
+            in.readFully(result);
+            return result;
+        }
+
+        boolean isAlive() {
+            return !closed && process.isAlive();
+        }
+
+        String exitCode() {
+            return process.isAlive() ? "?" : String.valueOf(process.exitValue());
+        }
+
+        void kill() {
+            if (process.isAlive()) {
+                killed = true;
+                closed = true;
+                process.destroyForcibly();
+            }
+        }
+
+        /** Closing stdin lets the worker exit on its own; the process is killed if it lingers. */
+        void close() {
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // the process is gone already
+            }
+            process.onExit()
+                    .completeOnTimeout(process, 5, TimeUnit.SECONDS)
+                    .thenAccept(Process::destroyForcibly);
+        }
+    }
+}
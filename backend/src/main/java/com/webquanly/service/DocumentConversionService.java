@@ -0,0 +1,414 @@
+package com.webquanly.service;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.poi.hslf.usermodel.HSLFSlide;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.converter.PicturesManager;
+import org.apache.poi.hwpf.converter.WordToFoConverter;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.docx4j.Docx4J;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Format-specific rendering shared by the request path and the background derivative stage.
+ * Holds no state besides the FOP factory, PDF memory settings and the slide worker pool, so it
+ * can also be used outside the Spring context.
+ */
+@Service
+public class DocumentConversionService {
+    private static final long DEFAULT_PDF_MAX_MAIN_MEMORY_MB = 16;
+
+    private static final FopFactory FOP_FACTORY;
+
+    static {
+        try {
+            FOP_FACTORY = FopFactory.newInstance(new File(".").toURI());
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError("Cannot initialize FOP factory: " + e.getMessage());
+        }
+    }
+
+    private final long pdfMaxMainMemoryBytes;
+    private final File pdfTempDir;
+    private final SlideRasterizer slideRasterizer;
+
+    public DocumentConversionService() {
+        this(DEFAULT_PDF_MAX_MAIN_MEMORY_MB, "", 0, 0, "JPEG", 0.85f);
+    }
+
+    @Autowired
+    public DocumentConversionService(@Value("${preview.pdf.max-main-memory-mb:16}") long pdfMaxMainMemoryMb,
+                                     @Value("${preview.pdf.temp-dir:}") String pdfTempDir,
+                                     @Value("${preview.slides.parallelism:0}") int slideParallelism,
+                                     @Value("${preview.slides.max-in-flight:0}") int slidesInFlight,
+                                     @Value("${preview.slides.image-mode:JPEG}") String slideImageMode,
+                                     @Value("${preview.slides.jpeg-quality:0.85}") float slideJpegQuality) {
+        this.pdfMaxMainMemoryBytes = Math.max(1L, pdfMaxMainMemoryMb) * 1024 * 1024;
+        this.pdfTempDir = pdfTempDir == null || pdfTempDir.isBlank() ? null : new File(pdfTempDir);
+        // 0 means "size from the machine": up to 4 slide workers, twice as many slides in flight
+        int parallelism = slideParallelism > 0
+                ? slideParallelism
+                : Math.min(4, Runtime.getRuntime().availableProcessors());
+        int inFlight = slidesInFlight > 0 ? slidesInFlight : parallelism * 2;
+        this.slideRasterizer = new SlideRasterizer(parallelism, inFlight,
+                SlideRasterizer.ImageMode.parse(slideImageMode), slideJpegQuality);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        slideRasterizer.close();
+    }
+
+    public static boolean supportsPdfConversion(String extension) {
+        return "docx".equals(extension)
+                || "doc".equals(extension)
+                || "pptx".equals(extension)
+                || "ppt".equals(extension);
+    }
+
+    public byte[] convertToPdf(byte[] data, String extension) throws IOException {
+        if ("docx".equals(extension)) {
+            return convertDocxToPdf(data);
+        }
+        if ("doc".equals(extension)) {
+            return convertDocToPdf(data);
+        }
+        if ("pptx".equals(extension)) {
+            return convertPptxToPdf(data);
+        }
+        if ("ppt".equals(extension)) {
+            return convertPptToPdf(data);
+        }
+        throw new IllegalArgumentException("Chỉ hỗ trợ xem trước PDF, Word và PowerPoint");
+    }
+
+    /** First-page PNG of a Word/PowerPoint file, or of a PDF when {@code extension} is "pdf". */
+    public byte[] renderPreview(byte[] data, String extension) throws IOException {
+        if ("pdf".equals(extension)) {
+            return renderPdfPreview(data);
+        }
+        if ("docx".equals(extension)) {
+            return renderDocxPreview(data);
+        }
+        if ("doc".equals(extension)) {
+            return renderDocPreview(data);
+        }
+        if ("pptx".equals(extension)) {
+            return renderPptxPreview(data);
+        }
+        if ("ppt".equals(extension)) {
+            return renderPptPreview(data);
+        }
+        throw new IllegalArgumentException("Preview not supported for this format");
+    }
+
+    public byte[] renderPdfPreview(byte[] pdfBytes) throws IOException {
+        try (PDDocument document = PDDocument.load(pdfBytes, "", null, null, pdfMemoryUsage())) {
+            checkCancelled();
+            return renderFirstPage(document);
+        }
+    }
+
+    public byte[] renderPdfPreview(Path pdfFile) throws IOException {
+        try (PDDocument document = loadPdf(pdfFile)) {
+            checkCancelled();
+            return renderFirstPage(document);
+        }
+    }
+
+    /**
+     * Opens a stored PDF through random-access file reads instead of a heap copy. Decoded streams
+     * stay in memory up to {@code preview.pdf.max-main-memory-mb} and spill to a scratch file
+     * beyond that, so heap use does not grow with the file size.
+     */
+    public PDDocument loadPdf(Path pdfFile) throws IOException {
+        return PDDocument.load(pdfFile.toFile(), pdfMemoryUsage());
+    }
+
+    public int countPdfPages(Path pdfFile) throws IOException {
+        try (PDDocument document = loadPdf(pdfFile)) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    /**
+     * Renders a single page (zero-based) scaled so that the image is {@code targetWidth} pixels
+     * wide, whatever the page size or rotation.
+     */
+    public byte[] renderPdfPage(Path pdfFile, int pageIndex, int targetWidth) throws IOException {
+        try (PDDocument document = loadPdf(pdfFile)) {
+            if (pageIndex < 0 || pageIndex >= document.getNumberOfPages()) {
+                throw new IllegalArgumentException("Trang không tồn tại");
+            }
+            PDPage page = document.getPage(pageIndex);
+            PDRectangle box = page.getCropBox();
+            float pageWidth = page.getRotation() % 180 == 0 ? box.getWidth() : box.getHeight();
+            float scale = pageWidth > 0 ? targetWidth / pageWidth : 1f;
+            checkCancelled();
+            BufferedImage image = new PDFRenderer(document).renderImage(pageIndex, scale, ImageType.RGB);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+    }
+
+    private MemoryUsageSetting pdfMemoryUsage() {
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(pdfMaxMainMemoryBytes);
+        if (pdfTempDir != null) {
+            setting.setTempDir(pdfTempDir);
+        }
+        return setting;
+    }
+
+    private byte[] renderFirstPage(PDDocument document) throws IOException {
+        var renderer = new PDFRenderer(document);
+        BufferedImage image = renderer.renderImageWithDPI(0, 170, ImageType.RGB);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    public byte[] renderDocxPreview(byte[] docxBytes) throws IOException {
+        try (ByteArrayInputStream input = new ByteArrayInputStream(docxBytes)) {
+            WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.load(input);
+            checkCancelled();
+            ByteArrayOutputStream pdfOutput = new ByteArrayOutputStream();
+            Docx4J.toPDF(wordMLPackage, pdfOutput);
+            checkCancelled();
+            return renderPdfPreview(pdfOutput.toByteArray());
+        } catch (Docx4JException e) {
+            throw new IOException("Failed to render DOCX preview", e);
+        }
+    }
+
+    public byte[] convertDocxToPdf(byte[] docxBytes) throws IOException {
+        try (ByteArrayInputStream input = new ByteArrayInputStream(docxBytes)) {
+            WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.load(input);
+            checkCancelled();
+            ByteArrayOutputStream pdfOutput = new ByteArrayOutputStream();
+            Docx4J.toPDF(wordMLPackage, pdfOutput);
+            checkCancelled();
+            return pdfOutput.toByteArray();
+        } catch (Docx4JException e) {
+            throw new IOException("Failed to convert DOCX", e);
+        }
+    }
+
+    public byte[] renderDocPreview(byte[] docBytes) throws IOException {
+        try (ByteArrayInputStream input = new ByteArrayInputStream(docBytes);
+             HWPFDocument document = new HWPFDocument(input)) {
+            org.w3c.dom.Document foDocument = createSecureDocumentBuilder().newDocument();
+            WordToFoConverter converter = new WordToFoConverter(foDocument);
+            PicturesManager picturesManager = (content, pictureType, suggestedName, widthInches, heightInches) -> {
+                // called for every picture, the only hook inside WordToFoConverter
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Conversion was cancelled");
+                }
+                return suggestedName;
+            };
+            converter.setPicturesManager(picturesManager);
+            converter.processDocument(document);
+            checkCancelled();
+
+            ByteArrayOutputStream foBuffer = new ByteArrayOutputStream();
+            Transformer serializer = TransformerFactory.newInstance().newTransformer();
+            serializer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+            serializer.transform(new DOMSource(converter.getDocument()), new StreamResult(foBuffer));
+
+            ByteArrayOutputStream pdfOutput = new ByteArrayOutputStream();
+            FOUserAgent foUserAgent = FOP_FACTORY.newFOUserAgent();
+            Fop fop = FOP_FACTORY.newFop(MimeConstants.MIME_PDF, foUserAgent, pdfOutput);
+            Transformer foTransformer = TransformerFactory.newInstance().newTransformer();
+            StreamSource foSource = new StreamSource(new ByteArrayInputStream(foBuffer.toByteArray()));
+            foTransformer.transform(foSource, new SAXResult(cancellable(fop.getDefaultHandler())));
+
+            return renderPdfPreview(pdfOutput.toByteArray());
+        } catch (ParserConfigurationException | TransformerException | FOPException e) {
+            throw new IOException("Failed to render DOC preview", e);
+        }
+    }
+
+    public byte[] convertDocToPdf(byte[] docBytes) throws IOException {
+        try (ByteArrayInputStream input = new ByteArrayInputStream(docBytes);
+             HWPFDocument document = new HWPFDocument(input)) {
+            org.w3c.dom.Document foDocument = createSecureDocumentBuilder().newDocument();
+            WordToFoConverter converter = new WordToFoConverter(foDocument);
+            PicturesManager picturesManager = (content, pictureType, suggestedName, widthInches, heightInches) -> {
+                // called for every picture, the only hook inside WordToFoConverter
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Conversion was cancelled");
+                }
+                return suggestedName;
+            };
+            converter.setPicturesManager(picturesManager);
+            converter.processDocument(document);
+            checkCancelled();
+
+            ByteArrayOutputStream foBuffer = new ByteArrayOutputStream();
+            Transformer serializer = TransformerFactory.newInstance().newTransformer();
+            serializer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+            serializer.transform(new DOMSource(converter.getDocument()), new StreamResult(foBuffer));
+
+            ByteArrayOutputStream pdfOutput = new ByteArrayOutputStream();
+            FOUserAgent foUserAgent = FOP_FACTORY.newFOUserAgent();
+            Fop fop = FOP_FACTORY.newFop(MimeConstants.MIME_PDF, foUserAgent, pdfOutput);
+            Transformer foTransformer = TransformerFactory.newInstance().newTransformer();
+            StreamSource foSource = new StreamSource(new ByteArrayInputStream(foBuffer.toByteArray()));
+            foTransformer.transform(foSource, new SAXResult(cancellable(fop.getDefaultHandler())));
+
+            return pdfOutput.toByteArray();
+        } catch (ParserConfigurationException | TransformerException | FOPException e) {
+            throw new IOException("Failed to convert DOC", e);
+        }
+    }
+
+    public byte[] convertPptxToPdf(byte[] pptxBytes) throws IOException {
+        return slideRasterizer.toPdf(pptxBytes, XMLSlideShow::new);
+    }
+
+    public byte[] convertPptToPdf(byte[] pptBytes) throws IOException {
+        return slideRasterizer.toPdf(pptBytes, HSLFSlideShow::new);
+    }
+
+    public byte[] renderPptxPreview(byte[] pptxBytes) throws IOException {
+        try (ByteArrayInputStream input = new ByteArrayInputStream(pptxBytes);
+             XMLSlideShow slideShow = new XMLSlideShow(input)) {
+            if (slideShow.getSlides().isEmpty()) {
+                throw new IOException("PowerPoint file does not contain slides");
+            }
+            checkCancelled();
+            Dimension size = slideShow.getPageSize();
+            if (size == null || size.width <= 0 || size.height <= 0) {
+                size = new Dimension(1600, 900);
+            }
+            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, size.width, size.height);
+                XSLFSlide slide = slideShow.getSlides().get(0);
+                slide.draw(graphics);
+            } finally {
+                graphics.dispose();
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+    }
+
+    public byte[] renderPptPreview(byte[] pptBytes) throws IOException {
+        try (ByteArrayInputStream input = new ByteArrayInputStream(pptBytes);
+             HSLFSlideShow slideShow = new HSLFSlideShow(input)) {
+            if (slideShow.getSlides().isEmpty()) {
+                throw new IOException("PowerPoint file does not contain slides");
+            }
+            checkCancelled();
+            Dimension size = slideShow.getPageSize();
+            if (size == null || size.width <= 0 || size.height <= 0) {
+                size = new Dimension(1600, 900);
+            }
+            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, size.width, size.height);
+                HSLFSlide slide = slideShow.getSlides().get(0);
+                slide.draw(graphics);
+            } finally {
+                graphics.dispose();
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Cooperative cancellation point: rendering jobs are interrupted when they pass their
+     * deadline (see {@link RenderingScheduler}), and the converters check between stages.
+     */
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Conversion was cancelled");
+        }
+    }
+
+    /** Stops FOP at the next FO element once the rendering job has been interrupted. */
+    private static ContentHandler cancellable(ContentHandler delegate) {
+        XMLFilterImpl filter = new XMLFilterImpl() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new SAXException(new InterruptedIOException("Conversion was cancelled"));
+                }
+                super.startElement(uri, localName, qName, atts);
+            }
+        };
+        filter.setContentHandler(delegate);
+        return filter;
+    }
+
+    private DocumentBuilder createSecureDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        return factory.newDocumentBuilder();
+    }
+}
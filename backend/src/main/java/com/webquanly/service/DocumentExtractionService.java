@@ -0,0 +1,309 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.webquanly.event.DocumentChangedEvent;
+import com.webquanly.model.DocumentText;
+import com.webquanly.model.TaiLieu;
+import com.webquanly.repository.DocumentTextRepository;
+import com.webquanly.repository.TaiLieuRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Extraction stage of the upload pipeline: once an upload commits, its text, page count, author
+ * and title are read in the background and kept in {@code tailieu_text}, keyed by the file's
+ * checksum. Search indexing and the page count then reuse that one parse; a duplicate upload
+ * copies the row of its twin instead of parsing again. Documents stored before this stage existed
+ * are worked through once after startup, a batch at a time.
+ *
+ * A finished extraction is announced as a {@link DocumentChangedEvent}, so the search index picks
+ * up the content.
+ */
+@Service
+public class DocumentExtractionService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentExtractionService.class);
+
+    public static final String STATUS_READY = "READY";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_UNSUPPORTED = "UNSUPPORTED";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final TaiLieuRepository taiLieuRepository;
+    private final DocumentTextRepository documentTextRepository;
+    private final DocumentTextExtractor documentTextExtractor;
+    private final BlobStoreService blobStoreService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+
+    @Value("${extraction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${extraction.workers:1}")
+    private int workers;
+
+    @Value("${extraction.timeout-seconds:60}")
+    private long timeoutSeconds;
+
+    @Value("${extraction.max-source-size-mb:100}")
+    private long maxSourceSizeMb;
+
+    @Value("${extraction.backfill.batch-size:50}")
+    private int backfillBatchSize;
+
+    @Value("${extraction.backfill.batch-pause-ms:500}")
+    private long backfillPauseMs;
+
+    private ExecutorService executor;
+    private volatile Thread backfill;
+
+    public DocumentExtractionService(TaiLieuRepository taiLieuRepository,
+                                     DocumentTextRepository documentTextRepository,
+                                     DocumentTextExtractor documentTextExtractor,
+                                     BlobStoreService blobStoreService,
+                                     ApplicationEventPublisher eventPublisher) {
+        this.taiLieuRepository = taiLieuRepository;
+        this.documentTextRepository = documentTextRepository;
+        this.documentTextExtractor = documentTextExtractor;
+        this.blobStoreService = blobStoreService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "document-extraction-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(Math.max(1, workers), threadFactory);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopRequested.set(true);
+        executor.shutdownNow();
+        Thread thread = backfill;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5000);
+        }
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::runBackfill, "document-extraction-backfill");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        backfill = thread;
+        thread.start();
+    }
+
+    /** Uploads, and changes that may have replaced the file; unchanged files are skipped by checksum. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        schedule(event.getDocumentId());
+    }
+
+    public void schedule(Long documentId) {
+        if (!enabled || documentId == null || !inFlight.add(documentId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    extractQuietly(documentId);
+                } finally {
+                    inFlight.remove(documentId);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(documentId);
+            LOGGER.warn("Không thể xếp lịch trích xuất nội dung tài liệu {}: {}", documentId, ex.getMessage());
+        }
+    }
+
+    private void runBackfill() {
+        int processed = 0;
+        try {
+            long afterId = 0L;
+            while (!stopRequested.get()) {
+                List<Long> batch = taiLieuRepository.findIdsWithoutTextAfter(afterId,
+                        PageRequest.of(0, Math.max(1, backfillBatchSize)));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Long id : batch) {
+                    if (stopRequested.get()) {
+                        break;
+                    }
+                    afterId = id;
+                    // an upload of the same document may be on a worker already
+                    if (!inFlight.add(id)) {
+                        continue;
+                    }
+                    try {
+                        extractQuietly(id);
+                        processed++;
+                    } finally {
+                        inFlight.remove(id);
+                    }
+                }
+                Thread.sleep(Math.max(0L, backfillPauseMs));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Dừng trích xuất nội dung tài liệu cũ: {}", ex.getMessage());
+        } finally {
+            backfill = null;
+            if (processed > 0) {
+                LOGGER.info("Đã trích xuất nội dung cho {} tài liệu cũ", processed);
+            }
+        }
+    }
+
+    private void extractQuietly(Long documentId) {
+        try {
+            extract(documentId);
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Không thể lưu nội dung trích xuất của tài liệu {}: {}", documentId, ex.getMessage());
+        }
+    }
+
+    private void extract(Long documentId) {
+        TaiLieu taiLieu = taiLieuRepository.findById(documentId).orElse(null);
+        if (taiLieu == null || taiLieu.getFileName() == null) {
+            return;
+        }
+        String checksum = taiLieu.getChecksum();
+        DocumentText existing = documentTextRepository.findById(documentId).orElse(null);
+        if (existing != null && Objects.equals(existing.getChecksum(), checksum)) {
+            return;
+        }
+
+        DocumentText result = reuseExtraction(documentId, checksum);
+        if (result == null) {
+            result = readFile(taiLieu);
+        }
+        result.setDocumentId(documentId);
+        result.setChecksum(checksum);
+        result.setExtractedAt(LocalDateTime.now());
+        documentTextRepository.save(result);
+
+        if (STATUS_READY.equals(result.getStatus())) {
+            if (result.getPageCount() != null) {
+                taiLieuRepository.fillSoTrang(documentId, result.getPageCount());
+            }
+            // subject and status are unchanged; only the content is new
+            Long subjectId = taiLieu.getMonHoc() != null ? taiLieu.getMonHoc().getId() : null;
+            String status = taiLieu.getTrangThaiKiemDuyet();
+            eventPublisher.publishEvent(new DocumentChangedEvent(documentId, subjectId, status, subjectId, status));
+        }
+    }
+
+    /** A duplicate upload has the same file as an earlier document, and so the same text. */
+    private DocumentText reuseExtraction(Long documentId, String checksum) {
+        if (checksum == null) {
+            return null;
+        }
+        return documentTextRepository.findFirstByChecksumAndStatus(checksum, STATUS_READY)
+                .filter(twin -> !twin.getDocumentId().equals(documentId))
+                .map(twin -> {
+                    DocumentText copy = new DocumentText();
+                    copy.setStatus(STATUS_READY);
+                    copy.setContent(twin.getContent());
+                    copy.setTruncated(twin.isTruncated());
+                    copy.setAuthor(twin.getAuthor());
+                    copy.setTitle(twin.getTitle());
+                    copy.setPageCount(twin.getPageCount());
+                    return copy;
+                })
+                .orElse(null);
+    }
+
+    private DocumentText readFile(TaiLieu taiLieu) {
+        DocumentText result = new DocumentText();
+        String extension = extensionOf(taiLieu.getFileName());
+        if (!DocumentTextExtractor.supports(extension)) {
+            result.setStatus(STATUS_UNSUPPORTED);
+            return result;
+        }
+        long started = System.nanoTime();
+        try {
+            Long recordedSize = taiLieu.getKichThuoc();
+            long maxSize = maxSourceSizeMb * 1024 * 1024;
+            if (recordedSize != null && recordedSize > maxSize) {
+                throw new IOException("Source file is too large");
+            }
+            Path path = blobStoreService.localFile(taiLieu.getFileName());
+            if (recordedSize == null && Files.size(path) > maxSize) {
+                throw new IOException("Source file is too large");
+            }
+            DocumentTextExtractor.Extraction extraction = documentTextExtractor.extract(path, extension,
+                    started + TimeUnit.SECONDS.toNanos(Math.max(1L, timeoutSeconds)));
+            result.setStatus(STATUS_READY);
+            result.setContent(extraction.text());
+            result.setTruncated(extraction.truncated());
+            result.setAuthor(extraction.author());
+            result.setTitle(extraction.title());
+            result.setPageCount(extraction.pageCount());
+            LOGGER.debug("Đã trích xuất {} ký tự từ tài liệu {} trong {} ms", extraction.text().length(),
+                    taiLieu.getId(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (Exception ex) {
+            // corrupt and encrypted files end up here as well as I/O failures
+            LOGGER.warn("Không thể trích xuất nội dung tài liệu {}: {}", taiLieu.getId(), ex.getMessage());
+            result.setStatus(STATUS_FAILED);
+            result.setError(truncate(ex.getClass().getSimpleName() + ": " + ex.getMessage(), MAX_ERROR_LENGTH));
+        }
+        return result;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private static String extensionOf(String storageKey) {
+        int dot = storageKey.lastIndexOf('.');
+        return dot < 0 ? "" : storageKey.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,118 @@
+package com.webquanly.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Single pass over an uploaded file: the body is read once and, while it is written into the
+ * blob store, its size is capped, its SHA-256 computed and its real format sniffed from the
+ * leading bytes. The caller gets everything needed to record the document without opening the
+ * stored file again.
+ */
+@Service
+public class DocumentIngestionService {
+
+    // enough to see the first entries of an OOXML package or the directory of a small OLE2 file
+    private static final int SNIFF_WINDOW = 64 * 1024;
+
+    private final BlobStoreService blobStoreService;
+
+    @Value("${file.max-upload-size-mb:200}")
+    private long maxUploadSizeMb;
+
+    public DocumentIngestionService(BlobStoreService blobStoreService) {
+        this.blobStoreService = blobStoreService;
+    }
+
+    /** Stored upload with the format it was recognised as (or the declared one, if unknown). */
+    public record IngestedFile(BlobStoreService.StoredFile stored, String extension, String contentType) {}
+
+    public long getMaxUploadSize() {
+        return maxUploadSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * @param declaredLength length announced by the client, or -1 when unknown; an oversized
+     *                       announcement is rejected before anything is read
+     */
+    public IngestedFile ingest(InputStream body, String originalName, long declaredLength) throws IOException {
+        long maxSize = getMaxUploadSize();
+        if (declaredLength > maxSize) {
+            throw new IllegalArgumentException("File too large");
+        }
+        InputStream limited = new SizeLimitedInputStream(body, maxSize);
+        byte[] head = limited.readNBytes(SNIFF_WINDOW);
+        if (head.length == 0) {
+            throw new IllegalArgumentException("Empty file");
+        }
+        String declaredExtension = extensionOf(originalName);
+        String extension = FileFormatSniffer.detect(head, declaredExtension).orElse(declaredExtension);
+        // the sniffed prefix is replayed in front of the rest of the body, nothing is read twice
+        InputStream content = new SequenceInputStream(new ByteArrayInputStream(head), limited);
+        BlobStoreService.StoredFile stored = blobStoreService.store(content, extension);
+        String contentType = FileFormatSniffer.contentTypeOf(extension);
+        return new IngestedFile(stored, extension, contentType != null ? contentType : "application/octet-stream");
+    }
+
+    private String extensionOf(String filename) {
+        if (filename == null || !filename.contains(".")) {
+            return "";
+        }
+        return filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /** Fails the upload as soon as more than {@code limit} bytes have been read. */
+    private static final class SizeLimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        SizeLimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                advance(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                advance(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            advance(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void advance(long bytes) {
+            count += bytes;
+            if (count > limit) {
+                throw new IllegalArgumentException("File too large");
+            }
+        }
+    }
+}
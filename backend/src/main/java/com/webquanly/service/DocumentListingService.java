@@ -0,0 +1,130 @@
+package com.webquanly.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.webquanly.dto.DocumentPageResponse;
+import com.webquanly.dto.DocumentResponse;
+import com.webquanly.model.TaiLieu;
+import com.webquanly.repository.TaiLieuRepository;
+
+/**
+ * Cursor-paginated document listing, newest first. Pages are read with a keyset on
+ * (thoiGianDang, id) and the filters are part of the query, so a page costs the same however deep
+ * it is and however large the catalogue grows. Legacy rows without an upload time come after all
+ * dated rows, by id.
+ *
+ * The cursor is opaque to clients: the position of the last row of the previous page.
+ */
+@Service
+public class DocumentListingService {
+
+    // start of the dated part of the listing, later than any real upload time
+    private static final LocalDateTime FIRST_PAGE_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final char CURSOR_SEPARATOR = '|';
+
+    private final TaiLieuRepository taiLieuRepository;
+    private final DocumentService documentService;
+
+    @Value("${document.listing.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${document.listing.max-page-size:100}")
+    private int maxPageSize;
+
+    public DocumentListingService(TaiLieuRepository taiLieuRepository, DocumentService documentService) {
+        this.taiLieuRepository = taiLieuRepository;
+        this.documentService = documentService;
+    }
+
+    /**
+     * @param status review status to list; only administrators may ask for anything but approved
+     */
+    public DocumentPageResponse listPage(String cursor, Integer limit, Long subjectId, Long typeId,
+                                         String status, boolean viewerIsAdmin) {
+        int size = limit == null ? defaultPageSize : limit;
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Số tài liệu mỗi trang phải từ 1 đến " + maxPageSize);
+        }
+        String reviewStatus = normalizeStatus(status, viewerIsAdmin);
+        Position after = decodeCursor(cursor);
+
+        // one row more than asked tells whether another page follows
+        List<TaiLieu> rows = new ArrayList<>(size + 1);
+        if (after.time() != null) {
+            rows.addAll(taiLieuRepository.findListingPage(after.time(), after.id(), subjectId, typeId,
+                    reviewStatus, PageRequest.of(0, size + 1)));
+        }
+        if (rows.size() <= size) {
+            long afterId = after.time() != null ? Long.MAX_VALUE : after.id();
+            rows.addAll(taiLieuRepository.findUndatedListingPage(afterId, subjectId, typeId, reviewStatus,
+                    PageRequest.of(0, size + 1 - rows.size())));
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<TaiLieu> page = hasMore ? rows.subList(0, size) : rows;
+        List<DocumentResponse> items = new ArrayList<>(page.size());
+        for (TaiLieu taiLieu : page) {
+            items.add(documentService.toSummaryDto(taiLieu));
+        }
+        DocumentPageResponse response = new DocumentPageResponse();
+        response.setItems(items);
+        response.setHasMore(hasMore);
+        response.setNextCursor(hasMore ? encodeCursor(page.get(page.size() - 1)) : null);
+        return response;
+    }
+
+    /** Review status a listing or search is limited to; null lets an administrator see every status. */
+    static String normalizeStatus(String status, boolean viewerIsAdmin) {
+        if (status == null || status.isBlank()) {
+            return viewerIsAdmin ? null : DocumentService.REVIEW_APPROVED;
+        }
+        String normalized = status.trim().toUpperCase(Locale.ROOT);
+        if (!normalized.equals(DocumentService.REVIEW_APPROVED)
+                && !normalized.equals(DocumentService.REVIEW_PENDING)
+                && !normalized.equals(DocumentService.REVIEW_REJECTED)) {
+            throw new IllegalArgumentException("Trạng thái kiểm duyệt không hợp lệ");
+        }
+        if (!viewerIsAdmin && !normalized.equals(DocumentService.REVIEW_APPROVED)) {
+            throw new IllegalArgumentException("Chỉ quản trị viên được lọc theo trạng thái kiểm duyệt");
+        }
+        return normalized;
+    }
+
+    private String encodeCursor(TaiLieu last) {
+        String time = last.getThoiGianDang() == null ? "" : last.getThoiGianDang().toString();
+        String raw = time + CURSOR_SEPARATOR + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Position decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new Position(FIRST_PAGE_TIME, Long.MAX_VALUE);
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Con trỏ phân trang không hợp lệ");
+            }
+            String time = raw.substring(0, separator);
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new Position(time.isEmpty() ? null : LocalDateTime.parse(time), id);
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Con trỏ phân trang không hợp lệ");
+        }
+    }
+
+    /** Position in the listing; a null time means the undated tail. */
+    private record Position(LocalDateTime time, long id) {
+    }
+}
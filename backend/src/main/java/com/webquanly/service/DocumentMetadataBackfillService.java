@@ -0,0 +1,183 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.webquanly.model.StoredBlob;
+import com.webquanly.model.TaiLieu;
+import com.webquanly.repository.StoredBlobRepository;
+import com.webquanly.repository.TaiLieuRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Records size, content type, checksum and (for PDFs) page count for documents uploaded before
+ * they were captured at ingest, so that listings can be served from the database alone. Runs once
+ * after startup on a background thread, in batches; rows whose file is missing are left as they
+ * are and picked up again on the next start.
+ */
+@Service
+public class DocumentMetadataBackfillService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentMetadataBackfillService.class);
+
+    private static final int SNIFF_WINDOW = 64 * 1024;
+
+    private final TaiLieuRepository taiLieuRepository;
+    private final StoredBlobRepository storedBlobRepository;
+    private final BlobStoreService blobStoreService;
+    private final DocumentConversionService documentConversionService;
+
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+    private volatile Thread worker;
+
+    @Value("${document.metadata-backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.metadata-backfill.batch-size:50}")
+    private int batchSize;
+
+    @Value("${document.metadata-backfill.batch-pause-ms:500}")
+    private long batchPauseMs;
+
+    public DocumentMetadataBackfillService(TaiLieuRepository taiLieuRepository,
+                                           StoredBlobRepository storedBlobRepository,
+                                           BlobStoreService blobStoreService,
+                                           DocumentConversionService documentConversionService) {
+        this.taiLieuRepository = taiLieuRepository;
+        this.storedBlobRepository = storedBlobRepository;
+        this.blobStoreService = blobStoreService;
+        this.documentConversionService = documentConversionService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "document-metadata-backfill");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        worker = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopRequested.set(true);
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5000);
+        }
+    }
+
+    private void run() {
+        int filled = 0;
+        int failed = 0;
+        try {
+            long afterId = 0L;
+            while (!stopRequested.get()) {
+                List<Long> batch = taiLieuRepository.findIdsMissingFileMetadataAfter(afterId,
+                        PageRequest.of(0, Math.max(1, batchSize)));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Long id : batch) {
+                    if (stopRequested.get()) {
+                        break;
+                    }
+                    if (fillQuietly(id)) {
+                        filled++;
+                    } else {
+                        failed++;
+                    }
+                    afterId = id;
+                }
+                Thread.sleep(Math.max(0L, batchPauseMs));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Dừng bổ sung thông tin tệp tài liệu: {}", ex.getMessage());
+        } finally {
+            worker = null;
+            if (filled > 0 || failed > 0) {
+                LOGGER.info("Đã bổ sung thông tin tệp cho {} tài liệu, {} tài liệu lỗi", filled, failed);
+            }
+        }
+    }
+
+    private boolean fillQuietly(Long id) {
+        try {
+            TaiLieu taiLieu = taiLieuRepository.findById(id).orElse(null);
+            if (taiLieu != null) {
+                fill(taiLieu);
+            }
+            return true;
+        } catch (NoSuchFileException ex) {
+            LOGGER.debug("Tệp của tài liệu {} không tồn tại, bỏ qua", id);
+            return false;
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warn("Không thể bổ sung thông tin tệp cho tài liệu {}: {}", id, ex.getMessage());
+            return false;
+        }
+    }
+
+    private void fill(TaiLieu taiLieu) throws IOException {
+        String storageKey = taiLieu.getFileName();
+        Path path = blobStoreService.localFile(storageKey);
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(storageKey);
+        }
+        long size = Files.size(path);
+        // a blob already knows its hash, legacy files are hashed here
+        String checksum = taiLieu.getChecksum();
+        if (checksum == null) {
+            checksum = storedBlobRepository.findByStorageKey(storageKey)
+                    .map(StoredBlob::getSha256)
+                    .orElse(null);
+        }
+        if (checksum == null) {
+            checksum = blobStoreService.sha256Of(path);
+        }
+        String extension = extensionOf(storageKey);
+        String contentType = taiLieu.getKieuNoiDung();
+        if (contentType == null) {
+            byte[] head;
+            try (InputStream in = Files.newInputStream(path)) {
+                head = in.readNBytes(SNIFF_WINDOW);
+            }
+            extension = FileFormatSniffer.detect(head, extension).orElse(extension);
+            contentType = FileFormatSniffer.contentTypeOf(extension);
+            if (contentType == null) {
+                contentType = Files.probeContentType(path);
+            }
+        }
+        Integer pageCount = taiLieu.getSoTrang();
+        if (pageCount == null && "pdf".equals(extension)) {
+            pageCount = documentConversionService.countPdfPages(path);
+        }
+        taiLieuRepository.fillFileMetadata(taiLieu.getId(), size,
+                contentType != null ? contentType : "application/octet-stream", checksum, pageCount);
+    }
+
+    private String extensionOf(String storageKey) {
+        int dot = storageKey.lastIndexOf('.');
+        return dot < 0 ? "" : storageKey.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,499 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.webquanly.dto.DocumentFacetsResponse;
+import com.webquanly.dto.DocumentSearchHit;
+import com.webquanly.dto.FacetBucket;
+import com.webquanly.dto.DocumentSearchResponse;
+import com.webquanly.dto.admin.AdminSearchIndexStatus;
+import com.webquanly.event.DocumentChangedEvent;
+import com.webquanly.event.DocumentDeletedEvent;
+import com.webquanly.event.SubjectChangedEvent;
+import com.webquanly.model.DocumentText;
+import com.webquanly.model.TaiLieu;
+import com.webquanly.repository.DocumentTextRepository;
+import com.webquanly.repository.LoaiTaiLieuRepository;
+import com.webquanly.repository.MonHocRepository;
+import com.webquanly.repository.TaiLieuRepository;
+import com.webquanly.search.FacetCounts;
+import com.webquanly.search.IndexedDocument;
+import com.webquanly.search.SearchHit;
+import com.webquanly.search.SearchIndex;
+import com.webquanly.search.SearchQuery;
+import com.webquanly.search.SearchResult;
+import com.webquanly.search.UploadAge;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Full-text search over document titles, descriptions, subject and uploader names, and the text
+ * and author read from the file by {@link DocumentExtractionService}, served from a Lucene index
+ * in {@code search.index-dir}.
+ *
+ * The index follows the database through domain events: each change queues the document id and
+ * a single indexer thread reloads queued rows in batches, so an upload, review or delete is
+ * searchable within moments of its commit. A full rebuild runs at startup when the index is
+ * missing or incomplete, and on request. Hits are read back from the database, which stays the
+ * authority on what a viewer may see.
+ *
+ * The index lives on each node and only sees changes made on that node.
+ */
+@Service
+public class DocumentSearchService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentSearchService.class);
+
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    private final TaiLieuRepository taiLieuRepository;
+    private final DocumentTextRepository documentTextRepository;
+    private final DocumentService documentService;
+    private final MonHocRepository monHocRepository;
+    private final LoaiTaiLieuRepository loaiTaiLieuRepository;
+
+    private final BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+    // ids waiting in the queue, so a document changed twice is indexed once
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // one batch at a time, from reading its rows to writing them, whether indexer or rebuild
+    private final Object batchLock = new Object();
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+    private final AtomicLong rebuiltDocuments = new AtomicLong();
+    private volatile SearchIndex index;
+    private volatile Thread indexer;
+    private volatile Thread rebuilder;
+    private volatile LocalDateTime lastRebuildStartedAt;
+    private volatile LocalDateTime lastRebuildFinishedAt;
+    private volatile String lastError;
+
+    @Value("${search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index-dir:storage/search-index}")
+    private String indexDir;
+
+    @Value("${search.batch-size:200}")
+    private int batchSize;
+
+    @Value("${search.rebuild-pause-ms:100}")
+    private long rebuildPauseMs;
+
+    @Value("${search.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${search.max-limit:50}")
+    private int maxLimit;
+
+    @Value("${search.max-offset:1000}")
+    private int maxOffset;
+
+    public DocumentSearchService(TaiLieuRepository taiLieuRepository, DocumentTextRepository documentTextRepository,
+                                 DocumentService documentService, MonHocRepository monHocRepository,
+                                 LoaiTaiLieuRepository loaiTaiLieuRepository) {
+        this.taiLieuRepository = taiLieuRepository;
+        this.documentTextRepository = documentTextRepository;
+        this.documentService = documentService;
+        this.monHocRepository = monHocRepository;
+        this.loaiTaiLieuRepository = loaiTaiLieuRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path path = Paths.get(indexDir).toAbsolutePath().normalize();
+            Files.createDirectories(path);
+            index = new SearchIndex(path);
+        } catch (IOException ex) {
+            lastError = ex.getMessage();
+            LOGGER.error("Không thể mở chỉ mục tìm kiếm tại {}: {}", indexDir, ex.getMessage());
+            return;
+        }
+        Thread thread = new Thread(this::runIndexer, "search-indexer");
+        thread.setDaemon(true);
+        indexer = thread;
+        thread.start();
+        if (!index.isComplete()) {
+            LOGGER.info("Chỉ mục tìm kiếm chưa đầy đủ, bắt đầu xây dựng lại");
+            startRebuild();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        stopRequested.set(true);
+        // not interrupted: an interrupt during a write closes the index writer
+        for (Thread thread : new Thread[] {indexer, rebuilder}) {
+            if (thread != null) {
+                thread.join(5000);
+            }
+        }
+        SearchIndex current = index;
+        if (current != null) {
+            index = null;
+            current.close();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        enqueue(event.getDocumentId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentDeleted(DocumentDeletedEvent event) {
+        enqueue(event.getDocumentId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubjectChanged(SubjectChangedEvent event) {
+        if (index == null) {
+            return;
+        }
+        // the subject name is indexed with each of its documents
+        taiLieuRepository.findIdsByMonHocId(event.getSubjectId()).forEach(this::enqueue);
+    }
+
+    public DocumentSearchResponse search(String text, Long subjectId, Long typeId, String status,
+                                         Integer offset, Integer limit, boolean viewerIsAdmin) throws IOException {
+        SearchIndex current = index;
+        if (current == null) {
+            throw new IllegalArgumentException("Chức năng tìm kiếm đang tắt");
+        }
+        String query = text == null ? "" : text.trim();
+        if (query.isEmpty()) {
+            throw new IllegalArgumentException("Vui lòng nhập từ khóa tìm kiếm");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Từ khóa tìm kiếm quá dài");
+        }
+        int size = limit == null ? defaultLimit : limit;
+        if (size < 1 || size > maxLimit) {
+            throw new IllegalArgumentException("Số kết quả mỗi trang phải từ 1 đến " + maxLimit);
+        }
+        int from = offset == null ? 0 : offset;
+        if (from < 0 || from > maxOffset) {
+            throw new IllegalArgumentException("Vị trí bắt đầu phải từ 0 đến " + maxOffset);
+        }
+        String reviewStatus = DocumentListingService.normalizeStatus(status, viewerIsAdmin);
+
+        long started = System.nanoTime();
+        SearchResult result = current.search(new SearchQuery(query, subjectId, typeId, reviewStatus, from, size));
+        List<Long> ids = result.hits().stream().map(SearchHit::documentId).toList();
+        Map<Long, TaiLieu> rows = new HashMap<>();
+        if (!ids.isEmpty()) {
+            taiLieuRepository.findWithListingDetailsByIdIn(ids).forEach(row -> rows.put(row.getId(), row));
+        }
+        List<DocumentSearchHit> items = new ArrayList<>(ids.size());
+        for (SearchHit hit : result.hits()) {
+            TaiLieu row = rows.get(hit.documentId());
+            // the index may lag behind a delete or a review that just happened
+            if (row == null || (reviewStatus != null && !reviewStatus.equalsIgnoreCase(reviewStatusOf(row)))) {
+                continue;
+            }
+            DocumentSearchHit item = new DocumentSearchHit();
+            item.setDocument(documentService.toSummaryDto(row));
+            item.setScore(hit.score());
+            item.setHighlights(hit.highlights());
+            items.add(item);
+        }
+
+        DocumentSearchResponse response = new DocumentSearchResponse();
+        response.setQuery(query);
+        response.setTotal(result.total());
+        response.setTotalExact(result.totalExact());
+        response.setOffset(from);
+        response.setLimit(size);
+        response.setItems(items);
+        response.setTookMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return response;
+    }
+
+    /**
+     * Counts per subject, type, review status and upload age for a search or a plain filter
+     * (blank {@code text}), read from the index's doc values rather than aggregated over
+     * {@code tailieu}. Like search results, counts follow the database within moments.
+     */
+    public DocumentFacetsResponse facets(String text, Long subjectId, Long typeId, String status,
+                                         boolean viewerIsAdmin) throws IOException {
+        SearchIndex current = index;
+        if (current == null) {
+            throw new IllegalArgumentException("Chức năng tìm kiếm đang tắt");
+        }
+        String query = text == null ? "" : text.trim();
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Từ khóa tìm kiếm quá dài");
+        }
+        String reviewStatus = DocumentListingService.normalizeStatus(status, viewerIsAdmin);
+
+        long started = System.nanoTime();
+        FacetCounts counts = current.facets(new SearchQuery(query, subjectId, typeId, reviewStatus, 0, 0),
+                LocalDate.now());
+
+        Map<Long, String> subjectNames = new HashMap<>();
+        monHocRepository.findAllById(nonNullKeys(counts.subjects()))
+                .forEach(monHoc -> subjectNames.put(monHoc.getId(), monHoc.getTenMonHoc()));
+        Map<Long, String> typeNames = new HashMap<>();
+        loaiTaiLieuRepository.findAllById(nonNullKeys(counts.types()))
+                .forEach(loai -> typeNames.put(loai.getId(), loai.getTenLoaiTaiLieu()));
+
+        DocumentFacetsResponse response = new DocumentFacetsResponse();
+        response.setQuery(query);
+        response.setTotal(counts.total());
+        response.setSubjects(idBuckets(counts.subjects(), subjectNames, "Chưa xếp môn học"));
+        response.setTypes(idBuckets(counts.types(), typeNames, "Chưa phân loại"));
+        List<FacetBucket> statuses = new ArrayList<>();
+        counts.statuses().forEach((value, count) -> {
+            // other viewers only ever see approved documents, not how many are waiting
+            if (value != null && (viewerIsAdmin || DocumentService.REVIEW_APPROVED.equals(value))) {
+                statuses.add(new FacetBucket(value, statusLabel(value), count));
+            }
+        });
+        statuses.sort(BY_COUNT);
+        response.setStatuses(statuses);
+        List<FacetBucket> uploaded = new ArrayList<>();
+        for (UploadAge age : UploadAge.values()) {
+            Long count = counts.uploaded().get(age);
+            if (count != null) {
+                uploaded.add(new FacetBucket(age.name(), uploadAgeLabel(age), count));
+            }
+        }
+        response.setUploaded(uploaded);
+        response.setTookMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return response;
+    }
+
+    private static final Comparator<FacetBucket> BY_COUNT = Comparator.comparingLong(FacetBucket::getCount).reversed()
+            .thenComparing(FacetBucket::getLabel, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static Set<Long> nonNullKeys(Map<Long, Long> counts) {
+        Set<Long> ids = new HashSet<>(counts.keySet());
+        ids.remove(null);
+        return ids;
+    }
+
+    /** Ids the database no longer knows (the index lags a delete) are left out. */
+    private static List<FacetBucket> idBuckets(Map<Long, Long> counts, Map<Long, String> names, String noneLabel) {
+        List<FacetBucket> buckets = new ArrayList<>();
+        counts.forEach((id, count) -> {
+            if (id == null) {
+                buckets.add(new FacetBucket(null, noneLabel, count));
+            } else if (names.containsKey(id)) {
+                buckets.add(new FacetBucket(id.toString(), names.get(id), count));
+            }
+        });
+        buckets.sort(BY_COUNT);
+        return buckets;
+    }
+
+    private static String statusLabel(String status) {
+        return switch (status) {
+            case DocumentService.REVIEW_APPROVED -> "Đã duyệt";
+            case DocumentService.REVIEW_PENDING -> "Chờ duyệt";
+            case DocumentService.REVIEW_REJECTED -> "Từ chối";
+            default -> status;
+        };
+    }
+
+    private static String uploadAgeLabel(UploadAge age) {
+        return switch (age) {
+            case LAST_7_DAYS -> "Trong 7 ngày qua";
+            case LAST_30_DAYS -> "Từ 7 đến 30 ngày trước";
+            case LAST_12_MONTHS -> "Từ 1 đến 12 tháng trước";
+            case OLDER -> "Hơn 12 tháng trước";
+            case UNKNOWN -> "Không rõ ngày đăng";
+        };
+    }
+
+    /** @return false when a rebuild is already running */
+    public boolean startRebuild() {
+        if (index == null) {
+            throw new IllegalArgumentException("Chức năng tìm kiếm đang tắt");
+        }
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuiltDocuments.set(0);
+        lastRebuildStartedAt = LocalDateTime.now();
+        lastRebuildFinishedAt = null;
+        lastError = null;
+        Thread thread = new Thread(this::runRebuild, "search-rebuild");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        rebuilder = thread;
+        thread.start();
+        return true;
+    }
+
+    public AdminSearchIndexStatus getStatus() {
+        AdminSearchIndexStatus status = new AdminSearchIndexStatus();
+        SearchIndex current = index;
+        status.setEnabled(current != null);
+        status.setRebuilding(rebuilding.get());
+        status.setPendingUpdates(queued.size());
+        status.setRebuiltDocuments(rebuiltDocuments.get());
+        status.setLastRebuildStartedAt(lastRebuildStartedAt);
+        status.setLastRebuildFinishedAt(lastRebuildFinishedAt);
+        status.setLastError(lastError);
+        if (current != null) {
+            try {
+                status.setIndexedDocuments(current.documentCount());
+            } catch (IOException ex) {
+                status.setLastError(ex.getMessage());
+            }
+        }
+        return status;
+    }
+
+    private void enqueue(Long documentId) {
+        if (index != null && documentId != null && queued.add(documentId)) {
+            queue.add(documentId);
+        }
+    }
+
+    private void runIndexer() {
+        List<Long> batch = new ArrayList<>();
+        while (!stopRequested.get()) {
+            try {
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, Math.max(1, batchSize) - 1);
+                batch.forEach(queued::remove);
+                indexBatch(batch);
+                SearchIndex current = index;
+                if (current != null) {
+                    current.commit();
+                    current.refresh();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | DataAccessException ex) {
+                lastError = ex.getMessage();
+                LOGGER.warn("Không thể cập nhật chỉ mục tìm kiếm cho {} tài liệu: {}", batch.size(), ex.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void runRebuild() {
+        SearchIndex current = index;
+        long generation = current.beginRebuild();
+        boolean finished = false;
+        try {
+            long afterId = 0L;
+            while (!stopRequested.get()) {
+                List<Long> ids = taiLieuRepository.findIdsAfter(afterId, PageRequest.of(0, Math.max(1, batchSize)));
+                if (ids.isEmpty()) {
+                    finished = true;
+                    break;
+                }
+                indexBatch(ids);
+                rebuiltDocuments.addAndGet(ids.size());
+                afterId = ids.get(ids.size() - 1);
+                current.refresh();
+                Thread.sleep(Math.max(0L, rebuildPauseMs));
+            }
+            if (finished) {
+                current.finishRebuild(generation);
+                current.refresh();
+                LOGGER.info("Đã xây dựng lại chỉ mục tìm kiếm với {} tài liệu", rebuiltDocuments.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            lastError = ex.getMessage();
+            LOGGER.error("Xây dựng lại chỉ mục tìm kiếm thất bại: {}", ex.getMessage());
+        } finally {
+            lastRebuildFinishedAt = LocalDateTime.now();
+            rebuilder = null;
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Reads the rows and writes them while holding {@link #batchLock}. Changes are queued after
+     * they commit, so a rebuild batch that read a row before a delete has written it before the
+     * indexer reads the queued id again, and the indexer's later read wins. Interleaved, the
+     * rebuild could write the stale row back after the indexer removed it.
+     */
+    private void indexBatch(List<Long> ids) throws IOException {
+        SearchIndex current = index;
+        if (current == null || ids.isEmpty()) {
+            return;
+        }
+        synchronized (batchLock) {
+            Map<Long, DocumentText> texts = new HashMap<>();
+            for (DocumentText text : documentTextRepository.findAllById(ids)) {
+                if (DocumentExtractionService.STATUS_READY.equals(text.getStatus())) {
+                    texts.put(text.getDocumentId(), text);
+                }
+            }
+            Set<Long> missing = new HashSet<>(ids);
+            for (TaiLieu row : taiLieuRepository.findWithListingDetailsByIdIn(ids)) {
+                current.upsert(toIndexedDocument(row, texts.get(row.getId())));
+                missing.remove(row.getId());
+            }
+            current.delete(missing);
+        }
+    }
+
+    /** @param text what the extraction stage read from the file, null until it has run */
+    private IndexedDocument toIndexedDocument(TaiLieu taiLieu, DocumentText text) {
+        String title = taiLieu.getTenTaiLieu();
+        if (title == null || title.isBlank()) {
+            title = taiLieu.getTenFileGoc();
+        }
+        return new IndexedDocument(
+                taiLieu.getId(),
+                title,
+                taiLieu.getMoTa(),
+                taiLieu.getMonHoc() != null ? taiLieu.getMonHoc().getTenMonHoc() : null,
+                taiLieu.getUser() != null ? taiLieu.getUser().getTenUser() : null,
+                text != null ? text.getAuthor() : null,
+                text != null ? text.getContent() : null,
+                taiLieu.getMonHoc() != null ? taiLieu.getMonHoc().getId() : null,
+                taiLieu.getLoaiTaiLieu() != null ? taiLieu.getLoaiTaiLieu().getId() : null,
+                reviewStatusOf(taiLieu),
+                taiLieu.getThoiGianDang() != null ? taiLieu.getThoiGianDang().toLocalDate() : null);
+    }
+
+    private static String reviewStatusOf(TaiLieu taiLieu) {
+        String status = taiLieu.getTrangThaiKiemDuyet();
+        return status == null || status.isBlank() ? DocumentService.REVIEW_APPROVED : status;
+    }
+}
@@ -1,20 +1,20 @@
 package com.webquanly.service;
 
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.GradientPaint;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -26,46 +26,15 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.sax.SAXResult;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
-
-import org.apache.fop.apps.FOPException;
-import org.apache.fop.apps.FOUserAgent;
-import org.apache.fop.apps.Fop;
-import org.apache.fop.apps.FopFactory;
-import org.apache.fop.apps.MimeConstants;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
-import org.apache.pdfbox.rendering.ImageType;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.poi.hslf.usermodel.HSLFSlide;
-import org.apache.poi.hslf.usermodel.HSLFSlideShow;
-import org.apache.poi.hwpf.HWPFDocument;
-import org.apache.poi.hwpf.converter.PicturesManager;
-import org.apache.poi.hwpf.converter.WordToFoConverter;
-import org.apache.poi.xslf.usermodel.XMLSlideShow;
-import org.apache.poi.xslf.usermodel.XSLFSlide;
-import org.docx4j.Docx4J;
-import org.docx4j.openpackaging.exceptions.Docx4JException;
-import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -73,9 +42,16 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.webquanly.dto.CommentResponse;
 import com.webquanly.dto.DocumentDetailResponse;
+import com.webquanly.dto.DocumentPagesResponse;
 import com.webquanly.dto.DocumentReportResponse;
 import com.webquanly.dto.DocumentResponse;
+import com.webquanly.dto.DocumentVersion;
+import com.webquanly.dto.PreviewImage;
 import com.webquanly.dto.RatingSummaryResponse;
+import com.webquanly.event.DocumentChangedEvent;
+import com.webquanly.event.DocumentDeletedEvent;
+import com.webquanly.exception.RenderingOverloadedException;
+import com.webquanly.exception.RenderingTimeoutException;
 import com.webquanly.model.BinhLuan;
 import com.webquanly.model.BinhLuanReport;
 import com.webquanly.model.DanhGia;
@@ -87,11 +63,14 @@ import com.webquanly.model.User;
 import com.webquanly.repository.BinhLuanReportRepository;
 import com.webquanly.repository.BinhLuanRepository;
 import com.webquanly.repository.DanhGiaRepository;
+import com.webquanly.repository.DocumentTextRepository;
 import com.webquanly.repository.LoaiTaiLieuRepository;
 import com.webquanly.repository.MonHocRepository;
 import com.webquanly.repository.TaiLieuReportRepository;
 import com.webquanly.repository.TaiLieuRepository;
 import com.webquanly.repository.UserRepository;
+import com.webquanly.service.RenderingScheduler.RenderFormat;
+import com.webquanly.storage.BlobInfo;
 
 @Service
 public class DocumentService {
@@ -100,22 +79,13 @@ public class DocumentService {
     public static final String REVIEW_PENDING = "PENDING";
     public static final String REVIEW_APPROVED = "APPROVED";
     public static final String REVIEW_REJECTED = "REJECTED";
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
-
-    private static final FopFactory FOP_FACTORY;
-
-    static {
-        try {
-            FOP_FACTORY = FopFactory.newInstance(new File(".").toURI());
-        } catch (Exception e) {
-            throw new ExceptionInInitializerError("Cannot initialize FOP factory: " + e.getMessage());
-        }
-    }
 
     @Autowired
     private TaiLieuRepository taiLieuRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -128,6 +98,12 @@ public class DocumentService {
     @Autowired
     private BinhLuanRepository binhLuanRepository;
 
+    @Autowired
+    private DocumentTextRepository documentTextRepository;
+
+    @Autowired
+    private DocumentExtractionService documentExtractionService;
+
     @Autowired
     private DanhGiaRepository danhGiaRepository;
 
@@ -140,27 +116,93 @@ public class DocumentService {
     @Autowired
     private TaiLieuReportRepository taiLieuReportRepository;
 
+    @Autowired
+    private PreviewCacheService previewCacheService;
+
+    @Autowired
+    private DocumentConversionService documentConversionService;
+
+    @Autowired
+    private PreviewDerivativeService previewDerivativeService;
+
+    @Autowired
+    private RenderingScheduler renderingScheduler;
+
+    @Autowired
+    private ConversionWorkerPool conversionWorkerPool;
+
+    @Autowired
+    private PreviewFailureService previewFailureService;
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private DocumentIngestionService documentIngestionService;
+
     private static final long MAX_PREVIEW_SIZE = 200L * 1024 * 1024; // align with upload size
+    // Bump whenever the page-1 rendering changes so stale thumbnails are not served from cache.
+    private static final String THUMBNAIL_VARIANT = "thumb-r1.png";
+    private static final String FAILED_THUMBNAIL_VARIANT = "failed-r1.png";
+    private static final List<Integer> PAGE_WIDTHS = List.of(320, 640, 960, 1280, 1600);
+    private static final int DEFAULT_PAGE_WIDTH = 960;
 
     public DocumentResponse store(MultipartFile file, String title, Long subjectId, String uploaderEmail) throws IOException {
         if (file.isEmpty()) throw new IllegalArgumentException("Empty file");
-        long maxSize = 200L * 1024 * 1024; // 200MB
-        if (file.getSize() > maxSize) throw new IllegalArgumentException("File too large");
+        try (InputStream body = file.getInputStream()) {
+            return store(body, file.getOriginalFilename(), file.getSize(), title, subjectId, uploaderEmail);
+        }
+    }
+
+    /**
+     * Stores an upload read straight from the request body. The stream is consumed once; size,
+     * checksum and the sniffed content type are recorded on the document as it is written.
+     */
+    public DocumentResponse store(InputStream body, String filename, long declaredLength, String title,
+                                  Long subjectId, String uploaderEmail) throws IOException {
+        if (filename == null || filename.isBlank()) throw new IllegalArgumentException("Tên tệp là bắt buộc");
         if (subjectId == null) throw new IllegalArgumentException("Môn học là bắt buộc");
 
         var monHoc = monHocRepository.findById(subjectId)
                 .orElseThrow(() -> new IllegalArgumentException("Môn học không tồn tại"));
 
-        Path storageRoot = getStorageRoot();
-        Files.createDirectories(storageRoot);
+        String originalName = Path.of(filename).getFileName().toString();
+        DocumentIngestionService.IngestedFile ingested = documentIngestionService.ingest(body, originalName, declaredLength);
+        BlobStoreService.StoredFile stored = ingested.stored();
+        TaiLieu saved;
+        try {
+            saved = saveUploadedDocument(ingested, originalName, title, monHoc, uploaderEmail);
+        } catch (IOException | RuntimeException e) {
+            // the file is stored before the row; without the row nothing would ever release it
+            try {
+                blobStoreService.release(stored.storageKey());
+            } catch (RuntimeException releaseEx) {
+                e.addSuppressed(releaseEx);
+            }
+            throw e;
+        }
+        if (PreviewDerivativeService.STATUS_PENDING.equals(saved.getTrangThaiBanXemTruoc())) {
+            previewDerivativeService.schedule(saved.getId(), blobStoreService.resolve(saved.getFileName()), ingested.extension());
+        }
+        eventPublisher.publishEvent(DocumentChangedEvent.uploaded(saved.getId(), subjectIdOf(saved),
+                saved.getTrangThaiKiemDuyet()));
+        long pendingCount = taiLieuRepository.countByTrangThaiKiemDuyetIgnoreCase(REVIEW_PENDING);
+        notificationService.notifyAdminsOfPendingReview(saved, pendingCount);
+        return toDto(saved);
+    }
 
-        String stored = System.currentTimeMillis() + "_" + Path.of(file.getOriginalFilename()).getFileName().toString();
-        Path path = storageRoot.resolve(stored);
-        Files.copy(file.getInputStream(), path);
+    private TaiLieu saveUploadedDocument(DocumentIngestionService.IngestedFile ingested, String originalName,
+                                         String title, MonHoc monHoc, String uploaderEmail) throws IOException {
+        BlobStoreService.StoredFile stored = ingested.stored();
+        Path path = blobStoreService.localFile(stored.storageKey());
 
         TaiLieu taiLieu = new TaiLieu();
-        taiLieu.setFileName(stored);
-        taiLieu.setTenTaiLieu(title == null || title.isBlank() ? file.getOriginalFilename() : title);
+        taiLieu.setFileName(stored.storageKey());
+        taiLieu.setTenFileGoc(originalName);
+        taiLieu.setKichThuoc(stored.size());
+        taiLieu.setKieuNoiDung(ingested.contentType());
+        taiLieu.setChecksum(stored.sha256());
+        taiLieu.setTenTaiLieu(title == null || title.isBlank() ? originalName : title);
         taiLieu.setThoiGianDang(LocalDateTime.now());
         taiLieu.setMonHoc(monHoc);
         taiLieu.setSoLuongNguoiTai(0);
@@ -169,19 +211,44 @@ public class DocumentService {
         taiLieu.setLyDoKiemDuyet(null);
         taiLieu.setThoiGianKiemDuyet(null);
         taiLieu.setNguoiKiemDuyet(null);
-        resolveLoaiTaiLieu(file).ifPresent(taiLieu::setLoaiTaiLieu);
+        resolveLoaiTaiLieu(ingested.extension()).ifPresent(taiLieu::setLoaiTaiLieu);
         if (uploaderEmail != null) {
             userRepository.findByEmailIgnoreCase(uploaderEmail).ifPresent(taiLieu::setUser);
         }
-        TaiLieu saved = taiLieuRepository.save(taiLieu);
-        long pendingCount = taiLieuRepository.countByTrangThaiKiemDuyetIgnoreCase(REVIEW_PENDING);
-        notificationService.notifyAdminsOfPendingReview(saved, pendingCount);
-        return toDto(saved);
+        String extension = ingested.extension();
+        boolean needsDerivative = DocumentConversionService.supportsPdfConversion(extension);
+        // a duplicate of an earlier upload shares its PDF rendition
+        boolean derivativeShared = needsDerivative && stored.duplicate()
+                && Files.isRegularFile(PreviewDerivativeService.derivativePathFor(path));
+        if (needsDerivative) {
+            taiLieu.setTrangThaiBanXemTruoc(derivativeShared
+                    ? PreviewDerivativeService.STATUS_READY
+                    : PreviewDerivativeService.STATUS_PENDING);
+        }
+        // other formats get theirs once the PDF rendition is produced, and PDFs from the
+        // extraction stage, which parses the file anyway
+        if ("pdf".equals(extension) && !documentExtractionService.isEnabled()) {
+            taiLieu.setSoTrang(countPagesQuietly(path));
+        } else if (derivativeShared) {
+            taiLieu.setSoTrang(countPagesQuietly(PreviewDerivativeService.derivativePathFor(path)));
+        }
+        return taiLieuRepository.save(taiLieu);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingDerivatives() {
+        try {
+            for (Long id : taiLieuRepository.findIdsByTrangThaiBanXemTruoc(PreviewDerivativeService.STATUS_PENDING)) {
+                taiLieuRepository.findById(id).ifPresent(taiLieu -> previewDerivativeService.schedule(
+                        id, getPath(taiLieu), extractExtension(taiLieu.getFileName())));
+            }
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Không thể tiếp tục tạo bản PDF xem trước: {}", ex.getMessage());
+        }
     }
 
     public List<DocumentResponse> listAll() {
-        return taiLieuRepository.findAll().stream()
-                .filter(this::isApproved)
+        return taiLieuRepository.findApprovedOrUnsetForListing(REVIEW_APPROVED).stream()
                 .map(this::toDto)
                 .collect(Collectors.toList());
     }
@@ -205,8 +272,18 @@ public class DocumentService {
         return toDto(taiLieu);
     }
 
+    /**
+     * Local file of a document, fetched from remote storage first if needed. A missing file is
+     * returned as a path that does not exist, callers check for it.
+     */
     public Path getPath(TaiLieu taiLieu) {
-        return getStorageRoot().resolve(taiLieu.getFileName());
+        try {
+            return blobStoreService.localFile(taiLieu.getFileName());
+        } catch (NoSuchFileException e) {
+            return blobStoreService.resolve(taiLieu.getFileName());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public Path getPathById(Long id) {
@@ -228,12 +305,7 @@ public class DocumentService {
     private void deleteDocumentInternal(Long id, String reason, boolean notifyOwner) {
         TaiLieu taiLieu = taiLieuRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Tài liệu không tồn tại"));
-        Path path = null;
-        try {
-            path = getPath(taiLieu);
-        } catch (Exception ex) {
-            LOGGER.warn("Không thể xác định đường dẫn tệp cho tài liệu {}: {}", id, ex.getMessage());
-        }
+        String storageKey = taiLieu.getFileName();
 
         String normalizedReason = normalizeReason(reason);
         if (notifyOwner) {
@@ -242,15 +314,16 @@ public class DocumentService {
 
         binhLuanRepository.deleteByDocumentId(id);
         danhGiaRepository.deleteByDocumentId(id);
+        documentTextRepository.deleteByDocumentId(id);
+        previewFailureService.clearAll(id);
         taiLieuRepository.delete(taiLieu);
+        eventPublisher.publishEvent(new DocumentDeletedEvent(id, subjectIdOf(taiLieu), taiLieu.getTrangThaiKiemDuyet()));
 
-        if (path != null) {
-            try {
-                Files.deleteIfExists(path);
-            } catch (IOException ex) {
-                LOGGER.warn("Không thể xóa tệp của tài liệu {}: {}", id, ex.getMessage());
-            }
+        // the file and its PDF rendition may still be shared with duplicates of this upload
+        if (storageKey != null) {
+            blobStoreService.release(storageKey);
         }
+        previewCacheService.invalidate(id);
     }
 
     @Transactional
@@ -285,11 +358,14 @@ public class DocumentService {
             throw new IllegalArgumentException("Môn học là bắt buộc");
         }
         String previousSubject = taiLieu.getMonHoc() != null ? taiLieu.getMonHoc().getTenMonHoc() : null;
+        Long previousSubjectId = subjectIdOf(taiLieu);
         MonHoc subject = monHocRepository.findById(subjectId)
                 .orElseThrow(() -> new IllegalArgumentException("Môn học không tồn tại"));
         taiLieu.setMonHoc(subject);
         taiLieu.setDangXetChonMon(false);
         TaiLieu saved = taiLieuRepository.save(taiLieu);
+        eventPublisher.publishEvent(new DocumentChangedEvent(saved.getId(), previousSubjectId,
+                saved.getTrangThaiKiemDuyet(), subjectIdOf(saved), saved.getTrangThaiKiemDuyet()));
         if (notifyOwner) {
             notificationService.notifyDocumentSubjectChange(saved, previousSubject, subject.getTenMonHoc());
         }
@@ -305,6 +381,10 @@ public class DocumentService {
         binhLuanRepository.delete(comment);
     }
 
+    private static Long subjectIdOf(TaiLieu taiLieu) {
+        return taiLieu.getMonHoc() != null ? taiLieu.getMonHoc().getId() : null;
+    }
+
     private String normalizeReason(String reason) {
         if (reason == null) {
             return null;
@@ -354,21 +434,103 @@ public class DocumentService {
         return getPath(taiLieu);
     }
 
-    public byte[] generateStoredPreviewSafeWithAccess(Long documentId, String viewerEmail, boolean viewerIsAdmin) throws IOException {
-        TaiLieu taiLieu = taiLieuRepository.findById(documentId)
-                .orElseThrow(() -> new IllegalArgumentException("Tài liệu không tồn tại"));
-        User currentUser = findUserByEmail(viewerEmail);
-        if (!canViewDocument(taiLieu, currentUser, viewerIsAdmin)) {
-            throw new IllegalArgumentException("Tài liệu không tồn tại");
+    /**
+     * Cover image at one of the {@link PreviewImageScaler#WIDTHS} (or full size), derived from the
+     * cached full-size cover so the document itself is rendered at most once.
+     */
+    public PreviewImage generateStoredPreviewVariantWithAccess(Long documentId, Integer width, String format,
+                                                              String viewerEmail, boolean viewerIsAdmin) throws IOException {
+        PreviewImageScaler.Format imageFormat = PreviewImageScaler.Format.parse(format);
+        int targetWidth = PreviewImageScaler.snapWidth(width);
+        TaiLieu taiLieu = findViewableDocument(documentId, viewerEmail, viewerIsAdmin);
+        if (targetWidth == PreviewImageScaler.FULL_WIDTH && imageFormat == PreviewImageScaler.Format.PNG) {
+            CoverImage cover = generateStoredPreviewSafe(taiLieu);
+            return new PreviewImage(cover.png(), imageFormat.getContentType(), cover.placeholder());
+        }
+        String variant = "thumb-w" + targetWidth + "-r1." + imageFormat.getExtension();
+        String fingerprint = blobStoreService.stat(taiLieu.getFileName())
+                .map(info -> PreviewCacheService.fingerprintOf(info.size(), info.lastModified()))
+                .orElse(null);
+        var cached = previewCacheService.get(taiLieu.getId(), fingerprint, variant);
+        if (cached.isPresent()) {
+            return new PreviewImage(cached.get(), imageFormat.getContentType());
+        }
+        CoverImage master = generateStoredPreviewSafe(taiLieu);
+        byte[] derived = PreviewImageScaler.derive(master.png(), targetWidth, imageFormat);
+        // placeholders are not cached per width so that a successful retry is picked up
+        if (!master.placeholder()) {
+            previewCacheService.put(taiLieu.getId(), fingerprint, variant, derived);
         }
+        return new PreviewImage(derived, imageFormat.getContentType(), master.placeholder());
+    }
+
+    private CoverImage generateStoredPreviewSafe(TaiLieu taiLieu) throws IOException {
         try {
             return generateStoredPreviewFor(taiLieu);
+        } catch (RenderingOverloadedException e) {
+            throw e;
         } catch (Exception e) {
-            return renderGenericPlaceholder(resolveDocumentDisplayName(taiLieu), "Preview fallback");
+            return new CoverImage(renderGenericPlaceholder(resolveDocumentDisplayName(taiLieu), "Preview fallback"), true);
+        }
+    }
+
+    /**
+     * Validators for conditional requests. Resolving them checks access and looks at the stored
+     * file's metadata, but never reads or renders the file.
+     */
+    public DocumentVersion getDocumentVersionWithAccess(Long documentId, String viewerEmail, boolean viewerIsAdmin) throws IOException {
+        TaiLieu taiLieu = findViewableDocument(documentId, viewerEmail, viewerIsAdmin);
+        BlobInfo info = blobStoreService.stat(taiLieu.getFileName())
+                .orElseThrow(() -> new IllegalArgumentException("File không tồn tại trên hệ thống"));
+        long lastModified = info.lastModified();
+        if (taiLieu.getThoiGianDang() != null) {
+            lastModified = Math.max(lastModified, taiLieu.getThoiGianDang().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        return new DocumentVersion(versionTag(taiLieu, info), lastModified, isApproved(taiLieu));
+    }
+
+    /**
+     * Stored files never change under their key, so the recorded checksum identifies the version;
+     * rows not backfilled yet fall back to the file's size and modification time.
+     */
+    private String versionTag(TaiLieu taiLieu, BlobInfo info) {
+        String recorded = recordedVersionTag(taiLieu);
+        if (recorded != null) {
+            return recorded;
+        }
+        return PreviewCacheService.fingerprintOf(info.size(), info.lastModified()) + "-" + Long.toHexString(uploadedEpochSecond(taiLieu));
+    }
+
+    private String recordedVersionTag(TaiLieu taiLieu) {
+        String checksum = taiLieu.getChecksum();
+        if (checksum == null || checksum.length() < 16) {
+            return null;
+        }
+        return checksum.substring(0, 16) + "-" + Long.toHexString(uploadedEpochSecond(taiLieu));
+    }
+
+    private long uploadedEpochSecond(TaiLieu taiLieu) {
+        return taiLieu.getThoiGianDang() == null
+                ? 0L
+                : taiLieu.getThoiGianDang().atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private Integer countPagesQuietly(Path pdf) {
+        try {
+            return documentConversionService.countPdfPages(pdf);
+        } catch (Exception e) {
+            LOGGER.debug("Cannot count pages of {}: {}", pdf.getFileName(), e.getMessage());
+            return null;
         }
     }
 
-    public byte[] generateStoredFullPreviewPdfWithAccess(Long documentId, String viewerEmail, boolean viewerIsAdmin) throws IOException {
+    /** The stored file for download, read straight from storage (ranges included). */
+    public Resource loadStoredFileWithAccess(Long documentId, String viewerEmail, boolean viewerIsAdmin) throws IOException {
+        TaiLieu taiLieu = findViewableDocument(documentId, viewerEmail, viewerIsAdmin);
+        return blobStoreService.openResource(taiLieu.getFileName());
+    }
+
+    public Resource loadStoredFullPreviewWithAccess(Long documentId, String viewerEmail, boolean viewerIsAdmin) throws IOException {
         TaiLieu taiLieu = taiLieuRepository.findById(documentId)
                 .orElseThrow(() -> new IllegalArgumentException("Tài liệu không tồn tại"));
         User currentUser = findUserByEmail(viewerEmail);
@@ -379,34 +541,120 @@ public class DocumentService {
         if (!Files.exists(path)) {
             throw new IllegalArgumentException("File không tồn tại trên hệ thống");
         }
-        long size = Files.size(path);
-        if (size > MAX_PREVIEW_SIZE) {
-            throw new IllegalArgumentException("File quá lớn để xem trước");
-        }
-        byte[] data = Files.readAllBytes(path);
-        String contentType = Files.probeContentType(path);
-        if (contentType == null) {
-            contentType = guessContentTypeFromName(taiLieu.getFileName());
-        }
+        String contentType = storedContentType(taiLieu, path);
         String normalizedContentType = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
         String extension = extractExtension(taiLieu.getFileName());
 
         if (isPdf(normalizedContentType, extension)) {
-            return data;
+            return new FileSystemResource(path);
         }
-        if ("docx".equals(extension)) {
-            return convertDocxToPdf(data);
+        if (!DocumentConversionService.supportsPdfConversion(extension)) {
+            throw new IllegalArgumentException("Chỉ hỗ trợ xem trước PDF, Word và PowerPoint");
         }
-        if ("doc".equals(extension)) {
-            return convertDocToPdf(data);
+        var derivative = previewDerivativeService.findReady(taiLieu, path);
+        if (derivative.isPresent()) {
+            return new FileSystemResource(derivative.get());
         }
-        if ("pptx".equals(extension)) {
-            return convertPptxToPdf(data);
+        if (Files.size(path) > MAX_PREVIEW_SIZE) {
+            throw new IllegalArgumentException("File quá lớn để xem trước");
         }
-        if ("ppt".equals(extension)) {
-            return convertPptToPdf(data);
+        return new FileSystemResource(convertForPreview(taiLieu, path, extension));
+    }
+
+    public DocumentPagesResponse getPageInfoWithAccess(Long documentId, String viewerEmail, boolean viewerIsAdmin) throws IOException {
+        TaiLieu taiLieu = findViewableDocument(documentId, viewerEmail, viewerIsAdmin);
+        Integer pageCount = taiLieu.getSoTrang();
+        if (pageCount == null) {
+            Path path = getPath(taiLieu);
+            if (!Files.exists(path)) {
+                throw new IllegalArgumentException("File không tồn tại trên hệ thống");
+            }
+            Path pdf = resolvePagedPdf(taiLieu, path);
+            pageCount = renderingScheduler.execute(RenderFormat.PDF, () -> documentConversionService.countPdfPages(pdf));
+            taiLieuRepository.updateSoTrang(taiLieu.getId(), pageCount);
+        }
+        DocumentPagesResponse response = new DocumentPagesResponse();
+        response.setDocumentId(taiLieu.getId());
+        response.setPageCount(pageCount);
+        response.setWidths(PAGE_WIDTHS);
+        response.setDefaultWidth(DEFAULT_PAGE_WIDTH);
+        return response;
+    }
+
+    /**
+     * Renders one page (1-based) of the stored PDF, or of the PDF rendition for Word/PowerPoint.
+     * The requested width is snapped to {@link #PAGE_WIDTHS} so the tile cache stays small.
+     */
+    public byte[] renderStoredPageWithAccess(Long documentId, int pageNumber, Integer width,
+                                             String viewerEmail, boolean viewerIsAdmin) throws IOException {
+        if (pageNumber < 1) {
+            throw new IllegalArgumentException("Trang không tồn tại");
+        }
+        TaiLieu taiLieu = findViewableDocument(documentId, viewerEmail, viewerIsAdmin);
+        Path path = getPath(taiLieu);
+        if (!Files.exists(path)) {
+            throw new IllegalArgumentException("File không tồn tại trên hệ thống");
+        }
+        int targetWidth = snapPageWidth(width);
+        String fingerprint = PreviewCacheService.fingerprintOf(path);
+        String variant = "page-" + pageNumber + "-w" + targetWidth + "-r1.png";
+        var cached = previewCacheService.get(taiLieu.getId(), fingerprint, variant);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Path pdf = resolvePagedPdf(taiLieu, path);
+        byte[] png = renderingScheduler.execute(RenderFormat.PDF,
+                () -> documentConversionService.renderPdfPage(pdf, pageNumber - 1, targetWidth));
+        previewCacheService.put(taiLieu.getId(), fingerprint, variant, png);
+        return png;
+    }
+
+    private Path resolvePagedPdf(TaiLieu taiLieu, Path path) throws IOException {
+        String contentType = storedContentType(taiLieu, path);
+        String extension = extractExtension(taiLieu.getFileName());
+        if (isPdf(contentType != null ? contentType.toLowerCase(Locale.ROOT) : "", extension)) {
+            return path;
+        }
+        if (!DocumentConversionService.supportsPdfConversion(extension)) {
+            throw new IllegalArgumentException("Chỉ hỗ trợ xem trước PDF, Word và PowerPoint");
+        }
+        if (Files.size(path) > MAX_PREVIEW_SIZE) {
+            throw new IllegalArgumentException("File quá lớn để xem trước");
+        }
+        return convertForPreview(taiLieu, path, extension);
+    }
+
+    private Path convertForPreview(TaiLieu taiLieu, Path path, String extension) throws IOException {
+        try {
+            return renderingScheduler.execute(RenderFormat.fromExtension(extension),
+                    () -> previewDerivativeService.ensureReady(taiLieu, path, extension));
+        } catch (RenderingTimeoutException e) {
+            // the cancelled job cannot record this itself, so back off here
+            previewDerivativeService.recordFailure(taiLieu.getId(), path, e);
+            throw e;
         }
-        throw new IllegalArgumentException("Chỉ hỗ trợ xem trước PDF, Word và PowerPoint");
+    }
+
+    private int snapPageWidth(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_PAGE_WIDTH;
+        }
+        for (int width : PAGE_WIDTHS) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return PAGE_WIDTHS.get(PAGE_WIDTHS.size() - 1);
+    }
+
+    private TaiLieu findViewableDocument(Long documentId, String viewerEmail, boolean viewerIsAdmin) {
+        TaiLieu taiLieu = taiLieuRepository.findById(documentId)
+                .orElseThrow(() -> new IllegalArgumentException("Tài liệu không tồn tại"));
+        User currentUser = findUserByEmail(viewerEmail);
+        if (!canViewDocument(taiLieu, currentUser, viewerIsAdmin)) {
+            throw new IllegalArgumentException("Tài liệu không tồn tại");
+        }
+        return taiLieu;
     }
 
     public List<DocumentReportResponse> listDocumentReportsForAdmin(Long documentId) {
@@ -774,10 +1022,6 @@ public class DocumentService {
         return user;
     }
 
-    private Path getStorageRoot() {
-        return Paths.get(uploadDir).toAbsolutePath().normalize();
-    }
-
     public byte[] generatePreview(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Empty file");
@@ -785,21 +1029,46 @@ public class DocumentService {
         if (file.getSize() > MAX_PREVIEW_SIZE) {
             throw new IllegalArgumentException("File too large for preview");
         }
-        byte[] data = file.getBytes();
-        return generatePreviewFromBytes(data, file.getOriginalFilename(), file.getContentType());
+        String filename = file.getOriginalFilename();
+        String extension = extractExtension(filename);
+        if (conversionWorkerPool.isEnabled() && DocumentConversionService.supportsPdfConversion(extension)) {
+            return renderingScheduler.execute(RenderFormat.fromExtension(extension),
+                    () -> generatePreviewInWorker(file, filename, extension));
+        }
+        return renderingScheduler.execute(RenderFormat.fromExtension(extension),
+                () -> generatePreviewFromBytes(file.getBytes(), filename, file.getContentType()));
+    }
+
+    /** Upload preview rendered by a conversion worker from a temporary copy of the upload. */
+    private byte[] generatePreviewInWorker(MultipartFile file, String filename, String extension) throws IOException {
+        Path temp = Files.createTempFile("upload-preview", "." + extension);
+        try {
+            file.transferTo(temp);
+            return conversionWorkerPool.renderPreview(temp, extension);
+        } catch (IOException e) {
+            byte[] placeholder = renderFormatPlaceholder(filename);
+            if (placeholder == null) {
+                throw e;
+            }
+            return placeholder;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
     }
 
     public byte[] generateStoredPreview(Long documentId) throws IOException {
         TaiLieu taiLieu = taiLieuRepository.findById(documentId)
                 .orElseThrow(() -> new IllegalArgumentException("Tài liệu không tồn tại"));
-        return generateStoredPreviewFor(taiLieu);
+        return generateStoredPreviewFor(taiLieu).png();
     }
 
     public byte[] generateStoredPreviewSafe(Long documentId) throws IOException {
         TaiLieu taiLieu = taiLieuRepository.findById(documentId)
                 .orElseThrow(() -> new IllegalArgumentException("Tài liệu không tồn tại"));
         try {
-            return generateStoredPreviewFor(taiLieu);
+            return generateStoredPreviewFor(taiLieu).png();
+        } catch (RenderingOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             return renderGenericPlaceholder(resolveDocumentDisplayName(taiLieu), "Preview fallback");
         }
@@ -821,11 +1090,13 @@ public class DocumentService {
     private void applyDocumentBasics(TaiLieu taiLieu, DocumentResponse response) {
         response.setId(taiLieu.getId());
         String tenTaiLieu = taiLieu.getTenTaiLieu();
-        response.setTitle(tenTaiLieu == null || tenTaiLieu.isBlank() ? taiLieu.getFileName() : tenTaiLieu);
-        response.setFilename(taiLieu.getFileName());
-        FileMetadata metadata = resolveFileMetadata(taiLieu);
-        response.setContentType(metadata.contentType());
-        response.setSize(metadata.size());
+        response.setTitle(tenTaiLieu == null || tenTaiLieu.isBlank() ? originalFileName(taiLieu) : tenTaiLieu);
+        response.setFilename(originalFileName(taiLieu));
+        // recorded at upload (or by the backfill for older rows), the file is not looked at
+        response.setContentType(recordedContentType(taiLieu));
+        response.setSize(taiLieu.getKichThuoc() == null ? 0L : taiLieu.getKichThuoc());
+        response.setVersion(recordedVersionTag(taiLieu));
+        response.setPageCount(taiLieu.getSoTrang());
         response.setCreatedAt(taiLieu.getThoiGianDang() == null ? LocalDateTime.now() : taiLieu.getThoiGianDang());
         response.setDownloadCount(taiLieu.getSoLuongNguoiTai() == null ? 0 : taiLieu.getSoLuongNguoiTai());
         if (taiLieu.getLoaiTaiLieu() != null) {
@@ -871,95 +1142,37 @@ public class DocumentService {
         return detail;
     }
 
-    private FileMetadata resolveFileMetadata(TaiLieu taiLieu) {
-        if (taiLieu.getFileName() == null || taiLieu.getFileName().isBlank()) {
-            return new FileMetadata(0L, "application/octet-stream");
-        }
-        Path path = getStorageRoot().resolve(taiLieu.getFileName());
-        long size = 0L;
-        String contentType = null;
-        if (Files.exists(path)) {
-            try {
-                size = Files.size(path);
-            } catch (IOException e) {
-                LOGGER.debug("Cannot determine file size for {}: {}", taiLieu.getFileName(), e.getMessage());
-            }
-            try {
-                contentType = Files.probeContentType(path);
-            } catch (IOException e) {
-                LOGGER.debug("Cannot detect content type for {}: {}", taiLieu.getFileName(), e.getMessage());
-            }
-        }
+    private String recordedContentType(TaiLieu taiLieu) {
+        String contentType = taiLieu.getKieuNoiDung();
         if (contentType == null) {
             contentType = guessContentTypeFromName(taiLieu.getFileName());
         }
-        return new FileMetadata(size, contentType == null ? "application/octet-stream" : contentType);
+        return contentType == null ? "application/octet-stream" : contentType;
+    }
+
+    /** Content type sniffed at upload, or probed from the file for documents stored before. */
+    private String storedContentType(TaiLieu taiLieu, Path path) throws IOException {
+        if (taiLieu.getKieuNoiDung() != null) {
+            return taiLieu.getKieuNoiDung();
+        }
+        String contentType = Files.probeContentType(path);
+        return contentType != null ? contentType : guessContentTypeFromName(taiLieu.getFileName());
     }
 
     private String guessContentTypeFromName(String filename) {
         if (filename == null || !filename.contains(".")) {
             return null;
         }
-        String ext = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
-        switch (ext) {
-            case "pdf":
-                return "application/pdf";
-            case "doc":
-                return "application/msword";
-            case "docx":
-                return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
-            case "ppt":
-                return "application/vnd.ms-powerpoint";
-            case "pptx":
-                return "application/vnd.openxmlformats-officedocument.presentationml.presentation";
-            case "xls":
-                return "application/vnd.ms-excel";
-            case "xlsx":
-                return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
-            case "zip":
-                return "application/zip";
-            case "rar":
-                return "application/vnd.rar";
-            case "7z":
-                return "application/x-7z-compressed";
-            default:
-                return null;
-        }
+        return FileFormatSniffer.contentTypeOf(filename.substring(filename.lastIndexOf('.') + 1));
     }
 
-    private record FileMetadata(long size, String contentType) {}
-
-    private java.util.Optional<LoaiTaiLieu> resolveLoaiTaiLieu(MultipartFile file) {
-        String categoryKey = detectCategoryKey(file);
+    /** Category from the sniffed format rather than the client-declared content type. */
+    private java.util.Optional<LoaiTaiLieu> resolveLoaiTaiLieu(String extension) {
+        String categoryKey = mapExtension(extension);
         if (categoryKey == null) return java.util.Optional.empty();
         return loaiTaiLieuRepository.findByTenLoaiTaiLieuIgnoreCase(categoryKey);
     }
 
-    private String detectCategoryKey(MultipartFile file) {
-        String contentType = file.getContentType();
-        if (contentType != null) {
-            String key = mapContentType(contentType.toLowerCase());
-            if (key != null) return key;
-        }
-        String originalName = file.getOriginalFilename();
-        if (originalName != null && originalName.contains(".")) {
-            String ext = originalName.substring(originalName.lastIndexOf('.') + 1).toLowerCase();
-            return mapExtension(ext);
-        }
-        return null;
-    }
-
-    private String mapContentType(String contentType) {
-        if (contentType.contains("pdf")) return "PDF";
-        if (contentType.contains("word") || contentType.contains("msword")) return "Word";
-        if (contentType.contains("presentation")) return "PowerPoint";
-        if (contentType.contains("excel") || contentType.contains("spreadsheet")) return "Excel";
-        if (contentType.contains("rar")) return "RAR";
-        if (contentType.contains("7z")) return "7Z";
-        if (contentType.contains("zip") || contentType.contains("compressed")) return "ZIP";
-        return null;
-    }
-
     private String mapExtension(String ext) {
         switch (ext) {
             case "pdf":
@@ -998,239 +1211,6 @@ public class DocumentService {
         return filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
     }
 
-    private byte[] renderPdfPreview(byte[] pdfBytes) throws IOException {
-        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(pdfBytes))) {
-            var renderer = new PDFRenderer(document);
-            BufferedImage image = renderer.renderImageWithDPI(0, 170, ImageType.RGB);
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", output);
-            return output.toByteArray();
-        }
-    }
-
-    private byte[] renderDocxPreview(byte[] docxBytes) throws IOException {
-        try (ByteArrayInputStream input = new ByteArrayInputStream(docxBytes)) {
-            WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.load(input);
-            ByteArrayOutputStream pdfOutput = new ByteArrayOutputStream();
-            Docx4J.toPDF(wordMLPackage, pdfOutput);
-            return renderPdfPreview(pdfOutput.toByteArray());
-        } catch (Docx4JException e) {
-            throw new IOException("Failed to render DOCX preview", e);
-        }
-    }
-
-    private byte[] convertDocxToPdf(byte[] docxBytes) throws IOException {
-        try (ByteArrayInputStream input = new ByteArrayInputStream(docxBytes)) {
-            WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.load(input);
-            ByteArrayOutputStream pdfOutput = new ByteArrayOutputStream();
-            Docx4J.toPDF(wordMLPackage, pdfOutput);
-            return pdfOutput.toByteArray();
-        } catch (Docx4JException e) {
-            throw new IOException("Failed to convert DOCX", e);
-        }
-    }
-
-    private byte[] renderDocPreview(byte[] docBytes) throws IOException {
-        try (ByteArrayInputStream input = new ByteArrayInputStream(docBytes);
-             HWPFDocument document = new HWPFDocument(input)) {
-            org.w3c.dom.Document foDocument = createSecureDocumentBuilder().newDocument();
-            WordToFoConverter converter = new WordToFoConverter(foDocument);
-            PicturesManager picturesManager = (content, pictureType, suggestedName, widthInches, heightInches) -> suggestedName;
-            converter.setPicturesManager(picturesManager);
-            converter.processDocument(document);
-
-            ByteArrayOutputStream foBuffer = new ByteArrayOutputStream();
-            Transformer serializer = TransformerFactory.newInstance().newTransformer();
-            serializer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-            serializer.transform(new DOMSource(converter.getDocument()), new StreamResult(foBuffer));
-
-            ByteArrayOutputStream pdfOutput = new ByteArrayOutputStream();
-            FOUserAgent foUserAgent = FOP_FACTORY.newFOUserAgent();
-            Fop fop = FOP_FACTORY.newFop(MimeConstants.MIME_PDF, foUserAgent, pdfOutput);
-            Transformer foTransformer = TransformerFactory.newInstance().newTransformer();
-            StreamSource foSource = new StreamSource(new ByteArrayInputStream(foBuffer.toByteArray()));
-            foTransformer.transform(foSource, new SAXResult(fop.getDefaultHandler()));
-
-            return renderPdfPreview(pdfOutput.toByteArray());
-        } catch (ParserConfigurationException | TransformerException | FOPException e) {
-            throw new IOException("Failed to render DOC preview", e);
-        }
-    }
-
-    private byte[] convertDocToPdf(byte[] docBytes) throws IOException {
-        try (ByteArrayInputStream input = new ByteArrayInputStream(docBytes);
-             HWPFDocument document = new HWPFDocument(input)) {
-            org.w3c.dom.Document foDocument = createSecureDocumentBuilder().newDocument();
-            WordToFoConverter converter = new WordToFoConverter(foDocument);
-            PicturesManager picturesManager = (content, pictureType, suggestedName, widthInches, heightInches) -> suggestedName;
-            converter.setPicturesManager(picturesManager);
-            converter.processDocument(document);
-
-            ByteArrayOutputStream foBuffer = new ByteArrayOutputStream();
-            Transformer serializer = TransformerFactory.newInstance().newTransformer();
-            serializer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-            serializer.transform(new DOMSource(converter.getDocument()), new StreamResult(foBuffer));
-
-            ByteArrayOutputStream pdfOutput = new ByteArrayOutputStream();
-            FOUserAgent foUserAgent = FOP_FACTORY.newFOUserAgent();
-            Fop fop = FOP_FACTORY.newFop(MimeConstants.MIME_PDF, foUserAgent, pdfOutput);
-            Transformer foTransformer = TransformerFactory.newInstance().newTransformer();
-            StreamSource foSource = new StreamSource(new ByteArrayInputStream(foBuffer.toByteArray()));
-            foTransformer.transform(foSource, new SAXResult(fop.getDefaultHandler()));
-
-            return pdfOutput.toByteArray();
-        } catch (ParserConfigurationException | TransformerException | FOPException e) {
-            throw new IOException("Failed to convert DOC", e);
-        }
-    }
-
-    private byte[] convertPptxToPdf(byte[] pptxBytes) throws IOException {
-        try (ByteArrayInputStream input = new ByteArrayInputStream(pptxBytes);
-             XMLSlideShow slideShow = new XMLSlideShow(input);
-             PDDocument pdf = new PDDocument()) {
-            List<XSLFSlide> slides = slideShow.getSlides();
-            if (slides.isEmpty()) {
-                throw new IOException("PowerPoint file does not contain slides");
-            }
-
-            Dimension size = slideShow.getPageSize();
-            if (size == null || size.width <= 0 || size.height <= 0) {
-                size = new Dimension(1600, 900);
-            }
-
-            for (XSLFSlide slide : slides) {
-                BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
-                Graphics2D graphics = image.createGraphics();
-                try {
-                    graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                    graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-                    graphics.setColor(Color.WHITE);
-                    graphics.fillRect(0, 0, size.width, size.height);
-                    slide.draw(graphics);
-                } finally {
-                    graphics.dispose();
-                }
-
-                PDPage page = new PDPage(new PDRectangle(size.width, size.height));
-                pdf.addPage(page);
-                PDImageXObject pdImage = LosslessFactory.createFromImage(pdf, image);
-                try (PDPageContentStream contentStream = new PDPageContentStream(pdf, page)) {
-                    contentStream.drawImage(pdImage, 0, 0, size.width, size.height);
-                }
-            }
-
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            pdf.save(output);
-            return output.toByteArray();
-        }
-    }
-
-    private byte[] convertPptToPdf(byte[] pptBytes) throws IOException {
-        try (ByteArrayInputStream input = new ByteArrayInputStream(pptBytes);
-             HSLFSlideShow slideShow = new HSLFSlideShow(input);
-             PDDocument pdf = new PDDocument()) {
-            List<HSLFSlide> slides = slideShow.getSlides();
-            if (slides.isEmpty()) {
-                throw new IOException("PowerPoint file does not contain slides");
-            }
-
-            Dimension size = slideShow.getPageSize();
-            if (size == null || size.width <= 0 || size.height <= 0) {
-                size = new Dimension(1600, 900);
-            }
-
-            for (HSLFSlide slide : slides) {
-                BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
-                Graphics2D graphics = image.createGraphics();
-                try {
-                    graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                    graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-                    graphics.setColor(Color.WHITE);
-                    graphics.fillRect(0, 0, size.width, size.height);
-                    slide.draw(graphics);
-                } finally {
-                    graphics.dispose();
-                }
-
-                PDPage page = new PDPage(new PDRectangle(size.width, size.height));
-                pdf.addPage(page);
-                PDImageXObject pdImage = LosslessFactory.createFromImage(pdf, image);
-                try (PDPageContentStream contentStream = new PDPageContentStream(pdf, page)) {
-                    contentStream.drawImage(pdImage, 0, 0, size.width, size.height);
-                }
-            }
-
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            pdf.save(output);
-            return output.toByteArray();
-        }
-    }
-
-    private byte[] renderPptxPreview(byte[] pptxBytes) throws IOException {
-        try (ByteArrayInputStream input = new ByteArrayInputStream(pptxBytes);
-             XMLSlideShow slideShow = new XMLSlideShow(input)) {
-            if (slideShow.getSlides().isEmpty()) {
-                throw new IOException("PowerPoint file does not contain slides");
-            }
-            Dimension size = slideShow.getPageSize();
-            if (size == null || size.width <= 0 || size.height <= 0) {
-                size = new Dimension(1600, 900);
-            }
-            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
-            Graphics2D graphics = image.createGraphics();
-            try {
-                graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                graphics.setColor(Color.WHITE);
-                graphics.fillRect(0, 0, size.width, size.height);
-                XSLFSlide slide = slideShow.getSlides().get(0);
-                slide.draw(graphics);
-            } finally {
-                graphics.dispose();
-            }
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", output);
-            return output.toByteArray();
-        }
-    }
-
-    private byte[] renderPptPreview(byte[] pptBytes) throws IOException {
-        try (ByteArrayInputStream input = new ByteArrayInputStream(pptBytes);
-             HSLFSlideShow slideShow = new HSLFSlideShow(input)) {
-            if (slideShow.getSlides().isEmpty()) {
-                throw new IOException("PowerPoint file does not contain slides");
-            }
-            Dimension size = slideShow.getPageSize();
-            if (size == null || size.width <= 0 || size.height <= 0) {
-                size = new Dimension(1600, 900);
-            }
-            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
-            Graphics2D graphics = image.createGraphics();
-            try {
-                graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                graphics.setColor(Color.WHITE);
-                graphics.fillRect(0, 0, size.width, size.height);
-                HSLFSlide slide = slideShow.getSlides().get(0);
-                slide.draw(graphics);
-            } finally {
-                graphics.dispose();
-            }
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", output);
-            return output.toByteArray();
-        }
-    }
-
-    private DocumentBuilder createSecureDocumentBuilder() throws ParserConfigurationException {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        factory.setNamespaceAware(true);
-        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
-        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-        return factory.newDocumentBuilder();
-    }
-
     private byte[] renderWordPlaceholder(String filename, String subtitle) throws IOException {
         int width = 1200;
         int height = 675;
@@ -1316,74 +1296,143 @@ public class DocumentService {
     public byte[] generatePreviewSafe(MultipartFile file) throws IOException {
         try {
             return generatePreview(file);
+        } catch (RenderingOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             return renderGenericPlaceholder(file.getOriginalFilename(), "Preview fallback");
         }
     }
 
+    /**
+     * Upload preview: conversion failures of Word/PowerPoint files fall back to a placeholder.
+     * POI reports corrupt files with IllegalArgumentException subclasses too, so only the checks
+     * made here before parsing reach the caller as such.
+     */
     private byte[] generatePreviewFromBytes(byte[] data, String filename, String contentType) throws IOException {
+        String extension = previewExtension(data, filename, contentType);
+        try {
+            return documentConversionService.renderPreview(data, extension);
+        } catch (Exception e) {
+            byte[] placeholder = renderFormatPlaceholder(filename);
+            if (placeholder == null) {
+                throw e;
+            }
+            return placeholder;
+        }
+    }
+
+    private byte[] renderPreviewFromBytes(byte[] data, String filename, String contentType) throws IOException {
+        return documentConversionService.renderPreview(data, previewExtension(data, filename, contentType));
+    }
+
+    private String previewExtension(byte[] data, String filename, String contentType) {
         if (data == null || data.length == 0) {
             throw new IllegalArgumentException("Empty file");
         }
         String normalizedContentType = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
         String extension = extractExtension(filename);
-
         if (isPdf(normalizedContentType, extension)) {
-            return renderPdfPreview(data);
+            return "pdf";
         }
-        if ("docx".equals(extension)) {
-            try {
-                return renderDocxPreview(data);
-            } catch (Exception e) {
-                return renderWordPlaceholder(filename, "DOCX preview fallback");
-            }
+        if (!DocumentConversionService.supportsPdfConversion(extension)) {
+            throw new IllegalArgumentException("Preview not supported for this format");
         }
-        if ("doc".equals(extension)) {
-            try {
-                return renderDocPreview(data);
-            } catch (Exception e) {
+        return extension;
+    }
+
+    /** Placeholder matching the document family, or null when there is none for this format. */
+    private byte[] renderFormatPlaceholder(String filename) throws IOException {
+        switch (extractExtension(filename)) {
+            case "docx":
+                return renderWordPlaceholder(filename, "DOCX preview fallback");
+            case "doc":
                 return renderWordPlaceholder(filename, "DOC preview fallback");
-            }
-        }
-        if ("pptx".equals(extension)) {
-            try {
-                return renderPptxPreview(data);
-            } catch (Exception e) {
+            case "pptx":
                 return renderPowerPointPlaceholder(filename, "PPTX preview fallback");
-            }
-        }
-        if ("ppt".equals(extension)) {
-            try {
-                return renderPptPreview(data);
-            } catch (Exception e) {
+            case "ppt":
                 return renderPowerPointPlaceholder(filename, "PPT preview fallback");
-            }
+            default:
+                return null;
         }
-        throw new IllegalArgumentException("Preview not supported for this format");
     }
 
-    private byte[] generateStoredPreviewFor(TaiLieu taiLieu) throws IOException {
+    /**
+     * Cover of a stored document. Conversion failures are recorded per file version; until the
+     * next retry is due the cached placeholder is returned without parsing the file again.
+     */
+    private CoverImage generateStoredPreviewFor(TaiLieu taiLieu) throws IOException {
+        // the fingerprint comes from the stored object, so a cached cover needs no local copy
+        BlobInfo info = blobStoreService.stat(taiLieu.getFileName())
+                .orElseThrow(() -> new IllegalArgumentException("File không tồn tại trên hệ thống"));
+        String fingerprint = PreviewCacheService.fingerprintOf(info.size(), info.lastModified());
+        var cached = previewCacheService.get(taiLieu.getId(), fingerprint, THUMBNAIL_VARIANT);
+        if (cached.isPresent()) {
+            return new CoverImage(cached.get(), false);
+        }
+        if (previewFailureService.isBlocked(taiLieu.getId(), PreviewFailureService.STAGE_COVER, fingerprint)) {
+            return failedCover(taiLieu, fingerprint);
+        }
+        String contentType = storedContentType(taiLieu, blobStoreService.resolve(taiLieu.getFileName()));
+        String extension = extractExtension(taiLieu.getFileName());
+        boolean pdf = isPdf(contentType != null ? contentType.toLowerCase(Locale.ROOT) : "", extension);
+        // PDFs are read from disk page by page; other formats are still parsed from memory.
+        if (!pdf && info.size() > MAX_PREVIEW_SIZE) {
+            throw new IllegalArgumentException("File quá lớn để dựng ảnh bìa");
+        }
         Path path = getPath(taiLieu);
         if (!Files.exists(path)) {
             throw new IllegalArgumentException("File không tồn tại trên hệ thống");
         }
-        long size = Files.size(path);
-        if (size > MAX_PREVIEW_SIZE) {
-            throw new IllegalArgumentException("File quá lớn để dựng ảnh bìa");
+        byte[] png;
+        try {
+            png = renderingScheduler.execute(RenderFormat.fromExtension(extension), () -> {
+                if (pdf) {
+                    return documentConversionService.renderPdfPreview(path);
+                }
+                if (conversionWorkerPool.isEnabled() && DocumentConversionService.supportsPdfConversion(extension)) {
+                    return conversionWorkerPool.renderPreview(path, extension);
+                }
+                return renderPreviewFromBytes(Files.readAllBytes(path), taiLieu.getFileName(), contentType);
+            });
+        } catch (RenderingOverloadedException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            // whatever the task threw is about this file, including POI's IllegalArgumentExceptions
+            LOGGER.warn("Không thể dựng ảnh bìa cho tài liệu {}: {}", taiLieu.getId(), e.getMessage());
+            previewFailureService.recordFailure(taiLieu.getId(), PreviewFailureService.STAGE_COVER, fingerprint, e);
+            return failedCover(taiLieu, fingerprint);
         }
-        byte[] data = Files.readAllBytes(path);
-        String contentType = Files.probeContentType(path);
-        if (contentType == null) {
-            contentType = guessContentTypeFromName(taiLieu.getFileName());
+        previewFailureService.clear(taiLieu.getId(), PreviewFailureService.STAGE_COVER);
+        previewCacheService.put(taiLieu.getId(), fingerprint, THUMBNAIL_VARIANT, png);
+        return new CoverImage(png, false);
+    }
+
+    private CoverImage failedCover(TaiLieu taiLieu, String fingerprint) throws IOException {
+        var cached = previewCacheService.get(taiLieu.getId(), fingerprint, FAILED_THUMBNAIL_VARIANT);
+        if (cached.isPresent()) {
+            return new CoverImage(cached.get(), true);
         }
-        return generatePreviewFromBytes(data, taiLieu.getFileName(), contentType);
+        byte[] placeholder = renderFormatPlaceholder(originalFileName(taiLieu));
+        if (placeholder == null) {
+            placeholder = renderGenericPlaceholder(resolveDocumentDisplayName(taiLieu), "Preview fallback");
+        }
+        previewCacheService.put(taiLieu.getId(), fingerprint, FAILED_THUMBNAIL_VARIANT, placeholder);
+        return new CoverImage(placeholder, true);
     }
 
+    private record CoverImage(byte[] png, boolean placeholder) {}
+
     private String resolveDocumentDisplayName(TaiLieu taiLieu) {
         if (taiLieu.getTenTaiLieu() != null && !taiLieu.getTenTaiLieu().isBlank()) {
             return taiLieu.getTenTaiLieu();
         }
-        return taiLieu.getFileName() != null ? taiLieu.getFileName() : "document";
+        String fileName = originalFileName(taiLieu);
+        return fileName != null ? fileName : "document";
+    }
+
+    /** Name the file was uploaded with; legacy rows only have their stored {@code <millis>_<name>}. */
+    private String originalFileName(TaiLieu taiLieu) {
+        return taiLieu.getTenFileGoc() != null ? taiLieu.getTenFileGoc() : taiLieu.getFileName();
     }
 
     private byte[] renderGenericPlaceholder(String filename, String subtitle) throws IOException {
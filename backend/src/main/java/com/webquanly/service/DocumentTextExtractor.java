@@ -0,0 +1,403 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.hpsf.SummaryInformation;
+import org.apache.poi.hslf.usermodel.HSLFSlide;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hslf.usermodel.HSLFTextParagraph;
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.extractor.WordExtractor;
+import org.apache.poi.ooxml.POIXMLProperties;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the plain text, page or slide count, author and title of a stored file in one pass.
+ * Text goes into a sink capped at {@code extraction.max-text-chars}: once it is full the parse
+ * stops, so a huge file costs no more than the cap. PDFs are opened with the same spill-to-disk
+ * memory setting as previews, and OOXML parts are streamed through SAX rather than loaded as a
+ * DOM.
+ */
+@Component
+public class DocumentTextExtractor {
+
+    private static final int PDF_PAGES_PER_CHUNK = 20;
+    private static final String RELATIONSHIPS_NS =
+            "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String STRICT_RELATIONSHIPS_NS =
+            "http://purl.oclc.org/ooxml/officeDocument/relationships";
+
+    private final DocumentConversionService documentConversionService;
+
+    @Value("${extraction.max-text-chars:100000}")
+    private int maxTextChars;
+
+    public DocumentTextExtractor(DocumentConversionService documentConversionService) {
+        this.documentConversionService = documentConversionService;
+    }
+
+    public record Extraction(String text, boolean truncated, String author, String title, Integer pageCount) {}
+
+    public static boolean supports(String extension) {
+        return switch (extension == null ? "" : extension.toLowerCase(Locale.ROOT)) {
+            case "pdf", "doc", "docx", "ppt", "pptx" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @param deadline {@link System#nanoTime()} after which the parse is abandoned
+     * @throws IOException when the file cannot be read or the deadline passes
+     */
+    public Extraction extract(Path file, String extension, long deadline) throws IOException {
+        TextSink sink = new TextSink(maxTextChars, deadline);
+        Metadata metadata;
+        switch (extension.toLowerCase(Locale.ROOT)) {
+            case "pdf" -> metadata = extractPdf(file, sink);
+            case "docx" -> metadata = extractDocx(file, sink);
+            case "pptx" -> metadata = extractPptx(file, sink);
+            case "doc" -> metadata = extractDoc(file, sink);
+            case "ppt" -> metadata = extractPpt(file, sink);
+            default -> throw new IllegalArgumentException("Unsupported format: " + extension);
+        }
+        return new Extraction(sink.text(), sink.isTruncated(),
+                clean(metadata.author(), 255), clean(metadata.title(), 500), metadata.pageCount());
+    }
+
+    private Metadata extractPdf(Path file, TextSink sink) throws IOException {
+        try (PDDocument document = documentConversionService.loadPdf(file)) {
+            int pages = document.getNumberOfPages();
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setSortByPosition(false);
+            // a page range at a time, so the deadline is checked even on pages without text
+            for (int start = 1; start <= pages && !sink.isFull(); start += PDF_PAGES_PER_CHUNK) {
+                sink.checkDeadline();
+                stripper.setStartPage(start);
+                stripper.setEndPage(Math.min(pages, start + PDF_PAGES_PER_CHUNK - 1));
+                try {
+                    stripper.writeText(document, sink);
+                } catch (SinkFullException ex) {
+                    break;
+                }
+            }
+            PDDocumentInformation info = document.getDocumentInformation();
+            return new Metadata(info.getAuthor(), info.getTitle(), pages);
+        }
+    }
+
+    private Metadata extractDocx(Path file, TextSink sink) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            PackagePart main = mainPart(pkg);
+            parse(main, new OoxmlTextHandler(sink));
+            POIXMLProperties properties = new POIXMLProperties(pkg);
+            int pages = properties.getExtendedProperties().getPages();
+            return new Metadata(properties.getCoreProperties().getCreator(),
+                    properties.getCoreProperties().getTitle(), pages > 0 ? pages : null);
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Cannot read DOCX: " + ex.getMessage(), ex);
+        }
+    }
+
+    /** Slides in presentation order (the sldIdLst of presentation.xml), one SAX pass each. */
+    private Metadata extractPptx(Path file, TextSink sink) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            PackagePart presentation = mainPart(pkg);
+            List<String> slideRelationIds = new ArrayList<>();
+            parse(presentation, new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("sldId".equals(localName)) {
+                        String id = attributes.getValue(RELATIONSHIPS_NS, "id");
+                        if (id == null) {
+                            id = attributes.getValue(STRICT_RELATIONSHIPS_NS, "id");
+                        }
+                        if (id != null) {
+                            slideRelationIds.add(id);
+                        }
+                    }
+                }
+            });
+            for (String relationId : slideRelationIds) {
+                if (sink.isFull()) {
+                    break;
+                }
+                sink.checkDeadline();
+                PackageRelationship relationship = presentation.getRelationship(relationId);
+                PackagePart slide = relationship == null ? null : presentation.getRelatedPart(relationship);
+                if (slide != null) {
+                    parse(slide, new OoxmlTextHandler(sink));
+                    sink.append('\n');
+                }
+            }
+            POIXMLProperties properties = new POIXMLProperties(pkg);
+            return new Metadata(properties.getCoreProperties().getCreator(),
+                    properties.getCoreProperties().getTitle(), slideRelationIds.size());
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Cannot read PPTX: " + ex.getMessage(), ex);
+        }
+    }
+
+    private Metadata extractDoc(Path file, TextSink sink) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file.toFile(), true);
+             HWPFDocument document = new HWPFDocument(fs.getRoot())) {
+            WordExtractor extractor = new WordExtractor(document);
+            for (String paragraph : extractor.getParagraphText()) {
+                if (!sink.appendQuietly(WordExtractor.stripFields(paragraph))) {
+                    break;
+                }
+            }
+            SummaryInformation info = document.getSummaryInformation();
+            if (info == null) {
+                return new Metadata(null, null, null);
+            }
+            return new Metadata(info.getAuthor(), info.getTitle(), info.getPageCount() > 0 ? info.getPageCount() : null);
+        }
+    }
+
+    private Metadata extractPpt(Path file, TextSink sink) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file.toFile(), true);
+             HSLFSlideShow slideShow = new HSLFSlideShow(fs.getRoot())) {
+            List<HSLFSlide> slides = slideShow.getSlides();
+            slides:
+            for (HSLFSlide slide : slides) {
+                for (List<HSLFTextParagraph> paragraphs : slide.getTextParagraphs()) {
+                    if (!sink.appendQuietly(HSLFTextParagraph.getText(paragraphs))
+                            || !sink.appendQuietly("\n")) {
+                        break slides;
+                    }
+                }
+                if (!sink.appendQuietly("\n")) {
+                    break;
+                }
+            }
+            SummaryInformation info = slideShow.getSummaryInformation();
+            return new Metadata(info == null ? null : info.getAuthor(), info == null ? null : info.getTitle(), slides.size());
+        }
+    }
+
+    private static PackagePart mainPart(OPCPackage pkg) throws IOException {
+        PackageRelationshipCollection relationships = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+        if (relationships.size() == 0) {
+            relationships = pkg.getRelationshipsByType(PackageRelationshipTypes.STRICT_CORE_DOCUMENT);
+        }
+        PackagePart main = relationships.size() == 0 ? null : pkg.getPart(relationships.getRelationship(0));
+        if (main == null) {
+            throw new IOException("Package has no main document part");
+        }
+        return main;
+    }
+
+    private static void parse(PackagePart part, DefaultHandler handler) throws IOException {
+        try (InputStream in = part.getInputStream()) {
+            newSecureParser().parse(in, handler);
+        } catch (SAXException ex) {
+            if (ex.getCause() instanceof SinkFullException) {
+                return;
+            }
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Cannot parse " + part.getPartName() + ": " + ex.getMessage(), ex);
+        } catch (ParserConfigurationException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private static SAXParser newSecureParser() throws ParserConfigurationException, SAXException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        return factory.newSAXParser();
+    }
+
+    private static String clean(String value, int maxLength) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.strip().replace('\u0000', ' ');
+        return trimmed.length() <= maxLength ? trimmed : trimmed.substring(0, maxLength);
+    }
+
+    private record Metadata(String author, String title, Integer pageCount) {}
+
+    /**
+     * Text runs ({@code t}) of WordprocessingML and DrawingML, with tabs and breaks kept and a
+     * newline after each paragraph. Runs outside {@code t}, such as field codes, are skipped.
+     */
+    private static final class OoxmlTextHandler extends DefaultHandler {
+        private final TextSink sink;
+        private boolean inText;
+
+        OoxmlTextHandler(TextSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            switch (localName) {
+                case "t" -> inText = true;
+                case "tab" -> write("\t");
+                case "br", "cr" -> write("\n");
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if ("t".equals(localName)) {
+                inText = false;
+            } else if ("p".equals(localName)) {
+                write("\n");
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (inText) {
+                try {
+                    sink.write(ch, start, length);
+                } catch (IOException ex) {
+                    throw new SAXException(ex);
+                }
+            }
+        }
+
+        private void write(String text) throws SAXException {
+            try {
+                sink.write(text);
+            } catch (IOException ex) {
+                throw new SAXException(ex);
+            }
+        }
+    }
+
+    /** Thrown by the sink once the cap is reached, to stop the parser feeding it. */
+    private static final class SinkFullException extends IOException {
+        SinkFullException() {
+            super("Text limit reached", null);
+        }
+    }
+
+    /**
+     * Collects text up to a character cap. Control characters other than tab and newline are
+     * dropped (PostgreSQL text cannot hold NUL), and runs of blank lines are kept to one.
+     */
+    private static final class TextSink extends Writer {
+        private final StringBuilder text = new StringBuilder();
+        private final int maxChars;
+        private final long deadline;
+        private boolean truncated;
+        private int newlines;
+
+        TextSink(int maxChars, long deadline) {
+            this.maxChars = Math.max(0, maxChars);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            checkDeadline();
+            if (truncated) {
+                throw new SinkFullException();
+            }
+            for (int i = offset; i < offset + length; i++) {
+                char c = buffer[i];
+                if (c == '\r') {
+                    c = '\n';
+                } else if (Character.isISOControl(c) && c != '\n' && c != '\t') {
+                    continue;
+                }
+                if (c == '\n') {
+                    if (++newlines > 2 || text.length() == 0) {
+                        continue;
+                    }
+                } else {
+                    newlines = 0;
+                }
+                if (text.length() >= maxChars) {
+                    truncated = true;
+                    throw new SinkFullException();
+                }
+                text.append(c);
+            }
+        }
+
+        /** Appends without failing on the cap; false once it is reached. */
+        boolean appendQuietly(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return !truncated;
+            }
+            try {
+                write(value);
+                return true;
+            } catch (SinkFullException ex) {
+                return false;
+            }
+        }
+
+        boolean isFull() {
+            return truncated;
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        void checkDeadline() throws IOException {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IOException("Extraction timed out");
+            }
+        }
+
+        String text() {
+            return text.toString().strip();
+        }
+
+        @Override
+        public Writer append(char c) throws IOException {
+            appendQuietly(String.valueOf(c));
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.webquanly.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Recognises the document formats accepted for upload from the first bytes of the file, so the
+ * stored extension and content type do not depend on what the client claims.
+ */
+public final class FileFormatSniffer {
+
+    private static final byte[] PDF = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OLE2 = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+    private static final byte[] ZIP = {'P', 'K', 0x03, 0x04};
+    private static final byte[] EMPTY_ZIP = {'P', 'K', 0x05, 0x06};
+    private static final byte[] RAR = {'R', 'a', 'r', '!', 0x1A, 0x07};
+    private static final byte[] SEVEN_ZIP = {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C};
+    // PDF readers accept the header anywhere in the first kilobyte
+    private static final int PDF_HEADER_WINDOW = 1024;
+
+    private static final Set<String> OLE2_FORMATS = Set.of("doc", "ppt", "xls");
+    private static final Set<String> OOXML_FORMATS = Set.of("docx", "pptx", "xlsx");
+
+    private FileFormatSniffer() {
+    }
+
+    /**
+     * Detects the format of a file from its leading bytes.
+     *
+     * @param head     the first bytes of the file (the more, the better OOXML/OLE2 are told apart)
+     * @param declared extension of the uploaded file name, used when the bytes fit several formats
+     * @return the lower-case extension of the detected format, empty when it is not recognised
+     */
+    public static Optional<String> detect(byte[] head, String declared) {
+        String declaredExtension = declared == null ? "" : declared.toLowerCase(Locale.ROOT);
+        if (indexOf(head, PDF, PDF_HEADER_WINDOW) >= 0) {
+            return Optional.of("pdf");
+        }
+        if (startsWith(head, OLE2)) {
+            return detectOle2(head, declaredExtension);
+        }
+        if (startsWith(head, ZIP) || startsWith(head, EMPTY_ZIP)) {
+            return Optional.of(detectZip(head, declaredExtension));
+        }
+        if (startsWith(head, RAR)) {
+            return Optional.of("rar");
+        }
+        if (startsWith(head, SEVEN_ZIP)) {
+            return Optional.of("7z");
+        }
+        return Optional.empty();
+    }
+
+    public static String contentTypeOf(String extension) {
+        if (extension == null) {
+            return null;
+        }
+        switch (extension.toLowerCase(Locale.ROOT)) {
+            case "pdf":
+                return "application/pdf";
+            case "doc":
+                return "application/msword";
+            case "docx":
+                return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+            case "ppt":
+                return "application/vnd.ms-powerpoint";
+            case "pptx":
+                return "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+            case "xls":
+                return "application/vnd.ms-excel";
+            case "xlsx":
+                return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+            case "zip":
+                return "application/zip";
+            case "rar":
+                return "application/vnd.rar";
+            case "7z":
+                return "application/x-7z-compressed";
+            default:
+                return null;
+        }
+    }
+
+    private static Optional<String> detectOle2(byte[] head, String declared) {
+        // the stream names live in the directory sector, which is usually near the start
+        if (indexOf(head, utf16("WordDocument"), head.length) >= 0) {
+            return Optional.of("doc");
+        }
+        if (indexOf(head, utf16("PowerPoint Document"), head.length) >= 0) {
+            return Optional.of("ppt");
+        }
+        if (indexOf(head, utf16("Workbook"), head.length) >= 0 || indexOf(head, utf16("Book"), head.length) >= 0) {
+            return Optional.of("xls");
+        }
+        return OLE2_FORMATS.contains(declared) ? Optional.of(declared) : Optional.empty();
+    }
+
+    private static String detectZip(byte[] head, String declared) {
+        // Office writes [Content_Types].xml and the part folders as the first entries
+        if (indexOf(head, ascii("[Content_Types].xml"), head.length) >= 0) {
+            if (indexOf(head, ascii("word/"), head.length) >= 0) {
+                return "docx";
+            }
+            if (indexOf(head, ascii("ppt/"), head.length) >= 0) {
+                return "pptx";
+            }
+            if (indexOf(head, ascii("xl/"), head.length) >= 0) {
+                return "xlsx";
+            }
+        }
+        return OOXML_FORMATS.contains(declared) ? declared : "zip";
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int window) {
+        int limit = Math.min(data.length, window) - pattern.length;
+        outer:
+        for (int i = 0; i <= limit; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] utf16(String value) {
+        return value.getBytes(StandardCharsets.UTF_16LE);
+    }
+}
@@ -1,15 +1,16 @@
 package com.webquanly.service;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.webquanly.dto.MonHocRequest;
 import com.webquanly.dto.MonHocResponse;
+import com.webquanly.event.DocumentChangedEvent;
+import com.webquanly.event.SubjectChangedEvent;
+import com.webquanly.event.SubjectDeletedEvent;
 import com.webquanly.exception.ResourceNotFoundException;
 import com.webquanly.model.MonHoc;
 import com.webquanly.model.TaiLieu;
@@ -22,29 +23,23 @@ public class MonHocService {
     private final MonHocRepository monHocRepository;
     private final TaiLieuRepository taiLieuRepository;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SubjectCatalogService subjectCatalogService;
 
     public MonHocService(MonHocRepository monHocRepository,
                          TaiLieuRepository taiLieuRepository,
-                         NotificationService notificationService) {
+                         NotificationService notificationService,
+                         ApplicationEventPublisher eventPublisher,
+                         SubjectCatalogService subjectCatalogService) {
         this.monHocRepository = monHocRepository;
         this.taiLieuRepository = taiLieuRepository;
         this.notificationService = notificationService;
+        this.eventPublisher = eventPublisher;
+        this.subjectCatalogService = subjectCatalogService;
     }
 
     public List<MonHocResponse> getAllWithStats() {
-        Map<Long, Long> counts = new HashMap<>();
-
-        taiLieuRepository.countDocumentsByMonHoc(DocumentService.REVIEW_APPROVED).forEach(row ->
-            counts.merge(row.getMonHocId(), row.getTotal(), Long::sum)
-        );
-
-        return monHocRepository.findAll().stream()
-            .map(monHoc -> new MonHocResponse(
-                monHoc.getId(),
-                monHoc.getTenMonHoc(),
-                counts.getOrDefault(monHoc.getId(), 0L)
-            ))
-            .collect(Collectors.toList());
+        return subjectCatalogService.getAll();
     }
 
     public MonHocResponse createSubject(MonHocRequest request) {
@@ -57,6 +52,7 @@ public class MonHocService {
         MonHoc monHoc = new MonHoc();
         monHoc.setTenMonHoc(tenMonHoc);
         MonHoc saved = monHocRepository.save(monHoc);
+        eventPublisher.publishEvent(new SubjectChangedEvent(saved.getId()));
 
         return new MonHocResponse(saved.getId(), saved.getTenMonHoc(), 0L);
     }
@@ -75,6 +71,7 @@ public class MonHocService {
 
         existing.setTenMonHoc(tenMonHoc);
         MonHoc saved = monHocRepository.save(existing);
+        eventPublisher.publishEvent(new SubjectChangedEvent(saved.getId()));
         long documentCount = taiLieuRepository.countApprovedOrUnsetByMonHoc(
             saved.getId(), DocumentService.REVIEW_APPROVED
         );
@@ -94,8 +91,11 @@ public class MonHocService {
                 notificationService.notifyPendingSubjectSelection(doc, existing.getTenMonHoc());
             });
             taiLieuRepository.saveAll(documents);
+            documents.forEach(doc -> eventPublisher.publishEvent(
+                new DocumentChangedEvent(doc.getId(), id, doc.getTrangThaiKiemDuyet(), null, doc.getTrangThaiKiemDuyet())));
         }
         monHocRepository.delete(existing);
+        eventPublisher.publishEvent(new SubjectDeletedEvent(id));
     }
 
     private void validateName(String tenMonHoc) {
@@ -233,7 +233,7 @@ public class NotificationService {
     }
 
     private String buildPendingSubjectMessage(TaiLieu document, String removedSubjectName) {
-        String title = document.getTenTaiLieu() != null ? document.getTenTaiLieu() : document.getFileName();
+        String title = document.getTenTaiLieu() != null ? document.getTenTaiLieu() : fileNameOf(document);
         String subject = removedSubjectName != null ? removedSubjectName : "môn học đã xóa";
         return String.format(Locale.ROOT,
                 "\"%s\" cần chọn môn học mới vì %s không còn tồn tại.",
@@ -242,7 +242,7 @@ public class NotificationService {
     }
 
     private String buildCommentReportMessage(TaiLieu document, BinhLuan comment, User reporter, String reason) {
-        String title = document.getTenTaiLieu() != null ? document.getTenTaiLieu() : document.getFileName();
+        String title = document.getTenTaiLieu() != null ? document.getTenTaiLieu() : fileNameOf(document);
         String reporterName = (reporter != null && reporter.getTenUser() != null && !reporter.getTenUser().isBlank())
                 ? reporter.getTenUser()
                 : "Một người dùng";
@@ -271,7 +271,7 @@ public class NotificationService {
     private String buildDocumentReportMessage(TaiLieu document, User reporter, String reason) {
         String title = document.getTenTaiLieu();
         if (title == null || title.isBlank()) {
-            title = document.getFileName();
+            title = fileNameOf(document);
         }
         if (title == null || title.isBlank()) {
             title = "tài liệu";
@@ -296,7 +296,7 @@ public class NotificationService {
     private String buildDocumentRemovalMessage(TaiLieu document, String reason) {
         String title = document.getTenTaiLieu();
         if (title == null || title.isBlank()) {
-            title = document.getFileName();
+            title = fileNameOf(document);
         }
         if (title == null || title.isBlank()) {
             title = "tài liệu";
@@ -313,7 +313,7 @@ public class NotificationService {
     private String buildDocumentReviewApprovedMessage(TaiLieu document) {
         String title = document.getTenTaiLieu();
         if (title == null || title.isBlank()) {
-            title = document.getFileName();
+            title = fileNameOf(document);
         }
         if (title == null || title.isBlank()) {
             title = "tài liệu";
@@ -326,7 +326,7 @@ public class NotificationService {
     private String buildDocumentReviewRejectedMessage(TaiLieu document, String reason) {
         String title = document.getTenTaiLieu();
         if (title == null || title.isBlank()) {
-            title = document.getFileName();
+            title = fileNameOf(document);
         }
         if (title == null || title.isBlank()) {
             title = "tài liệu";
@@ -340,7 +340,7 @@ public class NotificationService {
     private String buildPendingReviewAlertMessage(TaiLieu document, long pendingCount) {
         String title = document.getTenTaiLieu();
         if (title == null || title.isBlank()) {
-            title = document.getFileName();
+            title = fileNameOf(document);
         }
         if (title == null || title.isBlank()) {
             title = "tài liệu";
@@ -368,7 +368,7 @@ public class NotificationService {
         TaiLieu document = comment.getTaiLieu();
         String title = document != null ? document.getTenTaiLieu() : null;
         if ((title == null || title.isBlank()) && document != null) {
-            title = document.getFileName();
+            title = fileNameOf(document);
         }
         String base;
         if (title == null || title.isBlank()) {
@@ -387,7 +387,7 @@ public class NotificationService {
     private String buildDocumentSubjectChangeMessage(TaiLieu document, String previousSubjectName, String newSubjectName) {
         String title = document.getTenTaiLieu();
         if (title == null || title.isBlank()) {
-            title = document.getFileName();
+            title = fileNameOf(document);
         }
         if (title == null || title.isBlank()) {
             title = "tài liệu";
@@ -466,4 +466,8 @@ public class NotificationService {
         return userRepository.findByEmailIgnoreCase(email)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng"));
     }
+
+    private String fileNameOf(TaiLieu document) {
+        return document.getTenFileGoc() != null ? document.getTenFileGoc() : document.getFileName();
+    }
 }
@@ -0,0 +1,274 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.webquanly.dto.admin.AdminPreviewCacheStats;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Durable cache for rendered preview images.
+ *
+ * Entries live under {@code <cache-dir>/<documentId>/<fingerprint>_<variant>} so that every
+ * entry of a document can be dropped at once. The in-memory index only keeps paths and sizes
+ * in access order; it is rebuilt from the directory (oldest first) on startup.
+ */
+@Service
+public class PreviewCacheService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreviewCacheService.class);
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @Value("${preview.cache.dir:storage/previews}")
+    private String cacheDir;
+
+    @Value("${preview.cache.max-size-mb:512}")
+    private long maxSizeMb;
+
+    private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void loadIndex() {
+        Path root = getCacheRoot();
+        try {
+            Files.createDirectories(root);
+        } catch (IOException ex) {
+            LOGGER.warn("Không thể tạo thư mục cache preview {}: {}", root, ex.getMessage());
+            return;
+        }
+        List<CachedFile> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    deleteQuietly(file);
+                    return;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    existing.add(new CachedFile(file, attributes.size(), attributes.lastModifiedTime()));
+                } catch (IOException ex) {
+                    LOGGER.debug("Bỏ qua tệp cache {}: {}", file, ex.getMessage());
+                }
+            });
+        } catch (IOException ex) {
+            LOGGER.warn("Không thể đọc thư mục cache preview {}: {}", root, ex.getMessage());
+            return;
+        }
+        existing.sort(Comparator.comparing(CachedFile::lastUsed));
+        synchronized (this) {
+            index.clear();
+            totalBytes = 0L;
+            for (CachedFile file : existing) {
+                index.put(file.path(), file.size());
+                totalBytes += file.size();
+            }
+            evictIfNeeded();
+        }
+        LOGGER.info("Preview cache ready at {} ({} entries, {} bytes)", root, existing.size(), totalBytes);
+    }
+
+    /** Identifies a version of a stored file; entries of older versions are dropped on the next put. */
+    public static String fingerprintOf(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return fingerprintOf(attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    public static String fingerprintOf(long size, long lastModified) {
+        return Long.toHexString(size) + "-" + Long.toHexString(lastModified);
+    }
+
+    public Optional<byte[]> get(Long documentId, String fingerprint, String variant) {
+        if (documentId == null || fingerprint == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        Path entry = resolveEntry(documentId, fingerprint, variant);
+        synchronized (this) {
+            if (index.get(entry) == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+        }
+        try {
+            byte[] data = Files.readAllBytes(entry);
+            touch(entry);
+            hits.incrementAndGet();
+            return Optional.of(data);
+        } catch (IOException ex) {
+            LOGGER.debug("Cache preview {} không đọc được: {}", entry, ex.getMessage());
+            forget(entry);
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    public void put(Long documentId, String fingerprint, String variant, byte[] data) {
+        if (documentId == null || fingerprint == null || data == null || data.length == 0) {
+            return;
+        }
+        if (data.length > getMaxBytes()) {
+            return;
+        }
+        Path entry = resolveEntry(documentId, fingerprint, variant);
+        try {
+            Files.createDirectories(entry.getParent());
+            removeStaleFingerprints(entry.getParent(), fingerprint);
+            Path temp = Files.createTempFile(entry.getParent(), "preview", TEMP_SUFFIX);
+            try {
+                Files.write(temp, data);
+                moveIntoPlace(temp, entry);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Không thể ghi cache preview cho tài liệu {}: {}", documentId, ex.getMessage());
+            return;
+        }
+        synchronized (this) {
+            Long previous = index.put(entry, (long) data.length);
+            totalBytes += data.length - (previous == null ? 0L : previous);
+            evictIfNeeded();
+        }
+    }
+
+    public void invalidate(Long documentId) {
+        if (documentId == null) {
+            return;
+        }
+        Path directory = getCacheRoot().resolve(String.valueOf(documentId));
+        synchronized (this) {
+            Iterator<Map.Entry<Path, Long>> iterator = index.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Path, Long> entry = iterator.next();
+                if (entry.getKey().startsWith(directory)) {
+                    totalBytes -= entry.getValue();
+                    iterator.remove();
+                }
+            }
+        }
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Không thể xóa cache preview của tài liệu {}: {}", documentId, ex.getMessage());
+        }
+        deleteQuietly(directory);
+    }
+
+    public synchronized AdminPreviewCacheStats getStats() {
+        AdminPreviewCacheStats stats = new AdminPreviewCacheStats();
+        stats.setHits(hits.get());
+        stats.setMisses(misses.get());
+        stats.setEvictions(evictions.get());
+        stats.setEntries(index.size());
+        stats.setSizeBytes(totalBytes);
+        stats.setMaxSizeBytes(getMaxBytes());
+        return stats;
+    }
+
+    private void removeStaleFingerprints(Path directory, String fingerprint) throws IOException {
+        String prefix = fingerprint + "_";
+        List<Path> stale = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(prefix) && !name.endsWith(TEMP_SUFFIX)) {
+                    stale.add(file);
+                }
+            }
+        }
+        for (Path file : stale) {
+            forget(file);
+            deleteQuietly(file);
+        }
+    }
+
+    private void evictIfNeeded() {
+        long maxBytes = getMaxBytes();
+        Iterator<Map.Entry<Path, Long>> iterator = index.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Path, Long> eldest = iterator.next();
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+            deleteQuietly(eldest.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            LOGGER.debug("Không thể cập nhật thời gian truy cập cho {}: {}", entry, ex.getMessage());
+        }
+    }
+
+    private synchronized void forget(Path entry) {
+        Long size = index.remove(entry);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            LOGGER.debug("Không thể xóa {}: {}", path, ex.getMessage());
+        }
+    }
+
+    private Path resolveEntry(Long documentId, String fingerprint, String variant) {
+        return getCacheRoot()
+                .resolve(String.valueOf(documentId))
+                .resolve(fingerprint + "_" + variant);
+    }
+
+    private long getMaxBytes() {
+        return Math.max(1L, maxSizeMb) * 1024 * 1024;
+    }
+
+    private Path getCacheRoot() {
+        return Paths.get(cacheDir).toAbsolutePath().normalize();
+    }
+
+    private record CachedFile(Path path, long size, FileTime lastUsed) {}
+}
@@ -0,0 +1,272 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.webquanly.exception.RenderingOverloadedException;
+import com.webquanly.model.TaiLieu;
+import com.webquanly.repository.TaiLieuRepository;
+import com.webquanly.service.RenderingScheduler.RenderFormat;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Produces the PDF rendition of Word/PowerPoint uploads once, in the background, and keeps it
+ * next to the original as {@code <file>.preview.pdf}, where documents sharing a stored file also
+ * share it. The state of each rendition is stored in {@code tailieu.trangthaibanxemtruoc}.
+ */
+@Service
+public class PreviewDerivativeService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreviewDerivativeService.class);
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_READY = "READY";
+    public static final String STATUS_FAILED = "FAILED";
+
+    public static final String DERIVATIVE_SUFFIX = ".preview.pdf";
+    private static final long MAX_SOURCE_SIZE = 200L * 1024 * 1024;
+    private static final int MAX_OVERLOADED_ATTEMPTS = 3;
+
+    private final TaiLieuRepository taiLieuRepository;
+    private final DocumentConversionService documentConversionService;
+    private final PreviewFailureService previewFailureService;
+    private final ConversionWorkerPool conversionWorkerPool;
+    private final RenderingScheduler renderingScheduler;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${preview.derivative.workers:1}")
+    private int workers;
+
+    private ExecutorService executor;
+
+    public PreviewDerivativeService(TaiLieuRepository taiLieuRepository,
+                                    DocumentConversionService documentConversionService,
+                                    PreviewFailureService previewFailureService,
+                                    ConversionWorkerPool conversionWorkerPool,
+                                    RenderingScheduler renderingScheduler) {
+        this.taiLieuRepository = taiLieuRepository;
+        this.documentConversionService = documentConversionService;
+        this.previewFailureService = previewFailureService;
+        this.conversionWorkerPool = conversionWorkerPool;
+        this.renderingScheduler = renderingScheduler;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "preview-derivative-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(Math.max(1, workers), threadFactory);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public static Path derivativePathFor(Path original) {
+        return original.resolveSibling(original.getFileName().toString() + DERIVATIVE_SUFFIX);
+    }
+
+    public void schedule(Long documentId, Path original, String extension) {
+        if (documentId == null || !inFlight.add(documentId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(documentId, original, extension);
+                } finally {
+                    inFlight.remove(documentId);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(documentId);
+            LOGGER.warn("Không thể xếp lịch tạo bản PDF cho tài liệu {}: {}", documentId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the stored rendition when it is ready. Legacy rows without a status, READY rows
+     * whose file went missing, and FAILED rows whose retry is due are queued so the next request
+     * can be served from disk.
+     */
+    public Optional<Path> findReady(TaiLieu taiLieu, Path original) {
+        String status = taiLieu.getTrangThaiBanXemTruoc();
+        Path derivative = derivativePathFor(original);
+        if (STATUS_READY.equals(status) && Files.isRegularFile(derivative)) {
+            return Optional.of(derivative);
+        }
+        if (status == null || STATUS_READY.equals(status)
+                || (STATUS_FAILED.equals(status) && !isBlocked(taiLieu.getId(), original))) {
+            taiLieuRepository.updateTrangThaiBanXemTruoc(taiLieu.getId(), STATUS_PENDING);
+            schedule(taiLieu.getId(), original, extractExtension(original));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the stored rendition, converting on the caller's thread when it is not on disk yet.
+     * Callers are expected to run this on a rendering pool. Files that failed recently are not
+     * converted again before their retry time.
+     */
+    public Path ensureReady(TaiLieu taiLieu, Path original, String extension) throws IOException {
+        Path derivative = derivativePathFor(original);
+        if (STATUS_READY.equals(taiLieu.getTrangThaiBanXemTruoc()) && Files.isRegularFile(derivative)) {
+            return derivative;
+        }
+        if (STATUS_FAILED.equals(taiLieu.getTrangThaiBanXemTruoc()) && isBlocked(taiLieu.getId(), original)) {
+            throw new IllegalArgumentException("Tài liệu không chuyển đổi được để xem trước, hệ thống sẽ thử lại sau");
+        }
+        try {
+            Path ready = writeDerivative(taiLieu.getId(), original, extension);
+            previewFailureService.clear(taiLieu.getId(), PreviewFailureService.STAGE_PDF);
+            return ready;
+        } catch (IOException | RuntimeException ex) {
+            // a cancelled job is recorded by the caller that saw the deadline pass
+            if (!(ex instanceof InterruptedIOException)) {
+                recordFailure(taiLieu.getId(), original, ex);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Background conversions go through the rendering lanes like on-demand ones, so they get the
+     * same per-format deadline and are interrupted when it passes. A busy lane is waited out a few
+     * times; after that the rendition is left FAILED without a backoff, so the next view retries.
+     */
+    private void generate(Long documentId, Path original, String extension) {
+        RenderFormat format = RenderFormat.fromExtension(extension);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                renderingScheduler.execute(format, () -> writeDerivative(documentId, original, extension));
+                previewFailureService.clear(documentId, PreviewFailureService.STAGE_PDF);
+                return;
+            } catch (RenderingOverloadedException ex) {
+                if (attempt >= MAX_OVERLOADED_ATTEMPTS) {
+                    LOGGER.info("Hàng đợi dựng đang bận, hoãn tạo bản PDF xem trước cho tài liệu {}", documentId);
+                    markFailed(documentId);
+                    return;
+                }
+                try {
+                    TimeUnit.SECONDS.sleep(Math.max(1L, ex.getRetryAfterSeconds()) * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    markFailed(documentId);
+                    return;
+                }
+            } catch (Exception ex) {
+                LOGGER.warn("Không thể tạo bản PDF xem trước cho tài liệu {}: {}", documentId, ex.getMessage());
+                recordFailure(documentId, original, ex);
+                return;
+            }
+        }
+    }
+
+    /** Marks the rendition as failed, e.g. when an on-demand conversion ran past its deadline. */
+    public void recordFailure(Long documentId, Path original, Exception error) {
+        markFailed(documentId);
+        try {
+            previewFailureService.recordFailure(documentId, PreviewFailureService.STAGE_PDF,
+                    PreviewCacheService.fingerprintOf(original), error);
+        } catch (IOException ex) {
+            LOGGER.debug("Không thể đọc tệp gốc của tài liệu {}: {}", documentId, ex.getMessage());
+        }
+    }
+
+    private boolean isBlocked(Long documentId, Path original) {
+        try {
+            return previewFailureService.isBlocked(documentId, PreviewFailureService.STAGE_PDF,
+                    PreviewCacheService.fingerprintOf(original));
+        } catch (IOException ex) {
+            return true;
+        }
+    }
+
+    private Path writeDerivative(Long documentId, Path original, String extension) throws IOException {
+        Path target = derivativePathFor(original);
+        if (!Files.isRegularFile(original)) {
+            throw new IOException("Source file is missing");
+        }
+        if (Files.size(original) > MAX_SOURCE_SIZE) {
+            throw new IOException("Source file is too large");
+        }
+        if (Files.isRegularFile(target)) {
+            // already produced for a duplicate upload of the same content
+            recordPageCount(documentId, target);
+            taiLieuRepository.updateTrangThaiBanXemTruoc(documentId, STATUS_READY);
+            return target;
+        }
+        Path temp = Files.createTempFile(target.getParent(), "derivative", ".tmp");
+        try {
+            if (conversionWorkerPool.isEnabled()) {
+                conversionWorkerPool.convertToPdf(original, extension, temp);
+            } else {
+                Files.write(temp, documentConversionService.convertToPdf(Files.readAllBytes(original), extension));
+            }
+            moveIntoPlace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        recordPageCount(documentId, target);
+        taiLieuRepository.updateTrangThaiBanXemTruoc(documentId, STATUS_READY);
+        LOGGER.debug("Đã tạo bản PDF xem trước cho tài liệu {} ({} bytes)", documentId, Files.size(target));
+        return target;
+    }
+
+    /** The rendition has the pages the viewer shows, so its count is the document's. */
+    private void recordPageCount(Long documentId, Path pdf) {
+        try {
+            taiLieuRepository.updateSoTrang(documentId, documentConversionService.countPdfPages(pdf));
+        } catch (Exception ex) {
+            LOGGER.debug("Không thể đếm số trang của tài liệu {}: {}", documentId, ex.getMessage());
+        }
+    }
+
+    private void markFailed(Long documentId) {
+        try {
+            taiLieuRepository.updateTrangThaiBanXemTruoc(documentId, STATUS_FAILED);
+        } catch (Exception updateEx) {
+            LOGGER.debug("Không thể cập nhật trạng thái bản xem trước {}: {}", documentId, updateEx.getMessage());
+        }
+    }
+
+    private void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private String extractExtension(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(java.util.Locale.ROOT);
+    }
+}
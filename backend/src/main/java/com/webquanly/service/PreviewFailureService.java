@@ -0,0 +1,138 @@
+package com.webquanly.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.webquanly.dto.admin.AdminPreviewFailure;
+import com.webquanly.model.PreviewFailure;
+import com.webquanly.repository.PreviewFailureRepository;
+import com.webquanly.repository.TaiLieuRepository;
+
+/**
+ * Remembers documents whose preview could not be rendered so that broken files are not parsed
+ * again on every request. A failure blocks new attempts on the same file version until its
+ * retry time, which doubles with every consecutive failure; replacing the file clears it.
+ */
+@Service
+public class PreviewFailureService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreviewFailureService.class);
+
+    public static final String STAGE_COVER = "COVER";
+    public static final String STAGE_PDF = "PDF";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final PreviewFailureRepository previewFailureRepository;
+    private final TaiLieuRepository taiLieuRepository;
+
+    @Value("${preview.failure.initial-backoff-minutes:10}")
+    private long initialBackoffMinutes;
+
+    @Value("${preview.failure.max-backoff-hours:24}")
+    private long maxBackoffHours;
+
+    public PreviewFailureService(PreviewFailureRepository previewFailureRepository,
+                                 TaiLieuRepository taiLieuRepository) {
+        this.previewFailureRepository = previewFailureRepository;
+        this.taiLieuRepository = taiLieuRepository;
+    }
+
+    /** True when this file version failed before and its next retry is not due yet. */
+    public boolean isBlocked(Long documentId, String stage, String fingerprint) {
+        Optional<PreviewFailure> failure = previewFailureRepository.findByDocument_IdAndStage(documentId, stage);
+        if (failure.isEmpty()) {
+            return false;
+        }
+        if (!failure.get().getFingerprint().equals(fingerprint)) {
+            // the file was replaced, give the new version a clean slate
+            clear(documentId, stage);
+            return false;
+        }
+        return LocalDateTime.now().isBefore(failure.get().getNextRetryAt());
+    }
+
+    @Transactional
+    public void recordFailure(Long documentId, String stage, String fingerprint, Throwable error) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            PreviewFailure failure = previewFailureRepository.findByDocument_IdAndStage(documentId, stage)
+                    .orElseGet(PreviewFailure::new);
+            if (failure.getId() == null || !fingerprint.equals(failure.getFingerprint())) {
+                failure.setDocument(taiLieuRepository.getReferenceById(documentId));
+                failure.setStage(stage);
+                failure.setFingerprint(fingerprint);
+                failure.setFailureCount(0);
+                failure.setFirstFailedAt(now);
+            }
+            failure.setFailureCount(failure.getFailureCount() + 1);
+            failure.setLastError(describe(error));
+            failure.setLastFailedAt(now);
+            failure.setNextRetryAt(now.plus(backoffFor(failure.getFailureCount())));
+            previewFailureRepository.save(failure);
+            LOGGER.info("Dựng {} cho tài liệu {} thất bại lần {}, thử lại sau {}", stage, documentId,
+                    failure.getFailureCount(), failure.getNextRetryAt());
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Không thể ghi nhận lỗi xem trước cho tài liệu {}: {}", documentId, ex.getMessage());
+        }
+    }
+
+    public void clear(Long documentId, String stage) {
+        try {
+            previewFailureRepository.deleteByDocumentAndStage(documentId, stage);
+        } catch (DataAccessException ex) {
+            LOGGER.debug("Không thể xóa lỗi xem trước của tài liệu {}: {}", documentId, ex.getMessage());
+        }
+    }
+
+    public void clearAll(Long documentId) {
+        previewFailureRepository.deleteByDocument(documentId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<AdminPreviewFailure> listFailures() {
+        LocalDateTime now = LocalDateTime.now();
+        return previewFailureRepository.findAllWithDocument().stream()
+                .map(failure -> {
+                    AdminPreviewFailure item = new AdminPreviewFailure();
+                    item.setDocumentId(failure.getDocument().getId());
+                    item.setTitle(failure.getDocument().getTenTaiLieu());
+                    item.setStage(failure.getStage());
+                    item.setFailureCount(failure.getFailureCount());
+                    item.setLastError(failure.getLastError());
+                    item.setFirstFailedAt(failure.getFirstFailedAt());
+                    item.setLastFailedAt(failure.getLastFailedAt());
+                    item.setNextRetryAt(failure.getNextRetryAt());
+                    item.setRetryDue(!now.isBefore(failure.getNextRetryAt()));
+                    return item;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Duration backoffFor(int failureCount) {
+        Duration max = Duration.ofHours(Math.max(1, maxBackoffHours));
+        Duration backoff = Duration.ofMinutes(Math.max(1, initialBackoffMinutes));
+        for (int i = 1; i < failureCount && backoff.compareTo(max) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        return backoff.compareTo(max) > 0 ? max : backoff;
+    }
+
+    private String describe(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String message = root.getClass().getSimpleName() + (root.getMessage() != null ? ": " + root.getMessage() : "");
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
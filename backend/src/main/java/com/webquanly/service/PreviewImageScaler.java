@@ -0,0 +1,145 @@
+package com.webquanly.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Derives the smaller thumbnail sizes from the full cover image.
+ *
+ * Downscaling halves the image with bilinear filtering until it is within 2x of the target and
+ * then does one last bilinear step; this is much faster than a single high-quality resize and
+ * avoids the aliasing of a single bilinear resize from a large source.
+ */
+public final class PreviewImageScaler {
+    /** Widths served for {@code ?w=}; larger requests get the full-size cover. */
+    public static final List<Integer> WIDTHS = List.of(160, 320, 640, 1024);
+    public static final int FULL_WIDTH = 0;
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    public enum Format {
+        PNG("png", "image/png"),
+        JPEG("jpg", "image/jpeg");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /** JDK ImageIO has no WebP encoder, so WebP requests are answered with JPEG. */
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) {
+                return PNG;
+            }
+            switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "png":
+                    return PNG;
+                case "jpg":
+                case "jpeg":
+                case "webp":
+                    return JPEG;
+                default:
+                    throw new IllegalArgumentException("Định dạng ảnh không được hỗ trợ");
+            }
+        }
+    }
+
+    private PreviewImageScaler() {
+    }
+
+    /** Rounds the requested width up to the ladder; {@link #FULL_WIDTH} means the original size. */
+    public static int snapWidth(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return FULL_WIDTH;
+        }
+        for (int width : WIDTHS) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return FULL_WIDTH;
+    }
+
+    public static byte[] derive(byte[] source, int targetWidth, Format format) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(source));
+        if (image == null) {
+            throw new IOException("Cannot decode preview image");
+        }
+        if (targetWidth != FULL_WIDTH && image.getWidth() > targetWidth) {
+            image = downscale(image, targetWidth);
+        }
+        return encode(image, format);
+    }
+
+    static BufferedImage downscale(BufferedImage source, int targetWidth) {
+        int targetHeight = Math.max(1, Math.round(source.getHeight() * (targetWidth / (float) source.getWidth())));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = resize(current, width, height);
+        } while (width > targetWidth || height > targetHeight);
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encode(BufferedImage image, Format format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (format == Format.PNG) {
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+        BufferedImage rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            rgb = resize(image, image.getWidth(), image.getHeight());
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+}
@@ -1,10 +1,7 @@
 package com.webquanly.service;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
@@ -12,9 +9,8 @@ import java.util.Locale;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -26,6 +22,7 @@ import com.webquanly.model.TaiLieu;
 import com.webquanly.model.User;
 import com.webquanly.repository.TaiLieuRepository;
 import com.webquanly.repository.UserRepository;
+import com.webquanly.storage.BlobStorage;
 
 @Service
 public class ProfileService {
@@ -33,8 +30,9 @@ public class ProfileService {
     private static final long MAX_AVATAR_SIZE = 5L * 1024 * 1024; // 5MB
     private static final List<String> SUPPORTED_AVATAR_CONTENT_TYPES = List.of("image/png", "image/jpeg", "image/webp");
 
-    @Value("${file.avatar-dir:storage/avatars}")
-    private String avatarDir;
+    @Autowired
+    @Qualifier("avatarStorage")
+    private BlobStorage avatarStorage;
 
     @Autowired
     private UserRepository userRepository;
@@ -89,11 +87,11 @@ public class ProfileService {
         }
 
         User user = requireUser(email);
-        Files.createDirectories(getAvatarRoot());
 
         String storedFileName = buildAvatarFilename(user, contentType);
-        Path destination = getAvatarRoot().resolve(storedFileName);
-        Files.copy(file.getInputStream(), destination, StandardCopyOption.REPLACE_EXISTING);
+        try (InputStream content = file.getInputStream()) {
+            avatarStorage.write(storedFileName, content);
+        }
 
         String previousAvatar = user.getAvatarPath();
         user.setAvatarPath(storedFileName);
@@ -108,12 +106,11 @@ public class ProfileService {
         if (fileName == null || fileName.isBlank()) {
             throw new IllegalArgumentException("Ảnh không tồn tại");
         }
-        if (fileName.contains("..")) {
+        if (fileName.contains("..") || fileName.contains("/")) {
             throw new IllegalArgumentException("Đường dẫn ảnh không hợp lệ");
         }
         try {
-            Path filePath = getAvatarRoot().resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
+            Resource resource = avatarStorage.resource(fileName);
             if (!resource.exists() || !resource.isReadable()) {
                 throw new IllegalArgumentException("Không thể đọc ảnh đại diện");
             }
@@ -154,10 +151,6 @@ public class ProfileService {
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng"));
     }
 
-    private Path getAvatarRoot() {
-        return Paths.get(avatarDir).toAbsolutePath().normalize();
-    }
-
     private String buildAvatarFilename(User user, String contentType) {
         String extension = switch (contentType.toLowerCase(Locale.ROOT)) {
             case "image/png" -> ".png";
@@ -172,7 +165,7 @@ public class ProfileService {
             return;
         }
         try {
-            Files.deleteIfExists(getAvatarRoot().resolve(previous));
+            avatarStorage.delete(previous);
         } catch (IOException ex) {
             LOGGER.warn("Không thể xóa avatar cũ {}: {}", previous, ex.getMessage());
         }
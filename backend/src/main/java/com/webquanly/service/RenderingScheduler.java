@@ -0,0 +1,258 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.webquanly.dto.admin.AdminRenderingStats;
+import com.webquanly.exception.RenderingOverloadedException;
+import com.webquanly.exception.RenderingTimeoutException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs preview and conversion work on dedicated pools, one per format family, so that heavy
+ * rendering cannot take over the request threads. Each pool has a fixed number of workers and a
+ * bounded queue; when the queue is full the caller gets {@link RenderingOverloadedException}
+ * (mapped to 503 + Retry-After) instead of waiting.
+ *
+ * Every job also has a per-format deadline, counted from the moment a worker picks it up. When it
+ * passes, the caller gets {@link RenderingTimeoutException} right away and the job is interrupted;
+ * converters check the interrupt flag between stages, so the worker is released at the next
+ * checkpoint. Jobs that keep running after their deadline are reported as "overrunning". A job
+ * that waits longer than the deadline for a worker is dropped and reported as overload instead,
+ * since only a job that ran says anything about the document.
+ */
+@Service
+public class RenderingScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderingScheduler.class);
+
+    public enum RenderFormat {
+        PDF, WORD, POWERPOINT;
+
+        public static RenderFormat fromExtension(String extension) {
+            String normalized = extension == null ? "" : extension.toLowerCase(Locale.ROOT);
+            switch (normalized) {
+                case "doc":
+                case "docx":
+                    return WORD;
+                case "ppt":
+                case "pptx":
+                    return POWERPOINT;
+                default:
+                    return PDF;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface RenderTask<T> {
+        T run() throws Exception;
+    }
+
+    @Value("${rendering.pdf.concurrency:2}")
+    private int pdfConcurrency;
+
+    @Value("${rendering.word.concurrency:1}")
+    private int wordConcurrency;
+
+    @Value("${rendering.powerpoint.concurrency:1}")
+    private int powerPointConcurrency;
+
+    @Value("${rendering.pdf.timeout-seconds:30}")
+    private long pdfTimeoutSeconds;
+
+    @Value("${rendering.word.timeout-seconds:60}")
+    private long wordTimeoutSeconds;
+
+    @Value("${rendering.powerpoint.timeout-seconds:90}")
+    private long powerPointTimeoutSeconds;
+
+    @Value("${rendering.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${rendering.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    private static final int JOB_QUEUED = 0;
+    private static final int JOB_RUNNING = 1;
+    private static final int JOB_DONE = 2;
+    private static final int JOB_EXPIRED = 3;
+
+    private final Map<RenderFormat, Lane> lanes = new EnumMap<>(RenderFormat.class);
+
+    @PostConstruct
+    public void start() {
+        lanes.put(RenderFormat.PDF, new Lane(RenderFormat.PDF, pdfConcurrency, queueCapacity, pdfTimeoutSeconds));
+        lanes.put(RenderFormat.WORD, new Lane(RenderFormat.WORD, wordConcurrency, queueCapacity, wordTimeoutSeconds));
+        lanes.put(RenderFormat.POWERPOINT,
+                new Lane(RenderFormat.POWERPOINT, powerPointConcurrency, queueCapacity, powerPointTimeoutSeconds));
+    }
+
+    @PreDestroy
+    public void stop() {
+        lanes.values().forEach(lane -> lane.executor.shutdownNow());
+    }
+
+    public <T> T execute(RenderFormat format, RenderTask<T> task) throws IOException {
+        Lane lane = lanes.get(format);
+        long enqueuedAt = System.nanoTime();
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(lane.timeoutSeconds);
+        AtomicInteger state = new AtomicInteger(JOB_QUEUED);
+        // written before the job leaves JOB_QUEUED, so a caller that sees it running can read it
+        AtomicLong startedAt = new AtomicLong();
+        Future<T> future;
+        try {
+            future = lane.executor.submit(() -> {
+                startedAt.set(System.nanoTime());
+                if (!state.compareAndSet(JOB_QUEUED, JOB_RUNNING)) {
+                    return null;
+                }
+                lane.recordQueueWait(startedAt.get() - enqueuedAt);
+                try {
+                    return task.run();
+                } finally {
+                    if (!state.compareAndSet(JOB_RUNNING, JOB_DONE)) {
+                        lane.overrunning.decrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            lane.rejected.incrementAndGet();
+            LOGGER.debug("Hàng đợi dựng {} đã đầy, từ chối yêu cầu", format);
+            throw new RenderingOverloadedException("Hệ thống đang bận dựng bản xem trước, vui lòng thử lại sau", retryAfterSeconds);
+        }
+        // first the time a job may wait for a worker, then the time it may run once it has one
+        long deadline = enqueuedAt + timeoutNanos;
+        boolean running = false;
+        while (true) {
+            try {
+                T result = future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                lane.completed.incrementAndGet();
+                return result;
+            } catch (TimeoutException ex) {
+                if (!running && state.compareAndSet(JOB_QUEUED, JOB_EXPIRED)) {
+                    // never started: the lane is busy, the document is not at fault
+                    future.cancel(false);
+                    lane.rejected.incrementAndGet();
+                    LOGGER.debug("Yêu cầu dựng {} chờ quá {} giây trong hàng đợi, từ chối", format, lane.timeoutSeconds);
+                    throw new RenderingOverloadedException("Hệ thống đang bận dựng bản xem trước, vui lòng thử lại sau", retryAfterSeconds);
+                }
+                if (!running) {
+                    running = true;
+                    deadline = startedAt.get() + timeoutNanos;
+                    if (deadline - System.nanoTime() > 0) {
+                        continue;
+                    }
+                }
+                // counted as overrunning until the worker notices the interrupt and returns
+                lane.overrunning.incrementAndGet();
+                if (!state.compareAndSet(JOB_RUNNING, JOB_EXPIRED)) {
+                    lane.overrunning.decrementAndGet();
+                }
+                future.cancel(true);
+                lane.timedOut.incrementAndGet();
+                LOGGER.warn("Dựng {} vượt quá {} giây, đã hủy", format, lane.timeoutSeconds);
+                throw new RenderingTimeoutException("Rendering exceeded " + lane.timeoutSeconds + "s", lane.timeoutSeconds);
+            } catch (InterruptedException ex) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IOException("Rendering was interrupted", ex);
+            } catch (ExecutionException ex) {
+                // ran and failed; still a completed job
+                lane.completed.incrementAndGet();
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new IOException("Rendering failed", cause);
+            }
+        }
+    }
+
+    public List<AdminRenderingStats> getStats() {
+        List<AdminRenderingStats> stats = new ArrayList<>();
+        for (Lane lane : lanes.values()) {
+            AdminRenderingStats item = new AdminRenderingStats();
+            item.setFormat(lane.format.name());
+            item.setConcurrency(lane.executor.getMaximumPoolSize());
+            item.setActive(lane.executor.getActiveCount());
+            item.setQueued(lane.executor.getQueue().size());
+            item.setQueueCapacity(queueCapacity);
+            item.setCompleted(lane.completed.get());
+            item.setRejected(lane.rejected.get());
+            long started = lane.started.get();
+            item.setAverageQueueWaitMillis(started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(lane.totalQueueWaitNanos.get() / started));
+            item.setMaxQueueWaitMillis(TimeUnit.NANOSECONDS.toMillis(lane.maxQueueWaitNanos.get()));
+            item.setTimeoutSeconds(lane.timeoutSeconds);
+            item.setTimedOut(lane.timedOut.get());
+            item.setOverrunning(Math.max(0, lane.overrunning.get()));
+            stats.add(item);
+        }
+        return stats;
+    }
+
+    private static final class Lane {
+        private final RenderFormat format;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+        private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+        private final AtomicLong timedOut = new AtomicLong();
+        private final AtomicInteger overrunning = new AtomicInteger();
+        private final long timeoutSeconds;
+
+        private Lane(RenderFormat format, int concurrency, int queueCapacity, long timeoutSeconds) {
+            this.format = format;
+            this.timeoutSeconds = Math.max(1L, timeoutSeconds);
+            int threads = Math.max(1, concurrency);
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    60L,
+                    TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                    runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "render-" + format.name().toLowerCase(Locale.ROOT) + "-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        private void recordQueueWait(long nanos) {
+            started.incrementAndGet();
+            totalQueueWaitNanos.addAndGet(nanos);
+            maxQueueWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.webquanly.service;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.poi.sl.usermodel.Slide;
+import org.apache.poi.sl.usermodel.SlideShow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts a slide deck into a PDF with one image per slide.
+ *
+ * Slides are drawn in parallel, each worker on its own parsed copy of the deck because POI slide
+ * shows are not safe to draw from several threads. The caller appends finished slides to the PDF
+ * in order; a worker may only start slide {@code i} while {@code i < appended + maxInFlight}, which
+ * bounds the number of slide images held in memory and guarantees the next slide to append is
+ * never blocked.
+ */
+public class SlideRasterizer implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlideRasterizer.class);
+    private static final Dimension DEFAULT_SIZE = new Dimension(1600, 900);
+
+    public enum ImageMode {
+        LOSSLESS, JPEG;
+
+        public static ImageMode parse(String value) {
+            return value == null || value.isBlank() ? JPEG : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    @FunctionalInterface
+    public interface SlideShowLoader {
+        SlideShow<?, ?> load(InputStream input) throws IOException;
+    }
+
+    private final int parallelism;
+    private final int maxInFlight;
+    private final ImageMode imageMode;
+    private final float jpegQuality;
+    private final ExecutorService executor;
+
+    public SlideRasterizer(int parallelism, int maxInFlight, ImageMode imageMode, float jpegQuality) {
+        this.parallelism = Math.max(1, parallelism);
+        this.maxInFlight = Math.max(this.parallelism, maxInFlight);
+        this.imageMode = imageMode;
+        this.jpegQuality = Math.min(1f, Math.max(0.1f, jpegQuality));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "slide-raster-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public byte[] toPdf(byte[] deck, SlideShowLoader loader) throws IOException {
+        SlideShow<?, ?> first = loader.load(new ByteArrayInputStream(deck));
+        int slideCount = first.getSlides().size();
+        if (slideCount == 0) {
+            closeQuietly(first);
+            throw new IOException("PowerPoint file does not contain slides");
+        }
+        Dimension pageSize = first.getPageSize();
+        Dimension size = pageSize == null || pageSize.width <= 0 || pageSize.height <= 0 ? DEFAULT_SIZE : pageSize;
+
+        Job job = new Job(slideCount, maxInFlight);
+        int workers = Math.min(parallelism, slideCount);
+        for (int i = 0; i < workers; i++) {
+            // the copy parsed above goes to the first worker, the others parse their own
+            SlideShow<?, ?> preloaded = i == 0 ? first : null;
+            try {
+                executor.execute(() -> runWorker(job, preloaded, deck, loader, size));
+            } catch (RejectedExecutionException ex) {
+                job.abort();
+                closeQuietly(preloaded);
+                throw new IOException("Slide rasterizer is shut down", ex);
+            }
+        }
+        try (PDDocument pdf = new PDDocument()) {
+            for (int i = 0; i < slideCount; i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Slide conversion was cancelled");
+                }
+                appendPage(pdf, job.take(i), size);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            pdf.save(output);
+            return output.toByteArray();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Slide conversion was interrupted", ex);
+        } finally {
+            job.abort();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void runWorker(Job job, SlideShow<?, ?> preloaded, byte[] deck, SlideShowLoader loader, Dimension size) {
+        SlideShow<?, ?> slideShow = preloaded;
+        try {
+            if (slideShow == null) {
+                if (job.isAborted()) {
+                    return;
+                }
+                slideShow = loader.load(new ByteArrayInputStream(deck));
+            }
+            List<? extends Slide<?, ?>> slides = slideShow.getSlides();
+            int index;
+            while ((index = job.claim()) >= 0) {
+                job.complete(index, render(slides.get(index), size));
+            }
+        } catch (InterruptedException ex) {
+            job.fail(ex);
+            Thread.currentThread().interrupt();
+        } catch (Throwable ex) {
+            job.fail(ex);
+        } finally {
+            closeQuietly(slideShow);
+        }
+    }
+
+    private RenderedSlide render(Slide<?, ?> slide, Dimension size) throws IOException {
+        BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, size.width, size.height);
+            slide.draw(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        if (imageMode == ImageMode.JPEG) {
+            return new RenderedSlide(null, encodeJpeg(image));
+        }
+        return new RenderedSlide(image, null);
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private void appendPage(PDDocument pdf, RenderedSlide slide, Dimension size) throws IOException {
+        PDPage page = new PDPage(new PDRectangle(size.width, size.height));
+        pdf.addPage(page);
+        PDImageXObject pdImage = slide.jpeg() != null
+                ? JPEGFactory.createFromByteArray(pdf, slide.jpeg())
+                : LosslessFactory.createFromImage(pdf, slide.image());
+        try (PDPageContentStream contentStream = new PDPageContentStream(pdf, page)) {
+            contentStream.drawImage(pdImage, 0, 0, size.width, size.height);
+        }
+    }
+
+    private static void closeQuietly(SlideShow<?, ?> slideShow) {
+        if (slideShow == null) {
+            return;
+        }
+        try {
+            slideShow.close();
+        } catch (IOException ex) {
+            LOGGER.debug("Không thể đóng bản trình chiếu: {}", ex.getMessage());
+        }
+    }
+
+    private record RenderedSlide(BufferedImage image, byte[] jpeg) {}
+
+    /** Hand-off between the workers and the caller assembling the PDF. */
+    private static final class Job {
+        private final int slideCount;
+        private final int maxInFlight;
+        private final RenderedSlide[] finished;
+        private final AtomicInteger nextToClaim = new AtomicInteger();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private int appended;
+        private boolean aborted;
+        private Throwable failure;
+
+        private Job(int slideCount, int maxInFlight) {
+            this.slideCount = slideCount;
+            this.maxInFlight = maxInFlight;
+            this.finished = new RenderedSlide[slideCount];
+        }
+
+        /** Returns the next slide to draw, or -1 when there is nothing left to do. */
+        private int claim() throws InterruptedException {
+            int index = nextToClaim.getAndIncrement();
+            if (index >= slideCount) {
+                return -1;
+            }
+            lock.lock();
+            try {
+                while (!aborted && index >= appended + maxInFlight) {
+                    changed.await();
+                }
+                return aborted ? -1 : index;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void complete(int index, RenderedSlide slide) {
+            lock.lock();
+            try {
+                finished[index] = slide;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private RenderedSlide take(int index) throws IOException, InterruptedException {
+            lock.lock();
+            try {
+                while (finished[index] == null && failure == null) {
+                    changed.await();
+                }
+                if (failure != null) {
+                    if (failure instanceof IOException io) {
+                        throw io;
+                    }
+                    throw new IOException("Failed to render slide", failure);
+                }
+                RenderedSlide slide = finished[index];
+                finished[index] = null;
+                appended = index + 1;
+                changed.signalAll();
+                return slide;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void fail(Throwable ex) {
+            lock.lock();
+            try {
+                if (failure == null) {
+                    failure = ex;
+                }
+                aborted = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void abort() {
+            lock.lock();
+            try {
+                aborted = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isAborted() {
+            lock.lock();
+            try {
+                return aborted;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.webquanly.dto.admin.AdminStorageMigrationStatus;
+import com.webquanly.model.StoredBlob;
+import com.webquanly.model.TaiLieu;
+import com.webquanly.repository.StoredBlobRepository;
+import com.webquanly.repository.TaiLieuRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Moves documents stored under a flat key into the sharded blob layout while the application is
+ * serving them. Flat blobs are moved as a whole (every document sharing them is repointed);
+ * legacy {@code <millis>_<name>} files are hashed and become blobs, or references to an existing
+ * blob with the same content.
+ *
+ * Each document is handled in its own transaction. The new location is linked (or copied) before
+ * {@code tailieu.file} changes and the old file is removed only after the commit, so readers
+ * holding either key find the file; see {@link BlobStoreService#resolve}. Work runs on one
+ * background thread in batches with a pause in between.
+ */
+@Service
+public class StorageMigrationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageMigrationService.class);
+
+    private enum Outcome { MIGRATED, DEDUPLICATED, SKIPPED }
+
+    private record Relocation(Outcome outcome, String storageKey) {}
+
+    private static final Relocation NOT_MOVED = new Relocation(Outcome.SKIPPED, null);
+    private static final String MAINTENANCE_JOB = "migration";
+
+    private final TaiLieuRepository taiLieuRepository;
+    private final StoredBlobRepository storedBlobRepository;
+    private final BlobStoreService blobStoreService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+    private volatile Thread worker;
+
+    @Value("${storage.migration.batch-size:50}")
+    private int batchSize;
+
+    @Value("${storage.migration.batch-pause-ms:1000}")
+    private long batchPauseMs;
+
+    public StorageMigrationService(TaiLieuRepository taiLieuRepository,
+                                   StoredBlobRepository storedBlobRepository,
+                                   BlobStoreService blobStoreService,
+                                   PlatformTransactionManager transactionManager) {
+        this.taiLieuRepository = taiLieuRepository;
+        this.storedBlobRepository = storedBlobRepository;
+        this.blobStoreService = blobStoreService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** @return false when a migration is already running */
+    public boolean start() {
+        if (!blobStoreService.getStorage().isLocal()) {
+            // objects in a bucket are written under sharded keys from the start
+            throw new IllegalArgumentException("Chỉ cần chuyển đổi khi lưu trữ tệp trên ổ đĩa cục bộ");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        if (!blobStoreService.beginMaintenance(MAINTENANCE_JOB)) {
+            running.set(false);
+            // the reconciliation would take files linked ahead of their rows for orphans
+            throw new IllegalArgumentException("Không thể chuyển kho khi đang đối soát kho tài liệu");
+        }
+        stopRequested.set(false);
+        migrated.set(0);
+        deduplicated.set(0);
+        skipped.set(0);
+        failed.set(0);
+        lastError = null;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        Thread thread = new Thread(this::run, "storage-migration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        worker = thread;
+        thread.start();
+        return true;
+    }
+
+    /** Stops after the document being moved; the migration can be started again later. */
+    public void stop() {
+        stopRequested.set(true);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stop();
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5000);
+        }
+    }
+
+    public AdminStorageMigrationStatus getStatus() {
+        AdminStorageMigrationStatus status = new AdminStorageMigrationStatus();
+        status.setRunning(running.get());
+        status.setRemaining(taiLieuRepository.countFlatStorage());
+        status.setMigrated(migrated.get());
+        status.setDeduplicated(deduplicated.get());
+        status.setSkipped(skipped.get());
+        status.setFailed(failed.get());
+        status.setStartedAt(startedAt);
+        status.setFinishedAt(finishedAt);
+        status.setLastError(lastError);
+        return status;
+    }
+
+    private void run() {
+        LOGGER.info("Bắt đầu chuyển kho tài liệu sang cấu trúc thư mục phân tầng");
+        try {
+            long afterId = 0L;
+            while (!stopRequested.get()) {
+                List<Long> batch = taiLieuRepository.findFlatStorageIdsAfter(afterId,
+                        PageRequest.of(0, Math.max(1, batchSize)));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Long id : batch) {
+                    if (stopRequested.get()) {
+                        break;
+                    }
+                    migrateQuietly(id);
+                    afterId = id;
+                }
+                Thread.sleep(Math.max(0L, batchPauseMs));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            lastError = ex.getMessage();
+            LOGGER.warn("Dừng chuyển kho tài liệu: {}", ex.getMessage());
+        } finally {
+            finishedAt = LocalDateTime.now();
+            worker = null;
+            blobStoreService.endMaintenance(MAINTENANCE_JOB);
+            running.set(false);
+            LOGGER.info("Kết thúc chuyển kho tài liệu: {} đã chuyển, {} gộp trùng, {} bỏ qua, {} lỗi",
+                    migrated.get(), deduplicated.get(), skipped.get(), failed.get());
+        }
+    }
+
+    private void migrateQuietly(Long id) {
+        try {
+            switch (migrate(id)) {
+                case MIGRATED -> migrated.incrementAndGet();
+                case DEDUPLICATED -> deduplicated.incrementAndGet();
+                case SKIPPED -> skipped.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException ex) {
+            failed.incrementAndGet();
+            lastError = "Tài liệu " + id + ": " + ex.getMessage();
+            LOGGER.warn("Không thể chuyển tệp của tài liệu {}: {}", id, ex.getMessage());
+        }
+    }
+
+    private Outcome migrate(Long id) throws IOException {
+        TaiLieu taiLieu = taiLieuRepository.findById(id).orElse(null);
+        if (taiLieu == null || taiLieu.getFileName() == null || BlobStoreService.isSharded(taiLieu.getFileName())) {
+            return Outcome.SKIPPED;
+        }
+        String oldKey = taiLieu.getFileName();
+        Path oldPath = blobStoreService.getStorage().localPath(oldKey);
+        if (!Files.isRegularFile(oldPath)) {
+            // nothing to move; left for the storage reconciliation to report
+            return Outcome.SKIPPED;
+        }
+        Optional<StoredBlob> flatBlob = storedBlobRepository.findByStorageKey(oldKey);
+        // legacy files are read once here to learn their hash, outside the transaction
+        String sha256 = flatBlob.isPresent() ? flatBlob.get().getSha256() : blobStoreService.sha256Of(oldPath);
+        long size = Files.size(oldPath);
+        String newKey = blobStoreService.shardedKey(sha256, extensionOf(oldKey));
+
+        List<Path> created = new ArrayList<>();
+        Relocation relocation;
+        try {
+            relocation = transactionTemplate.execute(status -> {
+                try {
+                    return relocate(id, oldKey, sha256, size, newKey, created);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            created.forEach(this::deleteQuietly);
+            throw ex.getCause();
+        } catch (RuntimeException ex) {
+            created.forEach(this::deleteQuietly);
+            throw ex;
+        }
+        if (relocation.outcome() != Outcome.SKIPPED) {
+            blobStoreService.recordRelocation(oldKey, relocation.storageKey());
+            deleteQuietly(oldPath);
+            deleteQuietly(PreviewDerivativeService.derivativePathFor(oldPath));
+        }
+        return relocation.outcome();
+    }
+
+    private Relocation relocate(Long id, String oldKey, String sha256, long size, String newKey, List<Path> created)
+            throws IOException {
+        TaiLieu taiLieu = taiLieuRepository.lockById(id).orElse(null);
+        if (taiLieu == null || !oldKey.equals(taiLieu.getFileName())) {
+            return NOT_MOVED;
+        }
+        Path oldPath = blobStoreService.getStorage().localPath(oldKey);
+        Optional<StoredBlob> flatBlob = storedBlobRepository.lockByStorageKey(oldKey);
+        if (flatBlob.isPresent()) {
+            // one move for the blob and every document referencing it
+            linkIntoPlace(oldPath, blobStoreService.resolve(newKey), created);
+            linkDerivative(oldPath, blobStoreService.resolve(newKey), created);
+            flatBlob.get().setStorageKey(newKey);
+            taiLieuRepository.updateFileName(oldKey, newKey);
+            return new Relocation(Outcome.MIGRATED, newKey);
+        }
+
+        fillLegacyMetadata(taiLieu, oldKey, sha256, size);
+        Optional<StoredBlob> sameContent = storedBlobRepository.lockBySha256(sha256);
+        if (sameContent.isPresent()) {
+            StoredBlob blob = sameContent.get();
+            Path target = blobStoreService.resolve(blob.getStorageKey());
+            if (!Files.isRegularFile(target)) {
+                linkIntoPlace(oldPath, target, created);
+            }
+            linkDerivative(oldPath, target, created);
+            blob.setRefCount(blob.getRefCount() + 1);
+            taiLieu.setFileName(blob.getStorageKey());
+            return new Relocation(Outcome.DEDUPLICATED, blob.getStorageKey());
+        }
+
+        Path target = blobStoreService.resolve(newKey);
+        linkIntoPlace(oldPath, target, created);
+        linkDerivative(oldPath, target, created);
+        StoredBlob blob = new StoredBlob();
+        blob.setSha256(sha256);
+        blob.setStorageKey(newKey);
+        blob.setSize(size);
+        blob.setRefCount(1);
+        blob.setCreatedAt(LocalDateTime.now());
+        storedBlobRepository.save(blob);
+        taiLieu.setFileName(newKey);
+        return new Relocation(Outcome.MIGRATED, newKey);
+    }
+
+    /** Legacy rows predate the recorded metadata; keep what is known now that the file was read. */
+    private void fillLegacyMetadata(TaiLieu taiLieu, String legacyKey, String sha256, long size) {
+        if (taiLieu.getTenFileGoc() == null) {
+            int separator = legacyKey.indexOf('_');
+            boolean timestamped = separator > 0 && legacyKey.substring(0, separator).chars().allMatch(Character::isDigit);
+            taiLieu.setTenFileGoc(timestamped ? legacyKey.substring(separator + 1) : legacyKey);
+        }
+        if (taiLieu.getChecksum() == null) {
+            taiLieu.setChecksum(sha256);
+        }
+        if (taiLieu.getKichThuoc() == null) {
+            taiLieu.setKichThuoc(size);
+        }
+    }
+
+    private void linkDerivative(Path oldPath, Path target, List<Path> created) throws IOException {
+        Path derivative = PreviewDerivativeService.derivativePathFor(oldPath);
+        Path targetDerivative = PreviewDerivativeService.derivativePathFor(target);
+        if (Files.isRegularFile(derivative) && !Files.exists(targetDerivative)) {
+            linkIntoPlace(derivative, targetDerivative, created);
+        }
+    }
+
+    /**
+     * Makes {@code target} hold the content of {@code source} without removing it: a hard link
+     * when the file system allows it, otherwise a copy renamed into place. Modification times are
+     * kept, so cached previews and ETags stay valid.
+     */
+    private void linkIntoPlace(Path source, Path target, List<Path> created) throws IOException {
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, source);
+            created.add(target);
+            return;
+        } catch (FileAlreadyExistsException ex) {
+            return;
+        } catch (UnsupportedOperationException | IOException ex) {
+            LOGGER.debug("Không tạo được liên kết cứng cho {}, sao chép: {}", target.getFileName(), ex.getMessage());
+        }
+        Path temp = Files.createTempFile(target.getParent(), "migrate-", ".tmp");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, target);
+            }
+            created.add(target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private String extensionOf(String key) {
+        int dot = key.lastIndexOf('.');
+        return dot < 0 ? "" : key.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            LOGGER.warn("Không thể xóa tệp {}: {}", path.getFileName(), ex.getMessage());
+        }
+    }
+}
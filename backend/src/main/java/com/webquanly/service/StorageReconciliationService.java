@@ -0,0 +1,317 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.webquanly.dto.admin.AdminStorageReconciliationReport;
+import com.webquanly.event.DocumentChangedEvent;
+import com.webquanly.repository.StoredBlobRepository;
+import com.webquanly.repository.TaiLieuRepository;
+import com.webquanly.storage.BlobInfo;
+import com.webquanly.storage.BlobStorage;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Finds where the document store and the database disagree: files no document points at
+ * (left behind when a delete could not remove the file, or by an upload whose row was never
+ * saved) and documents whose file is gone.
+ *
+ * The storage listing is streamed in key order and checked against {@code tailieu} and
+ * {@code tailieu_blob} a batch at a time; then {@code tailieu} is walked by id and each file is
+ * looked up. Files younger than the grace period are skipped, since an upload writes its file
+ * before its row. With quarantine enabled, orphan files are moved under {@code quarantine/<date>/}
+ * and published documents with a missing file go back to review, at most
+ * {@code storage.reconcile.max-quarantine} of each per run so that a storage outage cannot empty
+ * the catalogue. Files still counted in {@code tailieu_blob} are only reported.
+ */
+@Service
+public class StorageReconciliationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageReconciliationService.class);
+
+    static final String QUARANTINE_PREFIX = "quarantine/";
+    private static final String MAINTENANCE_JOB = "reconciliation";
+    private static final String MISSING_FILE_REASON = "Tệp không tồn tại trên hệ thống (phát hiện khi đối soát kho)";
+
+    private final TaiLieuRepository taiLieuRepository;
+    private final StoredBlobRepository storedBlobRepository;
+    private final BlobStoreService blobStoreService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+    private final AtomicLong scannedFiles = new AtomicLong();
+    private final AtomicLong scannedDocuments = new AtomicLong();
+    private final AtomicLong orphanFiles = new AtomicLong();
+    private final AtomicLong orphanBytes = new AtomicLong();
+    private final AtomicLong unreferencedBlobs = new AtomicLong();
+    private final AtomicLong missingFiles = new AtomicLong();
+    private final AtomicLong quarantinedFiles = new AtomicLong();
+    private final AtomicLong quarantinedDocuments = new AtomicLong();
+    private final List<String> orphanKeys = new CopyOnWriteArrayList<>();
+    private final List<Long> missingDocumentIds = new CopyOnWriteArrayList<>();
+    private volatile boolean quarantineThisRun;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+    private volatile Thread worker;
+
+    @Value("${storage.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.reconcile.quarantine:false}")
+    private boolean quarantine;
+
+    @Value("${storage.reconcile.batch-size:200}")
+    private int batchSize;
+
+    @Value("${storage.reconcile.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${storage.reconcile.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${storage.reconcile.max-quarantine:100}")
+    private long maxQuarantine;
+
+    @Value("${storage.reconcile.sample-size:50}")
+    private int sampleSize;
+
+    public StorageReconciliationService(TaiLieuRepository taiLieuRepository,
+                                        StoredBlobRepository storedBlobRepository,
+                                        BlobStoreService blobStoreService,
+                                        ApplicationEventPublisher eventPublisher) {
+        this.taiLieuRepository = taiLieuRepository;
+        this.storedBlobRepository = storedBlobRepository;
+        this.blobStoreService = blobStoreService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Scheduled(cron = "${storage.reconcile.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            start();
+        } catch (IllegalArgumentException ex) {
+            LOGGER.info("Bỏ qua đối soát kho tài liệu: {}", ex.getMessage());
+        }
+    }
+
+    /** @return false when a reconciliation is already running */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        if (!blobStoreService.beginMaintenance(MAINTENANCE_JOB)) {
+            running.set(false);
+            // files are linked into place before their rows move and would look orphaned
+            throw new IllegalArgumentException("Không thể đối soát khi đang chuyển kho tài liệu");
+        }
+        stopRequested.set(false);
+        scannedFiles.set(0);
+        scannedDocuments.set(0);
+        orphanFiles.set(0);
+        orphanBytes.set(0);
+        unreferencedBlobs.set(0);
+        missingFiles.set(0);
+        quarantinedFiles.set(0);
+        quarantinedDocuments.set(0);
+        orphanKeys.clear();
+        missingDocumentIds.clear();
+        quarantineThisRun = quarantine;
+        lastError = null;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        Thread thread = new Thread(this::run, "storage-reconciliation");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        worker = thread;
+        thread.start();
+        return true;
+    }
+
+    public void stop() {
+        stopRequested.set(true);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stop();
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(5000);
+        }
+    }
+
+    public AdminStorageReconciliationReport getReport() {
+        AdminStorageReconciliationReport report = new AdminStorageReconciliationReport();
+        report.setRunning(running.get());
+        report.setQuarantineEnabled(quarantineThisRun);
+        report.setScannedFiles(scannedFiles.get());
+        report.setScannedDocuments(scannedDocuments.get());
+        report.setOrphanFiles(orphanFiles.get());
+        report.setOrphanBytes(orphanBytes.get());
+        report.setUnreferencedBlobs(unreferencedBlobs.get());
+        report.setMissingFiles(missingFiles.get());
+        report.setQuarantinedFiles(quarantinedFiles.get());
+        report.setQuarantinedDocuments(quarantinedDocuments.get());
+        report.setOrphanKeys(new ArrayList<>(orphanKeys));
+        report.setMissingDocumentIds(new ArrayList<>(missingDocumentIds));
+        report.setStartedAt(startedAt);
+        report.setFinishedAt(finishedAt);
+        report.setLastError(lastError);
+        return report;
+    }
+
+    private void run() {
+        LOGGER.info("Bắt đầu đối soát kho tài liệu{}", quarantineThisRun ? " (có cách ly)" : "");
+        try {
+            scanStorage();
+            if (!stopRequested.get()) {
+                scanDocuments();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            lastError = ex.getMessage();
+            LOGGER.warn("Dừng đối soát kho tài liệu: {}", ex.getMessage());
+        } finally {
+            finishedAt = LocalDateTime.now();
+            worker = null;
+            blobStoreService.endMaintenance(MAINTENANCE_JOB);
+            running.set(false);
+            LOGGER.info("Kết thúc đối soát kho: {} tệp, {} tài liệu; {} tệp mồ côi ({} bytes), {} blob không có tài liệu, "
+                            + "{} tài liệu mất tệp; đã cách ly {} tệp, {} tài liệu",
+                    scannedFiles.get(), scannedDocuments.get(), orphanFiles.get(), orphanBytes.get(),
+                    unreferencedBlobs.get(), missingFiles.get(), quarantinedFiles.get(), quarantinedDocuments.get());
+        }
+    }
+
+    private void scanStorage() throws IOException, InterruptedException {
+        long cutoff = System.currentTimeMillis() - graceMinutes * 60_000L;
+        List<String> batch = new ArrayList<>(Math.max(1, batchSize));
+        try (Stream<String> keys = blobStoreService.getStorage().listKeys()) {
+            Iterator<String> iterator = keys.iterator();
+            while (iterator.hasNext() && !stopRequested.get()) {
+                String key = iterator.next();
+                if (key.startsWith(QUARANTINE_PREFIX) || key.endsWith(PreviewDerivativeService.DERIVATIVE_SUFFIX)) {
+                    continue;
+                }
+                batch.add(key);
+                if (batch.size() >= Math.max(1, batchSize)) {
+                    checkFiles(batch, cutoff);
+                    batch.clear();
+                    Thread.sleep(Math.max(0L, batchPauseMs));
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        if (!batch.isEmpty() && !stopRequested.get()) {
+            checkFiles(batch, cutoff);
+        }
+    }
+
+    private void checkFiles(List<String> keys, long cutoff) throws IOException {
+        scannedFiles.addAndGet(keys.size());
+        Set<String> referenced = new HashSet<>(taiLieuRepository.findReferencedFileNames(keys));
+        List<String> candidates = keys.stream().filter(key -> !referenced.contains(key)).toList();
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Set<String> counted = new HashSet<>(storedBlobRepository.findExistingStorageKeys(candidates));
+        BlobStorage storage = blobStoreService.getStorage();
+        for (String key : candidates) {
+            Optional<BlobInfo> info = storage.stat(key);
+            if (info.isEmpty() || info.get().lastModified() > cutoff) {
+                continue;
+            }
+            if (counted.contains(key)) {
+                // a reference was taken but its document never saved; releasing it is left to an admin
+                unreferencedBlobs.incrementAndGet();
+                continue;
+            }
+            orphanFiles.incrementAndGet();
+            orphanBytes.addAndGet(info.get().size());
+            if (orphanKeys.size() < sampleSize) {
+                orphanKeys.add(key);
+            }
+            if (quarantineThisRun && quarantinedFiles.get() < maxQuarantine) {
+                quarantineFile(key);
+            }
+        }
+    }
+
+    private void quarantineFile(String key) {
+        if (!taiLieuRepository.findReferencedFileNames(List.of(key)).isEmpty()) {
+            return;
+        }
+        String target = QUARANTINE_PREFIX + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + "/" + key;
+        try {
+            blobStoreService.getStorage().move(key, target);
+            // the PDF rendition can be produced again if the file is ever restored
+            Files.deleteIfExists(PreviewDerivativeService.derivativePathFor(blobStoreService.resolve(key)));
+            quarantinedFiles.incrementAndGet();
+            LOGGER.info("Đã cách ly tệp mồ côi {} sang {}", key, target);
+        } catch (IOException | RuntimeException ex) {
+            lastError = "Tệp " + key + ": " + ex.getMessage();
+            LOGGER.warn("Không thể cách ly tệp {}: {}", key, ex.getMessage());
+        }
+    }
+
+    private void scanDocuments() throws IOException, InterruptedException {
+        long afterId = 0L;
+        while (!stopRequested.get()) {
+            List<TaiLieuRepository.StoredFileRef> batch = taiLieuRepository.findStoredFilesAfter(afterId,
+                    PageRequest.of(0, Math.max(1, batchSize)));
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (TaiLieuRepository.StoredFileRef document : batch) {
+                scannedDocuments.incrementAndGet();
+                if (blobStoreService.stat(document.getFileName()).isEmpty()) {
+                    missingFiles.incrementAndGet();
+                    if (missingDocumentIds.size() < sampleSize) {
+                        missingDocumentIds.add(document.getId());
+                    }
+                    if (quarantineThisRun && quarantinedDocuments.get() < maxQuarantine
+                            && taiLieuRepository.markForReview(document.getId(), document.getFileName(),
+                                    DocumentService.REVIEW_PENDING, MISSING_FILE_REASON) > 0) {
+                        quarantinedDocuments.incrementAndGet();
+                        eventPublisher.publishEvent(new DocumentChangedEvent(document.getId(),
+                                document.getSubjectId(), DocumentService.REVIEW_APPROVED,
+                                document.getSubjectId(), DocumentService.REVIEW_PENDING));
+                        LOGGER.info("Tài liệu {} mất tệp {}, đã chuyển về chờ duyệt", document.getId(), document.getFileName());
+                    }
+                }
+                afterId = document.getId();
+            }
+            Thread.sleep(Math.max(0L, batchPauseMs));
+        }
+    }
+}
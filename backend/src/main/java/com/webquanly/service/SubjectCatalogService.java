@@ -0,0 +1,220 @@
+package com.webquanly.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.webquanly.dto.MonHocResponse;
+import com.webquanly.event.DocumentChangedEvent;
+import com.webquanly.event.DocumentDeletedEvent;
+import com.webquanly.event.SubjectChangedEvent;
+import com.webquanly.event.SubjectDeletedEvent;
+import com.webquanly.model.MonHoc;
+import com.webquanly.repository.MonHocRepository;
+import com.webquanly.repository.TaiLieuRepository;
+
+/**
+ * Subjects with their number of approved documents, kept in memory for {@code GET /api/monhoc}.
+ *
+ * The catalogue is loaded from the database once and then follows it through domain events: a
+ * document event moves one document between subject counts, using the subject and status it had
+ * before and after the change. Readers get the current snapshot without locking; writers copy
+ * it, change the copy and publish it, one at a time. Documents without a review status count as
+ * approved, as in {@link TaiLieuRepository#countDocumentsByMonHoc}.
+ *
+ * An event handled while the catalogue is being read from the database can be counted twice,
+ * and changes made on other nodes are not seen at all, so the catalogue is compared with the
+ * database periodically and replaced when they differ.
+ */
+@Service
+public class SubjectCatalogService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubjectCatalogService.class);
+
+    private final MonHocRepository monHocRepository;
+    private final TaiLieuRepository taiLieuRepository;
+    private final Object writeLock = new Object();
+
+    // subjects by id; replaced, never modified, once published
+    private volatile SortedMap<Long, Subject> snapshot;
+
+    public SubjectCatalogService(MonHocRepository monHocRepository, TaiLieuRepository taiLieuRepository) {
+        this.monHocRepository = monHocRepository;
+        this.taiLieuRepository = taiLieuRepository;
+    }
+
+    private record Subject(Long id, String name, long documentCount) {
+        Subject withCount(long count) {
+            return new Subject(id, name, Math.max(0L, count));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            synchronized (writeLock) {
+                snapshot = readFromDatabase();
+            }
+        } catch (DataAccessException ex) {
+            // requests load it on first use instead
+            LOGGER.warn("Không thể nạp danh mục môn học: {}", ex.getMessage());
+        }
+    }
+
+    public List<MonHocResponse> getAll() {
+        SortedMap<Long, Subject> current = snapshot;
+        if (current == null) {
+            synchronized (writeLock) {
+                if (snapshot == null) {
+                    snapshot = readFromDatabase();
+                }
+                current = snapshot;
+            }
+        }
+        List<MonHocResponse> subjects = new ArrayList<>(current.size());
+        for (Subject subject : current.values()) {
+            subjects.add(new MonHocResponse(subject.id(), subject.name(), subject.documentCount()));
+        }
+        return subjects;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        Long before = countedSubject(event.getPreviousSubjectId(), event.getPreviousReviewStatus());
+        Long after = countedSubject(event.getSubjectId(), event.getReviewStatus());
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        update(subjects -> {
+            adjust(subjects, before, -1);
+            adjust(subjects, after, 1);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentDeleted(DocumentDeletedEvent event) {
+        Long subjectId = countedSubject(event.getSubjectId(), event.getReviewStatus());
+        if (subjectId != null) {
+            update(subjects -> adjust(subjects, subjectId, -1));
+        }
+    }
+
+    /** A new or renamed subject; its count is only read from the database when it is new. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubjectChanged(SubjectChangedEvent event) {
+        Long subjectId = event.getSubjectId();
+        try {
+            MonHoc monHoc = monHocRepository.findById(subjectId).orElse(null);
+            update(subjects -> {
+                Subject existing = subjects.get(subjectId);
+                if (monHoc == null) {
+                    subjects.remove(subjectId);
+                } else if (existing != null) {
+                    subjects.put(subjectId, new Subject(subjectId, monHoc.getTenMonHoc(), existing.documentCount()));
+                } else {
+                    subjects.put(subjectId, new Subject(subjectId, monHoc.getTenMonHoc(),
+                            taiLieuRepository.countApprovedOrUnsetByMonHoc(subjectId, DocumentService.REVIEW_APPROVED)));
+                }
+            });
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Không thể cập nhật môn học {} trong danh mục: {}", subjectId, ex.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubjectDeleted(SubjectDeletedEvent event) {
+        update(subjects -> subjects.remove(event.getSubjectId()));
+    }
+
+    /** Replaces the catalogue with the database's figures when the two have drifted apart. */
+    @Scheduled(fixedDelayString = "${subject.catalog.check-interval-ms:300000}",
+               initialDelayString = "${subject.catalog.check-interval-ms:300000}")
+    public void checkConsistency() {
+        try {
+            synchronized (writeLock) {
+                SortedMap<Long, Subject> current = snapshot;
+                SortedMap<Long, Subject> fresh = readFromDatabase();
+                if (current != null && !current.equals(fresh)) {
+                    LOGGER.warn("Danh mục môn học lệch với cơ sở dữ liệu ở {} môn học, đã nạp lại",
+                            countDifferences(current, fresh));
+                }
+                snapshot = fresh;
+            }
+        } catch (DataAccessException ex) {
+            LOGGER.warn("Không thể đối chiếu danh mục môn học: {}", ex.getMessage());
+        }
+    }
+
+    /** Copy, change, publish. Changes before the first load are dropped, the load includes them. */
+    private void update(Consumer<Map<Long, Subject>> change) {
+        synchronized (writeLock) {
+            SortedMap<Long, Subject> current = snapshot;
+            if (current == null) {
+                return;
+            }
+            TreeMap<Long, Subject> copy = new TreeMap<>(current);
+            change.accept(copy);
+            snapshot = Collections.unmodifiableSortedMap(copy);
+        }
+    }
+
+    private static void adjust(Map<Long, Subject> subjects, Long subjectId, long delta) {
+        if (subjectId == null) {
+            return;
+        }
+        Subject subject = subjects.get(subjectId);
+        // a subject created on another node shows up with the next check
+        if (subject != null) {
+            subjects.put(subjectId, subject.withCount(subject.documentCount() + delta));
+        }
+    }
+
+    /** The subject a document counts towards, or null when it does not count anywhere. */
+    private static Long countedSubject(Long subjectId, String reviewStatus) {
+        if (subjectId == null) {
+            return null;
+        }
+        return reviewStatus == null || DocumentService.REVIEW_APPROVED.equalsIgnoreCase(reviewStatus) ? subjectId : null;
+    }
+
+    private SortedMap<Long, Subject> readFromDatabase() {
+        Map<Long, Long> counts = new HashMap<>();
+        taiLieuRepository.countDocumentsByMonHoc(DocumentService.REVIEW_APPROVED).forEach(row ->
+                counts.merge(row.getMonHocId(), row.getTotal(), Long::sum));
+        TreeMap<Long, Subject> subjects = new TreeMap<>();
+        for (MonHoc monHoc : monHocRepository.findAll()) {
+            subjects.put(monHoc.getId(), new Subject(monHoc.getId(), monHoc.getTenMonHoc(),
+                    counts.getOrDefault(monHoc.getId(), 0L)));
+        }
+        return Collections.unmodifiableSortedMap(subjects);
+    }
+
+    private static int countDifferences(Map<Long, Subject> current, Map<Long, Subject> fresh) {
+        int differences = 0;
+        for (Map.Entry<Long, Subject> entry : fresh.entrySet()) {
+            if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                differences++;
+            }
+        }
+        for (Long id : current.keySet()) {
+            if (!fresh.containsKey(id)) {
+                differences++;
+            }
+        }
+        return differences;
+    }
+}
@@ -52,7 +52,7 @@ public class TaiLieuService {
         response.setDanhGia(entity.getDanhGia());
         response.setSoLuongNguoiTai(entity.getSoLuongNguoiTai());
         response.setThoiGianDang(entity.getThoiGianDang());
-        response.setFileName(entity.getFileName());
+        response.setFileName(entity.getTenFileGoc() != null ? entity.getTenFileGoc() : entity.getFileName());
         return response;
     }
 }
@@ -0,0 +1,271 @@
+package com.webquanly.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.webquanly.dto.DocumentResponse;
+import com.webquanly.dto.UploadSessionRequest;
+import com.webquanly.dto.UploadSessionResponse;
+import com.webquanly.exception.ResourceNotFoundException;
+import com.webquanly.exception.UploadOffsetConflictException;
+import com.webquanly.model.UploadSession;
+import com.webquanly.repository.UploadSessionRepository;
+
+/**
+ * Resumable uploads: a session is opened with the file size, chunks are sent in order with their
+ * offset (and optionally their SHA-256), and the finished file goes through
+ * {@link DocumentService#store(InputStream, String, long, String, Long, String)} like any upload.
+ *
+ * Each chunk is written with positional writes straight into the session's part file and flushed
+ * before the received offset moves, so after a dropped connection the client resumes from
+ * {@link UploadSessionResponse#getReceivedBytes()}. Part files live on the node that created the
+ * session. Sessions untouched for {@code upload.session.ttl-hours} are removed on a timer.
+ */
+@Service
+public class UploadSessionService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final DocumentService documentService;
+    private final DocumentIngestionService documentIngestionService;
+    // sessions being turned into a document, so a repeated "complete" cannot store the file twice
+    private final Set<String> finalizing = ConcurrentHashMap.newKeySet();
+    // sessions with a chunk being written; a second writer would interleave its bytes with the first
+    private final Set<String> writing = ConcurrentHashMap.newKeySet();
+
+    @Value("${upload.session.dir:storage/uploads}")
+    private String sessionDir;
+
+    @Value("${upload.session.max-chunk-size-mb:16}")
+    private long maxChunkSizeMb;
+
+    @Value("${upload.session.ttl-hours:24}")
+    private long ttlHours;
+
+    public UploadSessionService(UploadSessionRepository uploadSessionRepository,
+                                DocumentService documentService,
+                                DocumentIngestionService documentIngestionService) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.documentService = documentService;
+        this.documentIngestionService = documentIngestionService;
+    }
+
+    public UploadSessionResponse create(UploadSessionRequest request, String ownerEmail) throws IOException {
+        if (request == null || request.getFilename() == null || request.getFilename().isBlank()) {
+            throw new IllegalArgumentException("Tên tệp là bắt buộc");
+        }
+        if (request.getSubjectId() == null) {
+            throw new IllegalArgumentException("Môn học là bắt buộc");
+        }
+        Long size = request.getSize();
+        if (size == null || size <= 0) {
+            throw new IllegalArgumentException("Empty file");
+        }
+        if (size > documentIngestionService.getMaxUploadSize()) {
+            throw new IllegalArgumentException("File too large");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setOwnerEmail(ownerEmail);
+        session.setFileName(Path.of(request.getFilename()).getFileName().toString());
+        session.setTitle(request.getTitle());
+        session.setSubjectId(request.getSubjectId());
+        session.setTotalSize(size);
+        session.setReceivedBytes(0L);
+        session.setCreatedAt(now);
+        session.setUpdatedAt(now);
+        Files.createDirectories(getRoot());
+        Files.deleteIfExists(partFile(session.getId()));
+        Files.createFile(partFile(session.getId()));
+        uploadSessionRepository.save(session);
+        return toResponse(session);
+    }
+
+    public UploadSessionResponse status(String id, String ownerEmail) {
+        return toResponse(requireSession(id, ownerEmail));
+    }
+
+    /**
+     * Writes one chunk at {@code offset}, which must be the session's received offset. Chunks of
+     * one session are written one at a time; a concurrent one is refused as an offset conflict.
+     *
+     * @param checksum hex SHA-256 of the chunk, or null to skip verification
+     */
+    public UploadSessionResponse writeChunk(String id, String ownerEmail, long offset, InputStream body,
+                                            long length, String checksum) throws IOException {
+        UploadSession session = requireSession(id, ownerEmail);
+        if (!writing.add(id)) {
+            // a retry racing the original request; the client resumes from the offset that wins
+            throw new UploadOffsetConflictException("Phần tải lên khác của phiên đang được ghi", session.getReceivedBytes());
+        }
+        try {
+            // re-read under the claim, the offset may have moved while this request was waiting
+            return appendChunk(requireSession(id, ownerEmail), offset, body, length, checksum);
+        } finally {
+            writing.remove(id);
+        }
+    }
+
+    private UploadSessionResponse appendChunk(UploadSession session, long offset, InputStream body,
+                                              long length, String checksum) throws IOException {
+        String id = session.getId();
+        if (offset != session.getReceivedBytes()) {
+            throw new UploadOffsetConflictException("Vị trí phần tải lên không khớp", session.getReceivedBytes());
+        }
+        if (length <= 0) {
+            throw new IllegalArgumentException("Thiếu độ dài phần tải lên");
+        }
+        if (length > getMaxChunkSize()) {
+            throw new IllegalArgumentException("Phần tải lên quá lớn");
+        }
+        if (offset + length > session.getTotalSize()) {
+            throw new IllegalArgumentException("Phần tải lên vượt quá kích thước tệp");
+        }
+        MessageDigest digest = newDigest();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(partFile(id), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[WRITE_BUFFER];
+            while (written < length) {
+                int read = body.read(buffer, 0, (int) Math.min(buffer.length, length - written));
+                if (read < 0) {
+                    break;
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                long position = offset + written;
+                while (chunk.hasRemaining()) {
+                    position += channel.write(chunk, position);
+                }
+                written += read;
+            }
+            if (written < length) {
+                throw new IllegalArgumentException("Phần tải lên không đầy đủ");
+            }
+            if (checksum != null && !checksum.isBlank()
+                    && !HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(checksum.trim())) {
+                throw new IllegalArgumentException("Checksum của phần tải lên không khớp");
+            }
+            // the offset only moves once the bytes are on disk
+            channel.force(false);
+        }
+        if (uploadSessionRepository.advance(id, offset, offset + length, LocalDateTime.now()) == 0) {
+            long current = uploadSessionRepository.findById(id).map(UploadSession::getReceivedBytes).orElse(0L);
+            throw new UploadOffsetConflictException("Vị trí phần tải lên không khớp", current);
+        }
+        session.setReceivedBytes(offset + length);
+        return toResponse(session);
+    }
+
+    /** Stores the received file as a document and closes the session. */
+    public DocumentResponse complete(String id, String ownerEmail) throws IOException {
+        UploadSession session = requireSession(id, ownerEmail);
+        if (session.getReceivedBytes() < session.getTotalSize()) {
+            throw new IllegalArgumentException("Tệp chưa được tải lên đầy đủ");
+        }
+        if (!finalizing.add(id)) {
+            throw new IllegalArgumentException("Phiên tải lên đang được hoàn tất");
+        }
+        try {
+            DocumentResponse document;
+            try (InputStream content = Files.newInputStream(partFile(id))) {
+                document = documentService.store(content, session.getFileName(), session.getTotalSize(),
+                        session.getTitle(), session.getSubjectId(), ownerEmail);
+            }
+            discard(session);
+            return document;
+        } finally {
+            finalizing.remove(id);
+        }
+    }
+
+    public void cancel(String id, String ownerEmail) {
+        discard(requireSession(id, ownerEmail));
+    }
+
+    @Scheduled(fixedDelayString = "${upload.session.gc-interval-ms:900000}",
+               initialDelayString = "${upload.session.gc-interval-ms:900000}")
+    public void purgeAbandoned() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(ttlHours);
+        int purged = 0;
+        for (UploadSession session : uploadSessionRepository.findByUpdatedAtBefore(cutoff)) {
+            if (finalizing.contains(session.getId()) || writing.contains(session.getId())) {
+                continue;
+            }
+            discard(session);
+            purged++;
+        }
+        if (purged > 0) {
+            LOGGER.info("Đã xóa {} phiên tải lên bị bỏ dở", purged);
+        }
+    }
+
+    public long getMaxChunkSize() {
+        return maxChunkSizeMb * 1024 * 1024;
+    }
+
+    private UploadSession requireSession(String id, String ownerEmail) {
+        return uploadSessionRepository.findById(id)
+                .filter(session -> session.getOwnerEmail().equalsIgnoreCase(ownerEmail))
+                .orElseThrow(() -> new ResourceNotFoundException("Phiên tải lên không tồn tại"));
+    }
+
+    private void discard(UploadSession session) {
+        try {
+            Files.deleteIfExists(partFile(session.getId()));
+        } catch (IOException ex) {
+            LOGGER.warn("Không thể xóa tệp tải lên dở {}: {}", session.getId(), ex.getMessage());
+        }
+        uploadSessionRepository.deleteById(session.getId());
+    }
+
+    private Path getRoot() {
+        return Paths.get(sessionDir).toAbsolutePath().normalize();
+    }
+
+    private Path partFile(String id) {
+        // ids are generated here, but they come back through the URL
+        UUID.fromString(id);
+        return getRoot().resolve(id + ".part");
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        UploadSessionResponse response = new UploadSessionResponse();
+        response.setId(session.getId());
+        response.setFilename(session.getFileName());
+        response.setSize(session.getTotalSize());
+        response.setReceivedBytes(session.getReceivedBytes());
+        response.setMaxChunkSize(getMaxChunkSize());
+        response.setExpiresAt(session.getUpdatedAt().plusHours(ttlHours));
+        return response;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
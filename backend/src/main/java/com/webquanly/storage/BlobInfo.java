@@ -0,0 +1,4 @@
+package com.webquanly.storage;
+
+/** Size and last modification time (epoch millis) of a stored object. */
+public record BlobInfo(long size, long lastModified) {}
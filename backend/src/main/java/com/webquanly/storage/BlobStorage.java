@@ -0,0 +1,92 @@
+package com.webquanly.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Where uploaded files live. Keys are relative, {@code /}-separated names such as
+ * {@code ab/cd/<sha256>.pdf}; implementations map them to a directory or an object store bucket.
+ *
+ * Renderers (PDFBox, POI, conversion workers) need a real file, so every backend can also hand
+ * out a local copy through {@link #materialize}.
+ */
+public interface BlobStorage {
+
+    /** @return empty when there is no object under the key */
+    Optional<BlobInfo> stat(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    /** @throws NoSuchFileException when there is no object under the key */
+    InputStream openStream(String key) throws IOException;
+
+    /** Reads {@code length} bytes starting at {@code offset}, without fetching the rest of the object. */
+    InputStream openRange(String key, long offset, long length) throws IOException;
+
+    /**
+     * The object as a resource for HTTP responses; byte ranges requested by clients are read
+     * with {@link #openRange} rather than by skipping through the whole object.
+     */
+    default Resource resource(String key) throws IOException {
+        BlobInfo info = stat(key).orElseThrow(() -> new NoSuchFileException(key));
+        return new RangedBlobResource(this, key, info);
+    }
+
+    /** A temporary file to spool an upload into before handing it to {@link #store}. */
+    Path createStagingFile() throws IOException;
+
+    /**
+     * Stores a staged file under the key, replacing any previous object. The storage takes
+     * ownership of {@code staged}: it may be moved or deleted.
+     */
+    void store(String key, Path staged) throws IOException;
+
+    default void write(String key, InputStream content) throws IOException {
+        Path staged = createStagingFile();
+        try {
+            Files.copy(content, staged, StandardCopyOption.REPLACE_EXISTING);
+            store(key, staged);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    /** @return false when there was nothing to delete */
+    boolean delete(String key) throws IOException;
+
+    /** Puts the object under another key, replacing what is there. */
+    default void move(String fromKey, String toKey) throws IOException {
+        try (InputStream content = openStream(fromKey)) {
+            write(toKey, content);
+        }
+        delete(fromKey);
+    }
+
+    /**
+     * Every stored key, in {@link String#compareTo} order. The stream is produced while it is
+     * consumed and must be closed.
+     */
+    Stream<String> listKeys() throws IOException;
+
+    /**
+     * Where the local copy of the object is (or would be) kept: the file itself for the local
+     * backend, a cache entry otherwise. Files derived from the object can be kept next to it.
+     */
+    Path localPath(String key);
+
+    /** Returns {@link #localPath}, fetching the object first when there is no local copy yet. */
+    Path materialize(String key) throws IOException;
+
+    /** True when {@link #localPath} is the stored object itself rather than a copy. */
+    boolean isLocal();
+}
@@ -0,0 +1,229 @@
+package com.webquanly.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+/** Objects are files under a root directory; keys are paths relative to it. */
+public class LocalBlobStorage implements BlobStorage {
+    private final Path root;
+
+    public LocalBlobStorage(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public Optional<BlobInfo> stat(String key) throws IOException {
+        Path path = localPath(key);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return Optional.of(new BlobInfo(attributes.size(), attributes.lastModifiedTime().toMillis()));
+    }
+
+    @Override
+    public InputStream openStream(String key) throws IOException {
+        return Files.newInputStream(localPath(key));
+    }
+
+    @Override
+    public InputStream openRange(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(localPath(key), StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return new InputStream() {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int value = in.read();
+                if (value >= 0) {
+                    remaining--;
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = in.read(buffer, off, (int) Math.min(len, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        };
+    }
+
+    @Override
+    public Resource resource(String key) throws IOException {
+        Path path = localPath(key);
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(key);
+        }
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        // inside the root, so storing is a rename on the same file system
+        Files.createDirectories(root);
+        return Files.createTempFile(root, "upload-", ".tmp");
+    }
+
+    @Override
+    public void store(String key, Path staged) throws IOException {
+        Path target = localPath(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(localPath(key));
+    }
+
+    @Override
+    public void move(String fromKey, String toKey) throws IOException {
+        Path target = localPath(toKey);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(localPath(fromKey), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(localPath(fromKey), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Walks the tree depth-first, one directory listing at a time, so that only the entries of
+     * the directories on the current path are held. Staging files are not objects and are skipped.
+     */
+    @Override
+    public Stream<String> listKeys() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        Deque<Iterator<Entry>> pending = new ArrayDeque<>();
+        pending.push(listSorted(root));
+        Iterator<String> keys = new Iterator<>() {
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && !pending.isEmpty()) {
+                    Iterator<Entry> entries = pending.peek();
+                    if (!entries.hasNext()) {
+                        pending.pop();
+                        continue;
+                    }
+                    Entry entry = entries.next();
+                    if (entry.directory()) {
+                        try {
+                            pending.push(listSorted(entry.path()));
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    } else {
+                        next = root.relativize(entry.path()).toString().replace('\\', '/');
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String key = next;
+                next = null;
+                return key;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(keys,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    // directories sort as "name/" so that the walk yields keys in plain string order
+    private record Entry(Path path, String sortName, boolean directory) {}
+
+    private Iterator<Entry> listSorted(Path directory) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                String name = child.getFileName().toString();
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    entries.add(new Entry(child, name + "/", true));
+                } else if (!name.endsWith(".tmp")) {
+                    entries.add(new Entry(child, name, false));
+                }
+            }
+        }
+        entries.sort(Comparator.comparing(Entry::sortName));
+        return entries.iterator();
+    }
+
+    @Override
+    public Path localPath(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Đường dẫn tệp không hợp lệ");
+        }
+        return path;
+    }
+
+    @Override
+    public Path materialize(String key) {
+        return localPath(key);
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+}
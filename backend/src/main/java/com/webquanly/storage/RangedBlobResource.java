@@ -0,0 +1,114 @@
+package com.webquanly.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * Resource over a stored object whose stream opens lazily: Spring serves byte ranges by skipping
+ * to the start of each range, and a skip before the first read only moves the offset that the
+ * ranged request is then made from.
+ */
+class RangedBlobResource extends AbstractResource {
+    private final BlobStorage storage;
+    private final String key;
+    private final BlobInfo info;
+
+    RangedBlobResource(BlobStorage storage, String key, BlobInfo info) {
+        this.storage = storage;
+        this.key = key;
+        this.info = info;
+    }
+
+    @Override
+    public String getDescription() {
+        return "stored object [" + key + "]";
+    }
+
+    @Override
+    public String getFilename() {
+        int slash = key.lastIndexOf('/');
+        return slash < 0 ? key : key.substring(slash + 1);
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return info.size();
+    }
+
+    @Override
+    public long lastModified() {
+        return info.lastModified();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new LazyRangeStream();
+    }
+
+    private final class LazyRangeStream extends InputStream {
+        private long position;
+        private InputStream delegate;
+
+        @Override
+        public int read() throws IOException {
+            int value = open().read();
+            if (value >= 0) {
+                position++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = open().read(buffer, offset, length);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (delegate != null) {
+                long skipped = delegate.skip(n);
+                position += skipped;
+                return skipped;
+            }
+            long skipped = Math.max(0L, Math.min(n, info.size() - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate == null ? 0 : delegate.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+
+        private InputStream open() throws IOException {
+            if (delegate == null) {
+                if (position >= info.size()) {
+                    delegate = InputStream.nullInputStream();
+                    return delegate;
+                }
+                delegate = position == 0
+                        ? storage.openStream(key)
+                        : storage.openRange(key, position, info.size() - position);
+            }
+            return delegate;
+        }
+    }
+}
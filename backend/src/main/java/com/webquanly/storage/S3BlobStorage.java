@@ -0,0 +1,337 @@
+package com.webquanly.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+/**
+ * Objects in an S3-compatible bucket (AWS S3, MinIO, ...) under a key prefix, so several
+ * application instances can share them.
+ *
+ * Large files are uploaded in parts. Renderers get a local copy from a size-capped cache
+ * directory; its modification time is the object's, so fingerprints computed from the copy agree
+ * on every instance. Copies are evicted least-recently-used together with the files derived from
+ * them ({@code <name>.*} next to the copy).
+ */
+public class S3BlobStorage implements BlobStorage {
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3BlobStorage.class);
+
+    private final S3Client client;
+    private final String bucket;
+    private final String prefix;
+    private final Path cacheDir;
+    private final long cacheMaxBytes;
+    private final long multipartThreshold;
+    private final int partSize;
+
+    // local copies by last use (access order), with their size
+    private final LinkedHashMap<Path, Long> cacheIndex = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+
+    public S3BlobStorage(S3Client client, String bucket, String prefix, Path cacheDir,
+                         long cacheMaxBytes, long multipartThreshold, int partSize) {
+        this.client = client;
+        this.bucket = bucket;
+        this.prefix = prefix == null || prefix.isEmpty() ? "" : prefix.endsWith("/") ? prefix : prefix + "/";
+        this.cacheDir = cacheDir.toAbsolutePath().normalize();
+        this.cacheMaxBytes = cacheMaxBytes;
+        this.multipartThreshold = multipartThreshold;
+        // S3 rejects parts under 5 MB except the last one
+        this.partSize = Math.max(partSize, 5 * 1024 * 1024);
+        loadCacheIndex();
+    }
+
+    @Override
+    public Optional<BlobInfo> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(request -> request.bucket(bucket).key(objectKey(key)));
+            return Optional.of(new BlobInfo(head.contentLength(), head.lastModified().toEpochMilli()));
+        } catch (NoSuchKeyException ex) {
+            return Optional.empty();
+        } catch (S3Exception ex) {
+            if (ex.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw failure("HEAD", key, ex);
+        } catch (SdkException ex) {
+            throw failure("HEAD", key, ex);
+        }
+    }
+
+    @Override
+    public InputStream openStream(String key) throws IOException {
+        try {
+            return client.getObject(request -> request.bucket(bucket).key(objectKey(key)));
+        } catch (NoSuchKeyException ex) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException ex) {
+            throw failure("GET", key, ex);
+        }
+    }
+
+    @Override
+    public InputStream openRange(String key, long offset, long length) throws IOException {
+        if (length <= 0) {
+            return InputStream.nullInputStream();
+        }
+        String range = "bytes=" + offset + "-" + (offset + length - 1);
+        try {
+            return client.getObject(request -> request.bucket(bucket).key(objectKey(key)).range(range));
+        } catch (NoSuchKeyException ex) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException ex) {
+            throw failure("GET", key, ex);
+        }
+    }
+
+    @Override
+    public Path createStagingFile() throws IOException {
+        Files.createDirectories(cacheDir);
+        return Files.createTempFile(cacheDir, "upload-", ".tmp");
+    }
+
+    @Override
+    public void store(String key, Path staged) throws IOException {
+        String objectKey = objectKey(key);
+        long size = Files.size(staged);
+        try {
+            if (size <= multipartThreshold) {
+                client.putObject(request -> request.bucket(bucket).key(objectKey).contentLength(size),
+                        RequestBody.fromFile(staged));
+            } else {
+                uploadInParts(objectKey, staged);
+            }
+        } catch (SdkException ex) {
+            throw failure("PUT", key, ex);
+        }
+        // the upload is usually rendered right away, keep it as the local copy
+        try {
+            long lastModified = stat(key).map(BlobInfo::lastModified).orElse(System.currentTimeMillis());
+            Files.setLastModifiedTime(staged, FileTime.fromMillis(lastModified));
+            Path local = localPath(key);
+            moveIntoPlace(staged, local);
+            remember(local, size);
+        } catch (IOException ex) {
+            LOGGER.debug("Không giữ được bản cục bộ của {}: {}", key, ex.getMessage());
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        try {
+            client.deleteObject(request -> request.bucket(bucket).key(objectKey(key)));
+        } catch (SdkException ex) {
+            throw failure("DELETE", key, ex);
+        }
+        evict(localPath(key));
+        return true;
+    }
+
+    @Override
+    public void move(String fromKey, String toKey) throws IOException {
+        try {
+            client.copyObject(request -> request.sourceBucket(bucket).sourceKey(objectKey(fromKey))
+                    .destinationBucket(bucket).destinationKey(objectKey(toKey)));
+        } catch (NoSuchKeyException ex) {
+            throw new NoSuchFileException(fromKey);
+        } catch (SdkException ex) {
+            throw failure("COPY", fromKey, ex);
+        }
+        delete(fromKey);
+    }
+
+    /** Pages through the bucket listing (S3 returns keys in byte order) as the stream is read. */
+    @Override
+    public Stream<String> listKeys() throws IOException {
+        try {
+            return client.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(prefix))
+                    .contents().stream()
+                    .map(object -> object.key().substring(prefix.length()));
+        } catch (SdkException ex) {
+            throw new IOException("LIST " + prefix + " thất bại: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public Path localPath(String key) {
+        Path path = cacheDir.resolve(key).normalize();
+        if (!path.startsWith(cacheDir)) {
+            throw new IllegalArgumentException("Đường dẫn tệp không hợp lệ");
+        }
+        return path;
+    }
+
+    @Override
+    public Path materialize(String key) throws IOException {
+        Path local = localPath(key);
+        if (Files.isRegularFile(local)) {
+            touch(local);
+            return local;
+        }
+        Files.createDirectories(local.getParent());
+        Path temp = Files.createTempFile(local.getParent(), "fetch-", ".tmp");
+        try {
+            long size;
+            FileTime lastModified;
+            try (ResponseInputStream<GetObjectResponse> in = client.getObject(
+                    request -> request.bucket(bucket).key(objectKey(key)))) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                lastModified = FileTime.from(in.response().lastModified());
+            } catch (NoSuchKeyException ex) {
+                throw new NoSuchFileException(key);
+            } catch (SdkException ex) {
+                throw failure("GET", key, ex);
+            }
+            Files.setLastModifiedTime(temp, lastModified);
+            moveIntoPlace(temp, local);
+            remember(local, size);
+            return local;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    private void uploadInParts(String objectKey, Path staged) throws IOException {
+        String uploadId = client.createMultipartUpload(request -> request.bucket(bucket).key(objectKey)).uploadId();
+        try (InputStream in = Files.newInputStream(staged)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            byte[] buffer = new byte[partSize];
+            int read;
+            while ((read = in.readNBytes(buffer, 0, partSize)) > 0) {
+                int partNumber = parts.size() + 1;
+                UploadPartResponse part = client.uploadPart(
+                        request -> request.bucket(bucket).key(objectKey).uploadId(uploadId).partNumber(partNumber),
+                        RequestBody.fromByteBuffer(ByteBuffer.wrap(buffer, 0, read)));
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(part.eTag()).build());
+            }
+            client.completeMultipartUpload(request -> request.bucket(bucket).key(objectKey).uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(parts)));
+        } catch (IOException | RuntimeException ex) {
+            try {
+                client.abortMultipartUpload(request -> request.bucket(bucket).key(objectKey).uploadId(uploadId));
+            } catch (SdkException abortEx) {
+                LOGGER.warn("Không hủy được lượt tải nhiều phần {}: {}", objectKey, abortEx.getMessage());
+            }
+            throw ex;
+        }
+    }
+
+    private String objectKey(String key) {
+        return prefix + key;
+    }
+
+    private IOException failure(String operation, String key, SdkException ex) {
+        return new IOException(operation + " " + objectKey(key) + " thất bại: " + ex.getMessage(), ex);
+    }
+
+    private void moveIntoPlace(Path temp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void loadCacheIndex() {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            files.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .forEach(path -> {
+                        try {
+                            remember(path, Files.size(path));
+                        } catch (IOException ex) {
+                            LOGGER.debug("Bỏ qua {} trong bộ đệm: {}", path, ex.getMessage());
+                        }
+                    });
+        } catch (IOException ex) {
+            LOGGER.warn("Không đọc được thư mục đệm {}: {}", cacheDir, ex.getMessage());
+        }
+    }
+
+    private synchronized void touch(Path local) {
+        cacheIndex.get(local);
+    }
+
+    private void remember(Path local, long size) {
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = cacheIndex.put(local, size);
+            cachedBytes += size - (previous == null ? 0L : previous);
+            Iterator<Map.Entry<Path, Long>> eldest = cacheIndex.entrySet().iterator();
+            while (cachedBytes > cacheMaxBytes && eldest.hasNext()) {
+                Map.Entry<Path, Long> entry = eldest.next();
+                if (entry.getKey().equals(local)) {
+                    continue;
+                }
+                cachedBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        evicted.forEach(this::deleteWithDerived);
+    }
+
+    private void evict(Path local) {
+        synchronized (this) {
+            Long size = cacheIndex.remove(local);
+            if (size != null) {
+                cachedBytes -= size;
+            }
+        }
+        deleteWithDerived(local);
+    }
+
+    private void deleteWithDerived(Path local) {
+        try {
+            Files.deleteIfExists(local);
+            Path parent = local.getParent();
+            if (parent == null || !Files.isDirectory(parent)) {
+                return;
+            }
+            try (DirectoryStream<Path> derived = Files.newDirectoryStream(parent, local.getFileName() + ".*")) {
+                for (Path file : derived) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.debug("Không xóa được bản cục bộ {}: {}", local, ex.getMessage());
+        }
+    }
+}
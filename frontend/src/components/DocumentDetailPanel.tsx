@@ -299,6 +299,8 @@ export default function DocumentDetailPanel({
     return `/preview.html#documentId=${encodeURIComponent(String(documentId))}`
   }, [documentId])
 
+  const coverVersion = summary?.version
+
   useEffect(() => {
     releasePreviewUrl()
     setPreviewUrl('')
@@ -312,7 +314,8 @@ export default function DocumentDetailPanel({
       setPreviewLoading(true)
       setPreviewError('')
       try {
-        const { data } = await axios.get<Blob>(`/api/documents/${documentId}/preview`, {
+        const versionParam = coverVersion ? `&v=${encodeURIComponent(coverVersion)}` : ''
+        const { data } = await axios.get<Blob>(`/api/documents/${documentId}/preview?w=1024&format=jpeg${versionParam}`, {
           responseType: 'blob',
           headers: authHeaders
         })
@@ -338,7 +341,7 @@ export default function DocumentDetailPanel({
       cancelled = true
       releasePreviewUrl()
     }
-  }, [documentId, authHeaders, releasePreviewUrl, isIconOnlyDocument])
+  }, [documentId, coverVersion, authHeaders, releasePreviewUrl, isIconOnlyDocument])
 
   const ratingSummary: RatingSummary | undefined = detail?.rating
   const averageScore = ratingSummary?.average ?? null
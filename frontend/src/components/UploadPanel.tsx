@@ -44,6 +44,9 @@ const uploadChecks = [
 
 const MAX_PREVIEW_LINES = 6
 const MAX_FILE_SIZE_BYTES = 200 * 1024 * 1024
+// larger files go through a resumable session so a dropped connection only resends one chunk
+const CHUNKED_UPLOAD_THRESHOLD = 16 * 1024 * 1024
+const CHUNK_RETRIES = 5
 const ALLOWED_EXTENSIONS = ['pdf', 'doc', 'docx', 'ppt', 'pptx', 'xls', 'xlsx', 'zip', 'rar']
 const ICON_ONLY_EXTENSIONS = ['xls', 'xlsx', 'csv', 'zip', 'rar', '7z']
 
@@ -246,6 +249,70 @@ function generateGenericCover(file: File, label: string) {
   })
 }
 
+type UploadSession = {
+  id: string
+  size: number
+  receivedBytes: number
+  maxChunkSize: number
+}
+
+async function sha256Hex(data: Blob) {
+  if (!window.crypto?.subtle) {
+    return undefined
+  }
+  const digest = await window.crypto.subtle.digest('SHA-256', await data.arrayBuffer())
+  return Array.from(new Uint8Array(digest), (b) => b.toString(16).padStart(2, '0')).join('')
+}
+
+async function uploadInChunks(
+  file: File,
+  params: { title?: string; subjectId: string },
+  token: string
+) {
+  const headers = { Authorization: `Bearer ${token}` }
+  const created = await axios.post<UploadSession>(
+    '/api/documents/uploads',
+    { filename: file.name, title: params.title, subjectId: params.subjectId, size: file.size },
+    { headers }
+  )
+  const session = created.data
+  let offset = session.receivedBytes
+  let failures = 0
+  while (offset < file.size) {
+    const chunk = file.slice(offset, Math.min(offset + session.maxChunkSize, file.size))
+    try {
+      const checksum = await sha256Hex(chunk)
+      const response = await axios.put<UploadSession>(`/api/documents/uploads/${session.id}`, chunk, {
+        params: { offset },
+        headers: {
+          ...headers,
+          'Content-Type': 'application/octet-stream',
+          ...(checksum ? { 'X-Chunk-Checksum': checksum } : {})
+        }
+      })
+      offset = response.data.receivedBytes
+      failures = 0
+    } catch (err: any) {
+      if (err.response?.status === 409 && typeof err.response.data?.offset === 'number') {
+        offset = err.response.data.offset
+        continue
+      }
+      if (err.response && err.response.status < 500) {
+        throw err
+      }
+      failures += 1
+      if (failures > CHUNK_RETRIES) {
+        throw err
+      }
+      await new Promise((resolve) => window.setTimeout(resolve, 1000 * failures))
+      // ask where to resume, the chunk may have been stored before the connection dropped
+      const status = await axios.get<UploadSession>(`/api/documents/uploads/${session.id}`, { headers })
+      offset = status.data.receivedBytes
+    }
+  }
+  await axios.post(`/api/documents/uploads/${session.id}/complete`, null, { headers })
+}
+
 export default function UploadPanel({
   token,
   isGuest,
@@ -513,18 +580,23 @@ export default function UploadPanel({
     setUploadLoading(true)
     setUploadError('')
 
-    const formData = new FormData()
-    formData.append('file', uploadFile)
-    if (uploadTitle) formData.append('title', uploadTitle)
-    formData.append('subjectId', selectedSubjectId)
-
     try {
-      await axios.post('/api/documents/upload', formData, {
-        headers: {
-          Authorization: `Bearer ${token}`,
-          'Content-Type': 'multipart/form-data'
-        }
-      })
+      if (uploadFile.size > CHUNKED_UPLOAD_THRESHOLD) {
+        await uploadInChunks(uploadFile, { title: uploadTitle || undefined, subjectId: selectedSubjectId }, token)
+      } else {
+        // the file is sent as the raw body so the server can store it in a single pass
+        await axios.post('/api/documents/upload/stream', uploadFile, {
+          params: {
+            filename: uploadFile.name,
+            title: uploadTitle || undefined,
+            subjectId: selectedSubjectId
+          },
+          headers: {
+            Authorization: `Bearer ${token}`,
+            'Content-Type': 'application/octet-stream'
+          }
+        })
+      }
       setUploadFile(null)
       setUploadTitle('')
       setDetectedCategory('')
@@ -15,4 +15,5 @@ export interface DocumentItem {
   pendingSubject?: boolean
   reviewStatus?: string
   reviewReason?: string
+  version?: string
 }